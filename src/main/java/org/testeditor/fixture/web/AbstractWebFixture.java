@@ -11,12 +11,14 @@
  *******************************************************************************/
 package org.testeditor.fixture.web;
 
-import java.io.File;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
@@ -28,11 +30,7 @@ import org.openqa.selenium.StaleElementReferenceException;
 import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.firefox.FirefoxDriver;
-import org.openqa.selenium.ie.InternetExplorerDriver;
 import org.openqa.selenium.interactions.Actions;
-import org.openqa.selenium.remote.DesiredCapabilities;
 import org.openqa.selenium.support.ui.ExpectedCondition;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.FluentWait;
@@ -50,15 +48,40 @@ import org.testeditor.fixture.core.interaction.StoppableFixture;
  */
 public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 
-	/** Represents a map with user defined names and application elements. */
-	protected ElementListService elementListService;
-	/** Maximum wait time in seconds for each test step. */
-	protected int timeout = 10;
-	/** The web driver. */
-	protected WebDriver webDriver;
+	/** Web driver, timeouts and element list of the session of each thread. */
+	private final ThreadLocal<WebSession> sessions = WebSession.forThread();
 
 	private static final Logger logger = Logger.getLogger(AbstractWebFixture.class);
 
+	/** Steps, which control the fan-out and are not run in each browser. */
+	private static final List<String> FAN_OUT_STEPS = Arrays.asList("openBrowsers", "readFanOutReport",
+			"closeBrowser", "tearDown");
+
+	/**
+	 * Returns the session of the current thread. All state of the fixture
+	 * (web driver, timeouts, element list) is kept in the session, so
+	 * scenarios on separate threads do not share mutable state.
+	 * 
+	 * @return the session of the current thread
+	 */
+	protected WebSession getSession() {
+		return sessions.get();
+	}
+
+	/**
+	 * @return the element list of the current session or {@code null}
+	 */
+	protected ElementListService getElementListService() {
+		return getSession().getElementListService();
+	}
+
+	/**
+	 * @return the maximum wait time in seconds for each test step
+	 */
+	protected int getTimeout() {
+		return getSession().getTimeout();
+	}
+
 	/**
 	 * Creates the element list instance representing the GUI-Map for widget
 	 * element id's of an application and the user defined names for this
@@ -71,11 +94,12 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 	 *            Wiki Sites of the recent project are
 	 */
 	public void setElementlist(String elementList) {
-		this.elementListService = ElementListService.instanceFor(elementList);
+		getSession().setElementListService(ElementListService.instanceFor(elementList));
 	}
 
 	/**
-	 * Sets the maximum wait time in seconds for each test step.
+	 * Sets the maximum wait time in seconds for each test step. The timeouts
+	 * of an opened browser are adjusted.
 	 * 
 	 * @param timeout
 	 *            timeout in seconds
@@ -84,13 +108,13 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 	 */
 	public void setTimeout(String timeout) throws StopTestException {
 		try {
-			this.timeout = Integer.valueOf(timeout);
-			if (this.timeout < 1) {
-				this.timeout = 1;
-			}
+			getSession().setTimeout(Math.max(1, Integer.parseInt(timeout)));
 		} catch (NumberFormatException e) {
 			throw new StopTestException("Timeout must be an integer greater or equal 1 second. ", e);
 		}
+		if (getSession().getWebDriver() != null) {
+			manageTimeouts();
+		}
 	}
 
 	/**
@@ -106,6 +130,14 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 	 * -Dwebdriver.ie.driver<br/>
 	 * For <b>Chrome</b> the path to the web driver is needed:
 	 * -Dwebdriver.chrome.driver
+	 * <p/>
+	 * If the {@link BrowserPool} is enabled, an already started browser is
+	 * leased from the pool. With a lazy launch (see
+	 * {@link #setLazyBrowserLaunch(String)}), the browser is started in the
+	 * background and this method returns immediately.
+	 * With a Selenium grid (see {@link #setSeleniumGrid(String)}), the
+	 * session is opened through the grid. 'htmlunit' starts the headless
+	 * HtmlUnit browser.
 	 * 
 	 * @param browserName
 	 *            name of browser ('ie', 'chrome' or 'firefox')
@@ -113,97 +145,431 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 	 *         otherwise
 	 */
 	public boolean openBrowser(String browserName) {
+		StartupProfiler startupProfile = StartupProfiler.begin();
+		getSession().setStartupProfile(startupProfile);
+		try {
+			long start = StartupProfiler.start();
+			DriverConfiguration configuration = getDriverConfiguration(browserName);
+			StartupProfiler.recordPhase(StartupProfiler.RESOLVE, start);
+			openBrowser(configuration);
+		} finally {
+			if (getSession().getPendingLaunch() == null) {
+				startupProfile.end();
+			} else {
+				startupProfile.detach();
+			}
+		}
+		return true;
+	}
 
-		if ("firefox".equalsIgnoreCase(browserName)) {
-			initFirefoxDriver();
-		} else if ("ie".equalsIgnoreCase(browserName)) {
-			initIEDriver();
-		} else if ("chrome".equalsIgnoreCase(browserName)) {
-			initChromeDriver();
-		} else {
-			throw new StopTestException("Browser '" + browserName + "' not available.");
+	/**
+	 * Opens a browser with the given configuration.
+	 * 
+	 * @param configuration
+	 *            the configuration of the browser
+	 */
+	private void openBrowser(final DriverConfiguration configuration) {
+		WebSession session = getSession();
+		session.setDriverConfiguration(configuration);
+		session.setBrowserPoolKey(configuration.getPoolKey());
+		BrowserPool.DriverFactory factory = new BrowserPool.DriverFactory() {
+
+			@Override
+			public WebDriver create() {
+				return createWebDriver(configuration);
+			}
+		};
+		session.setFirstNavigation(true);
+		if (session.isLazyLaunch()) {
+			session.setPendingLaunch(BrowserLaunch.start(session.getBrowserPoolKey(), factory));
+			return;
 		}
+		long start = StartupProfiler.start();
+		session.setWebDriver(BrowserPool.getInstance().lease(session.getBrowserPoolKey(), factory));
+		StartupProfiler.recordPhase(StartupProfiler.LEASE, start);
 
 		manageTimeouts();
+	}
 
+	/**
+	 * Returns the web driver of the opened browser. If the browser is
+	 * launched in the background, waits until it is started and ends its
+	 * startup profile.
+	 * 
+	 * @return the web driver, {@code null} if no browser is opened
+	 * @throws StopTestException
+	 *             if the browser launched in the background could not be
+	 *             started
+	 */
+	protected WebDriver getWebDriver() throws StopTestException {
+		WebSession session = getSession();
+		BrowserLaunch launch = session.getPendingLaunch();
+		if (launch != null) {
+			session.setPendingLaunch(null);
+			try {
+				session.setWebDriver(launch.join());
+			} finally {
+				session.getStartupProfile().end();
+			}
+			manageTimeouts();
+		}
+		return session.getWebDriver();
+	}
+
+	/**
+	 * Enables or disables the lazy launch of browsers. With a lazy launch,
+	 * {@code openBrowser} starts the browser in the background and returns
+	 * immediately, so the following setup (e.g. loading the element list)
+	 * runs while the browser starts. The first step, which needs the browser,
+	 * waits for it. The default is the system property
+	 * {@value BrowserLaunch#LAZY_PROPERTY}.
+	 * 
+	 * @param lazy
+	 *            'true' to launch the browsers in the background
+	 * @return always {@code true} to show inside FitNesse a positive result
+	 */
+	public boolean setLazyBrowserLaunch(String lazy) {
+		getSession().setLazyLaunch(Boolean.parseBoolean(lazy.trim()));
 		return true;
 	}
 
 	/**
-	 * Manages the timeouts for the web driver.
+	 * Opens the following browsers through a Selenium grid, which limits the
+	 * concurrent sessions and queues the requests above the limit (see
+	 * {@link SeleniumGrid}). The default is the system property
+	 * {@value SeleniumGrid#GRID_PROPERTY}.
+	 * 
+	 * @param grid
+	 *            'embedded' for a grid inside this JVM, the URL of a running
+	 *            hub or an empty value to start the browsers directly
+	 * @return always {@code true} to show inside FitNesse a positive result
 	 */
-	protected void manageTimeouts() {
-		webDriver.manage().timeouts().implicitlyWait(timeout, TimeUnit.SECONDS);
+	public boolean setSeleniumGrid(String grid) {
+		getSession().setSeleniumGrid(grid);
+		return true;
 	}
 
 	/**
-	 * Initialize web driver for the Internet Explorer.
+	 * Sets the minimal length of values, which are inserted into fields by a
+	 * script instead of typing them key by key (see {@link FieldInsertion}).
+	 * The default is the system property
+	 * {@value FieldInsertion#SCRIPT_LENGTH_PROPERTY}.
+	 * 
+	 * @param length
+	 *            the minimal length, 0 to type all values
+	 * @return always {@code true} to show inside FitNesse a positive result
 	 */
-	protected void initIEDriver() {
-		DesiredCapabilities cap = DesiredCapabilities.internetExplorer();
-		cap.setCapability(InternetExplorerDriver.INTRODUCE_FLAKINESS_BY_IGNORING_SECURITY_DOMAINS, "true");
-		webDriver = new InternetExplorerDriver(cap);
+	public boolean setInsertScriptLength(String length) {
+		getSession().setInsertScriptLength(Integer.parseInt(length.trim()));
+		return true;
 	}
 
 	/**
-	 * Initialize web driver for Google Chrome.
+	 * Opens several browsers, which run the following steps in parallel, e.g.
+	 * 'firefox, chrome, htmlunit'. The first browser is driven by the calling
+	 * thread, each other browser by a thread of its own (see
+	 * {@link BrowserFanOut}), so the steps take about as long as in the
+	 * slowest browser. The browsers get the element list, timeout, capability
+	 * profile and Selenium grid of this fixture. A step, which fails in the
+	 * first browser, fails the test. Failures in the other browsers (an
+	 * exception or {@code false}) do not fail the step, they are only reported
+	 * by {@link #readFanOutReport()}. {@link #closeBrowser()} closes
+	 * all browsers.
+	 * 
+	 * @param browserNames
+	 *            comma separated names of the browsers, the first one is
+	 *            driven by the calling thread
+	 * @return always {@code true} to show inside FitNesse a positive result
+	 * @throws StopTestException
+	 *             if a browser could not be opened
 	 */
-	protected void initChromeDriver() {
-		webDriver = new ChromeDriver();
+	public boolean openBrowsers(String browserNames) throws StopTestException {
+		Set<String> names = new LinkedHashSet<String>();
+		for (String name : browserNames.split(",")) {
+			if (!name.trim().isEmpty()) {
+				names.add(name.trim().toLowerCase());
+			}
+		}
+		if (names.isEmpty()) {
+			throw new StopTestException("No browser given in '" + browserNames + "'.");
+		}
+		closeBrowser();
+		final WebSession primary = getSession();
+		List<String> browsers = new ArrayList<String>(names);
+		BrowserFanOut fanOut = new BrowserFanOut(browsers);
+		primary.setFanOut(fanOut);
+		fanOut.begin("openBrowser", new BrowserFanOut.BrowserTask() {
+
+			@Override
+			public Object run(String browser) {
+				WebSession mirror = getSession();
+				mirror.setElementListService(primary.getElementListService());
+				mirror.setTimeout(primary.getTimeout());
+				mirror.setCapabilityProfile(primary.getCapabilityProfile());
+				mirror.setSeleniumGrid(primary.getSeleniumGrid());
+				mirror.setInsertScriptLength(primary.getInsertScriptLength());
+				return openBrowser(browser);
+			}
+		});
+		openBrowser(browsers.get(0));
+		List<String> failures = fanOut.finish();
+		if (!failures.isEmpty()) {
+			closeBrowser();
+			throw new StopTestException("Browsers could not be opened: " + failures);
+		}
+		return true;
 	}
 
 	/**
-	 * Initialize web driver for Firefox.
+	 * Returns the outcomes of the browsers opened by
+	 * {@link #openBrowsers(String)}, one line each: the number of steps and
+	 * failed steps, the run time and the difference to the fastest browser,
+	 * e.g. 'chrome: 12 steps, 1 failed, 3400 ms (+500 ms), first failure:
+	 * ...'.
+	 * 
+	 * @return the report, empty if no browsers were opened
 	 */
-	protected void initFirefoxDriver() {
-		String osName = System.getProperty("os.name");
-		if (osName != null && osName.contains("Linux")) {
-			System.setProperty("webdriver.firefox.profile", "testing");
+	public String readFanOutReport() {
+		BrowserFanOut fanOut = getSession().getFanOut();
+		if (fanOut == null) {
+			return "";
 		}
+		return fanOut.getReport();
+	}
 
-		String firefoxBin = System.getProperty("webdriver.firefox.bin");
-		if (firefoxBin == null) {
-			webDriver = new FirefoxDriver();
-			// throw new StopTestException(
-			// "Web driver initialisation error. Please specify system property
-			// -Dwebdriver.firefox.bin properly.");
-		} else if (!(new File(firefoxBin)).exists()) {
-			throw new StopTestException(
-					"Web driver initialisation error. Browser path '" + firefoxBin + "' does not exist.");
-		} else {
-			webDriver = new FirefoxDriver();
+	/**
+	 * @return the browsers, which run the steps in parallel, {@code null} if
+	 *         there are none or they are closed
+	 */
+	private BrowserFanOut getActiveFanOut() {
+		BrowserFanOut fanOut = getSession().getFanOut();
+		if (fanOut == null || fanOut.isClosed()) {
+			return null;
 		}
+		return fanOut;
 	}
 
 	/**
-	 * Close the browser instance.
+	 * Returns the duration of the phases of the last browser start of this
+	 * fixture, e.g. 'resolve=1 ms, lease=1830 ms, session=1790 ms, navigation=
+	 * 420 ms'. See {@link StartupProfiler} for the phases.
 	 * 
+	 * @return the phases of the last browser start, empty if no browser was
+	 *         started
+	 */
+	public String readStartupProfile() {
+		StartupProfiler startupProfile = getSession().getStartupProfile();
+		if (startupProfile == null) {
+			return "";
+		}
+		return startupProfile.toString();
+	}
+
+	/**
+	 * Returns the aggregated duration of the phases of all browser starts of
+	 * the JVM (count, average and maximum per phase).
+	 * 
+	 * @return the report
+	 */
+	public String readStartupReport() {
+		return StartupProfiler.getReport();
+	}
+
+	/**
+	 * Replaces the browser by a new one with the same configuration, if the
+	 * {@link BrowserHealthMonitor} reports it as degraded (slow commands, high
+	 * memory). Called between the tests.
+	 */
+	protected void recycleBrowserIfDegraded() {
+		WebSession session = getSession();
+		WebDriver webDriver = session.getWebDriver();
+		if (webDriver == null || session.getDriverConfiguration() == null
+				|| !BrowserHealthMonitor.getInstance().isDegraded(webDriver)) {
+			return;
+		}
+		logger.info("Browser session is degraded and replaced by a new one.");
+		BrowserPool.getInstance().discard(webDriver);
+		BrowserReaper.reap(webDriver);
+		session.setWebDriver(null);
+		session.clearCache();
+		openBrowser(session.getDriverConfiguration());
+	}
+
+	/**
+	 * Sets the number of started browsers per browser name, which are kept in
+	 * the JVM wide browser pool. With a pool, {@code openBrowser} leases an
+	 * already started browser and {@code closeBrowser} returns it to the pool
+	 * instead of closing it. 0 disables the pool.
+	 * 
+	 * @param size
+	 *            number of idle browsers per browser name
 	 * @return always {@code true} to show inside FitNesse a positive result
+	 * @throws StopTestException
+	 *             if size is not a correct integer value
 	 */
-	public boolean closeBrowser() {
-		// checks if Browser is Chrome because Chrome-Driver does not function
-		// with Close-Method
-		if (webDriver instanceof ChromeDriver) {
-			webDriver.quit();
-		} else {
-			webDriver.close();
-			// necessary wait, at least for Firefox-Portable
-			try {
-				Thread.sleep(500);
-				// CHECKSTYLE:OFF
-			} catch (InterruptedException e) {
-				// CHECKSTYLE:ON
-				// try to quit browser anyway
+	public boolean setBrowserPoolSize(String size) throws StopTestException {
+		try {
+			BrowserPool.getInstance().setSize(Integer.parseInt(size.trim()));
+		} catch (NumberFormatException e) {
+			throw new StopTestException("Browser pool size must be an integer greater or equal 0.", e);
+		}
+		return true;
+	}
+
+	/**
+	 * Starts browsers in the background until the browser pool contains the
+	 * configured number of idle browsers for the given browser name.
+	 * 
+	 * @param browserName
+	 *            name of browser ('ie', 'chrome' or 'firefox')
+	 * @return always {@code true} to show inside FitNesse a positive result
+	 */
+	public boolean warmUpBrowserPool(String browserName) {
+		final DriverConfiguration configuration = getDriverConfiguration(browserName);
+		BrowserPool.getInstance().warmUp(configuration.getPoolKey(), new BrowserPool.DriverFactory() {
+
+			@Override
+			public WebDriver create() {
+				return createWebDriver(configuration);
 			}
-			// best effort
+		});
+		return true;
+	}
+
+	/**
+	 * Loads the capability profile (e.g. headless mode, window size) for the
+	 * browsers started by this fixture from a properties file. Without an
+	 * explicit profile, the profile is read from the element list. See
+	 * {@link CapabilityProfile} for the keys.
+	 * 
+	 * @param propertiesFile
+	 *            path to the properties file
+	 * @return always {@code true} to show inside FitNesse a positive result
+	 * @throws StopTestException
+	 *             if the file could not be read or a value is invalid
+	 */
+	public boolean setCapabilityProfile(String propertiesFile) throws StopTestException {
+		getSession().setCapabilityProfile(CapabilityProfile.load(propertiesFile));
+		return true;
+	}
+
+	/**
+	 * Returns the capability profile for new browsers: the explicitly set
+	 * profile, otherwise the profile of the element list.
+	 * 
+	 * @return the capability profile
+	 * @throws StopTestException
+	 *             if a value of the profile is invalid
+	 */
+	protected CapabilityProfile getCapabilityProfile() throws StopTestException {
+		CapabilityProfile capabilityProfile = getSession().getCapabilityProfile();
+		if (capabilityProfile != null) {
+			return capabilityProfile;
+		}
+		ElementListService elementListService = getElementListService();
+		if (elementListService != null) {
+			return CapabilityProfile.fromElementList(elementListService);
+		}
+		return CapabilityProfile.DEFAULT;
+	}
+
+	/**
+	 * Returns the configuration for a new browser: the paths of the system
+	 * properties, the capability profile, the Selenium grid and for Firefox on
+	 * Linux the profile 'testing'. Subclasses override it or
+	 * {@link #createWebDriver(DriverConfiguration)} to start browsers
+	 * differently.
+	 * 
+	 * @param browserName
+	 *            name of browser ('ie', 'chrome' or 'firefox')
+	 * @return the configuration
+	 * @throws StopTestException
+	 *             if a value of the capability profile is invalid
+	 */
+	protected DriverConfiguration getDriverConfiguration(String browserName) throws StopTestException {
+		DriverConfiguration configuration = DriverConfiguration.forBrowser(browserName, getCapabilityProfile())
+				.withGrid(getSession().getSeleniumGrid());
+		String osName = System.getProperty("os.name");
+		if (DriverConfiguration.FIREFOX.equals(configuration.getBrowserName()) && osName != null
+				&& osName.contains("Linux")) {
+			configuration = configuration.withFirefoxProfile("testing");
+		}
+		return configuration;
+	}
+
+	/**
+	 * Starts a new browser.
+	 * 
+	 * @param configuration
+	 *            the configuration of the browser
+	 * @return the web driver of the started browser
+	 * @throws StopTestException
+	 *             if the browser is not available
+	 */
+	protected WebDriver createWebDriver(DriverConfiguration configuration) throws StopTestException {
+		return configuration.createDriver();
+	}
+
+	/**
+	 * Manages the timeouts for the web driver: the implicit wait for elements
+	 * and the timeout of asynchronous scripts (see
+	 * {@link #waitForValueChange(String, String...)}).
+	 */
+	protected void manageTimeouts() {
+		WebDriver.Timeouts timeouts = getWebDriver().manage().timeouts();
+		timeouts.implicitlyWait(getTimeout(), TimeUnit.SECONDS);
+		timeouts.setScriptTimeout(getTimeout(), TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Close the browser instance. The browser is returned to the browser pool
+	 * or closed in the background by the {@link BrowserReaper}, so this method
+	 * returns immediately.
+	 * 
+	 * @return always {@code true} to show inside FitNesse a positive result
+	 */
+	public boolean closeBrowser() {
+		BrowserFanOut fanOut = getActiveFanOut();
+		if (fanOut != null) {
+			fanOut.begin("closeBrowser", new BrowserFanOut.BrowserTask() {
+
+				@Override
+				public Object run(String browser) {
+					return closeBrowser();
+				}
+			});
 			try {
-				webDriver.quit();
-				// CHECKSTYLE:OFF
-			} catch (Exception e) {
-				// CHECKSTYLE:ON
-				// At least Firefox-Portable is down after close()
+				closeSessionBrowser();
+			} finally {
+				fanOut.finish();
+				fanOut.close();
 			}
+			return true;
 		}
+		return closeSessionBrowser();
+	}
+
+	/**
+	 * Closes the browser of the session of the current thread.
+	 * 
+	 * @return always {@code true}
+	 */
+	private boolean closeSessionBrowser() {
+		WebSession session = getSession();
+		session.clearCache();
+		if (session.getPendingLaunch() != null) {
+			session.getPendingLaunch().close();
+			session.setPendingLaunch(null);
+			return true;
+		}
+		WebDriver webDriver = session.getWebDriver();
+		if (webDriver == null) {
+			return true;
+		}
+		if (!BrowserPool.getInstance().release(session.getBrowserPoolKey(), webDriver)) {
+			BrowserReaper.reap(webDriver);
+		}
+		session.setWebDriver(null);
 		return true;
 	}
 
@@ -215,7 +581,67 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 	 * @return always {@code true} to show inside FitNesse a positive result
 	 */
 	public boolean navigateToUrl(String url) {
+		long start = StartupProfiler.start();
+		WebDriver webDriver = getWebDriver();
 		webDriver.get(url);
+		BrowserPool.getInstance().navigated(webDriver, url);
+		WebSession session = getSession();
+		if (session.isFirstNavigation() && session.getStartupProfile() != null) {
+			session.getStartupProfile().addPhase(StartupProfiler.NAVIGATION, start);
+		}
+		session.setFirstNavigation(false);
+		return true;
+	}
+
+	/**
+	 * Saves the cookies and the local and session storage of the current page
+	 * as named snapshot, e.g. after the login. Restore it with
+	 * {@link #restoreSessionSnapshot(String)} in later tests to skip the login.
+	 * 
+	 * @param name
+	 *            name of the snapshot
+	 * @return always {@code true} to show inside FitNesse a positive result
+	 * @throws StopTestException
+	 *             if the snapshot file could not be written
+	 */
+	public boolean saveSessionSnapshot(String name) throws StopTestException {
+		SessionSnapshotStore.put(name, SessionSnapshot.capture(getWebDriver()));
+		return true;
+	}
+
+	/**
+	 * Restores the cookies and the local and session storage of a snapshot
+	 * saved with {@link #saveSessionSnapshot(String)}. Navigate to the page of
+	 * the test afterwards.
+	 * 
+	 * @param name
+	 *            name of the snapshot
+	 * @return always {@code true} to show inside FitNesse a positive result
+	 * @throws StopTestException
+	 *             if there is no snapshot with the name
+	 */
+	public boolean restoreSessionSnapshot(String name) throws StopTestException {
+		SessionSnapshot snapshot = SessionSnapshotStore.get(name);
+		if (snapshot == null) {
+			throw new StopTestException("There is no session snapshot '" + name + "'.");
+		}
+		snapshot.restore(getWebDriver());
+		BrowserPool.getInstance().visited(getWebDriver(), snapshot.getUrl());
+		return true;
+	}
+
+	/**
+	 * Sets the directory, where session snapshots are written to and read
+	 * from, so they are available across test runs.
+	 * 
+	 * @param directory
+	 *            the directory, empty to keep snapshots in memory only
+	 * @return always {@code true} to show inside FitNesse a positive result
+	 * @throws StopTestException
+	 *             if the directory could not be created
+	 */
+	public boolean setSessionSnapshotDirectory(String directory) throws StopTestException {
+		SessionSnapshotStore.setDirectory(directory);
 		return true;
 	}
 
@@ -397,7 +823,7 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 	 */
 	public boolean checkElementIsNotAvailable(String elementListKey, String... replaceArgs) throws StopTestException {
 		try {
-			WebElement element = webDriver.findElement(createBy(elementListKey, replaceArgs));
+			WebElement element = getWebDriver().findElement(createBy(elementListKey, replaceArgs));
 			return element == null || !element.isDisplayed();
 		} catch (NoSuchElementException e) {
 			return true;
@@ -519,7 +945,7 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 	 */
 	public boolean moveMouseToElement(String elementListKey, String... replaceArgs) throws StopTestException {
 		WebElement element = findAvailableWebElement(elementListKey, replaceArgs);
-		Actions actions = new Actions(webDriver);
+		Actions actions = new Actions(getWebDriver());
 		actions.moveToElement(element).build().perform();
 		return true;
 	}
@@ -552,7 +978,7 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 	 */
 	public boolean switchToFrame(String elementListKey, String... replaceArgs) throws StopTestException {
 		WebElement webElement = findAvailableWebElement(elementListKey, replaceArgs);
-		webDriver.switchTo().frame(webElement);
+		getWebDriver().switchTo().frame(webElement);
 
 		return true;
 	}
@@ -577,7 +1003,7 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 	 * @return true if switch successed
 	 */
 	public boolean switchToDefaultContent() {
-		webDriver.switchTo().defaultContent();
+		getWebDriver().switchTo().defaultContent();
 
 		return true;
 	}
@@ -628,7 +1054,7 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 	 */
 	public boolean doubleClickElement(String elementListKey, String... replaceArgs) throws StopTestException {
 		WebElement element = findAvailableWebElement(elementListKey, replaceArgs);
-		Actions action = new Actions(webDriver);
+		Actions action = new Actions(getWebDriver());
 		action.moveToElement(element).doubleClick().build().perform();
 		return true;
 	}
@@ -670,9 +1096,9 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 
 		WebElement element = findAvailableWebElement(elementListKey, replaceArgs);
 		String oldValue = element.getAttribute("value");
-		element.click();
-		element.sendKeys(value);
-		return oldValue.concat(value).equals(element.getAttribute("value"));
+		String newValue = FieldInsertion.insert(getWebDriver(), element, value, getSession().getInsertScriptLength())
+				.getValue();
+		return oldValue.concat(value).equals(newValue);
 	}
 
 	/**
@@ -704,16 +1130,16 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 
 		waitForPage();
 		try {
-			int interval = (int) Math.floor(Math.sqrt(timeout));
+			int interval = (int) Math.floor(Math.sqrt(getTimeout()));
 			logger.info("Got interval: " + interval);
-			Wait<WebDriver> wait = new FluentWait<WebDriver>(webDriver).withTimeout(timeout, TimeUnit.SECONDS)
+			Wait<WebDriver> wait = new FluentWait<WebDriver>(getWebDriver()).withTimeout(getTimeout(), TimeUnit.SECONDS)
 					.pollingEvery(interval, TimeUnit.SECONDS)
 					.ignoring(NoSuchElementException.class, StaleElementReferenceException.class);
 			return wait.until(new ExpectedCondition<Boolean>() {
 
 				@Override
 				public Boolean apply(WebDriver driver) {
-					String source = webDriver.getPageSource();
+					String source = getWebDriver().getPageSource();
 					logger.info("Got source: " + "\"" + source + "\"");
 					logger.info("text to be checked: " + "\"" + text + "\"");
 					source = source.replaceFirst("(?i:<HEAD[^>]*>[\\s\\S]*</HEAD>)", "");
@@ -733,8 +1159,8 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 	 *         otherwise
 	 */
 	public boolean waitForPage() {
-		int interval = (int) Math.floor(Math.sqrt(timeout));
-		Wait<WebDriver> wait = new FluentWait<WebDriver>(webDriver).withTimeout(timeout, TimeUnit.SECONDS)
+		int interval = (int) Math.floor(Math.sqrt(getTimeout()));
+		Wait<WebDriver> wait = new FluentWait<WebDriver>(getWebDriver()).withTimeout(getTimeout(), TimeUnit.SECONDS)
 				.pollingEvery(interval, TimeUnit.SECONDS)
 				.ignoring(NoSuchElementException.class, StaleElementReferenceException.class);
 		try {
@@ -742,7 +1168,7 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 
 				@Override
 				public Boolean apply(WebDriver arg) {
-					return ((JavascriptExecutor) webDriver).executeScript("return document.readyState")
+					return ((JavascriptExecutor) getWebDriver()).executeScript("return document.readyState")
 							.equals("complete");
 				}
 			});
@@ -766,6 +1192,118 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 		return !checkTextIsPresentOnPage(text);
 	}
 
+	/**
+	 * Searches for a given text in the visible text of the page, matched
+	 * according to the given mode. The text of the page is kept in the
+	 * browser while polling and only transferred again, if it has changed.
+	 *
+	 * @param text
+	 *            the text or regular expression to be searched for
+	 * @param matchMode
+	 *            'contains', 'regex', 'whitespace', 'ignorecase' or
+	 *            'normalized' (see {@link TextMatchMode})
+	 * @return {@code true} if the {@code text} matches the text of the page,
+	 *         {@code false} otherwise
+	 * @throws StopTestException
+	 *             if the match mode or the regular expression is invalid
+	 */
+	public boolean checkTextMatchesOnPage(final String text, String matchMode) throws StopTestException {
+		final TextMatchMode mode = TextMatchMode.fromString(matchMode);
+		final PageTextSnapshot snapshot = new PageTextSnapshot(getWebDriver());
+
+		waitForPage();
+		int interval = (int) Math.floor(Math.sqrt(getTimeout()));
+		Wait<WebDriver> wait = new FluentWait<WebDriver>(getWebDriver()).withTimeout(getTimeout(), TimeUnit.SECONDS)
+				.pollingEvery(interval, TimeUnit.SECONDS)
+				.ignoring(NoSuchElementException.class, StaleElementReferenceException.class);
+		try {
+			return wait.until(new ExpectedCondition<Boolean>() {
+
+				@Override
+				public Boolean apply(WebDriver driver) {
+					return snapshot.refresh() && TextMatcher.matches(snapshot.getText(), text, mode);
+				}
+			});
+		} catch (TimeoutException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Searches for a given text in the page and in all of its same-origin
+	 * frames (recursively), matched according to the given mode.
+	 *
+	 * @param text
+	 *            the text or regular expression to be searched for
+	 * @param matchMode
+	 *            'contains', 'regex', 'whitespace', 'ignorecase' or
+	 *            'normalized' (see {@link TextMatchMode})
+	 * @return {@code true} if the {@code text} is found in the page or one of
+	 *         its frames, {@code false} otherwise
+	 * @throws StopTestException
+	 *             if the match mode or the regular expression is invalid
+	 */
+	public boolean checkTextIsPresentInFrames(String text, String matchMode) throws StopTestException {
+		return waitForFramePathOfText(text, TextMatchMode.fromString(matchMode)) != null;
+	}
+
+	/**
+	 * Searches for a given text in the page and in all of its same-origin
+	 * frames (recursively) and returns the path of the frame containing the
+	 * text. The page itself has the path '/', frames are named by their name,
+	 * id or index, e.g. '/content/details'.
+	 *
+	 * @param text
+	 *            the text or regular expression to be searched for
+	 * @param matchMode
+	 *            'contains', 'regex', 'whitespace', 'ignorecase' or
+	 *            'normalized' (see {@link TextMatchMode})
+	 * @return the path of the frame containing the {@code text}
+	 * @throws StopTestException
+	 *             if the text is not found, the match mode or the regular
+	 *             expression is invalid
+	 */
+	public String readFramePathOfText(String text, String matchMode) throws StopTestException {
+		TextMatchMode mode = TextMatchMode.fromString(matchMode);
+		String path = waitForFramePathOfText(text, mode);
+		if (path == null) {
+			throw new StopTestException("The specified text \"" + text + "\" could not be found in any frame ("
+					+ mode + ")!");
+		}
+		return path;
+	}
+
+	/**
+	 * Waits until the text is found in the page or one of its frames.
+	 *
+	 * @param text
+	 *            the text or regular expression to be searched for
+	 * @param mode
+	 *            how to match the {@code text}
+	 * @return the path of the frame containing the {@code text} or
+	 *         {@code null} if a timeout occurred
+	 * @throws StopTestException
+	 *             if the regular expression is invalid
+	 */
+	private String waitForFramePathOfText(final String text, final TextMatchMode mode) throws StopTestException {
+		waitForPage();
+		int interval = (int) Math.floor(Math.sqrt(getTimeout()));
+		Wait<WebDriver> wait = new FluentWait<WebDriver>(getWebDriver()).withTimeout(getTimeout(), TimeUnit.SECONDS)
+				.pollingEvery(interval, TimeUnit.SECONDS)
+				.ignoring(NoSuchElementException.class, StaleElementReferenceException.class);
+		try {
+			return wait.until(new ExpectedCondition<String>() {
+
+				@Override
+				public String apply(WebDriver driver) {
+					return FrameTextSearch.findFramePath(driver, text, mode);
+				}
+			});
+		} catch (TimeoutException e) {
+			return null;
+		}
+	}
+
 	/**
 	 * Searches for a given text on the available web element.
 	 * 
@@ -849,6 +1387,54 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 		return checkTextIsNotPresentOnElement(text, elementListKey, new String[] {});
 	}
 
+	/**
+	 * Searches for a given text on the available web element, matched
+	 * according to the given mode.
+	 *
+	 * @param text
+	 *            the text or regular expression to be searched for
+	 * @param matchMode
+	 *            'contains', 'regex', 'whitespace', 'ignorecase' or
+	 *            'normalized' (see {@link TextMatchMode})
+	 * @param elementListKey
+	 *            key in the element list to find the technical locator
+	 * @param replaceArgs
+	 *            values to replace the place holders in the element list entry
+	 * @return {@code true} if the {@code text} matches the text of the web
+	 *         element, {@code false} otherwise
+	 * @throws StopTestException
+	 *             if element not available (hidden, not present), a timeout
+	 *             occurred or the match mode or regular expression is invalid
+	 */
+	public boolean checkTextMatchesOnElement(String text, String matchMode, String elementListKey,
+			String... replaceArgs) throws StopTestException {
+		TextMatchMode mode = TextMatchMode.fromString(matchMode);
+		WebElement element = findAvailableWebElement(elementListKey, replaceArgs);
+		return TextMatcher.matches(element.getText(), text, mode);
+	}
+
+	/**
+	 * Searches for a given text on the available web element, matched
+	 * according to the given mode.
+	 *
+	 * @param text
+	 *            the text or regular expression to be searched for
+	 * @param matchMode
+	 *            'contains', 'regex', 'whitespace', 'ignorecase' or
+	 *            'normalized' (see {@link TextMatchMode})
+	 * @param elementListKey
+	 *            key in the element list to find the technical locator
+	 * @return {@code true} if the {@code text} matches the text of the web
+	 *         element, {@code false} otherwise
+	 * @throws StopTestException
+	 *             if element not available (hidden, not present), a timeout
+	 *             occurred or the match mode or regular expression is invalid
+	 */
+	public boolean checkTextMatchesOnElement(String text, String matchMode, String elementListKey)
+			throws StopTestException {
+		return checkTextMatchesOnElement(text, matchMode, elementListKey, new String[] {});
+	}
+
 	/**
 	 * Clears a element (e.g. an input field or text area).
 	 * 
@@ -927,6 +1513,112 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 		return readAttributeFromElement(attribute, elementListKey, new String[] {});
 	}
 
+	/**
+	 * Waits until the inner text of the web element changes and returns the
+	 * new text. The change is observed within the browser, so there is only
+	 * one request to the browser, until the text changes or a timeout occurs.
+	 * The text at the time this step is executed is taken as the original
+	 * text.
+	 *
+	 * @param elementListKey
+	 *            key in the element list to find the technical locator
+	 * @param replaceArgs
+	 *            values to replace the place holders in the element list entry
+	 * @return the changed text of the web element
+	 * @throws StopTestException
+	 *             if element not available (hidden, not present) or a timeout
+	 *             occurred
+	 */
+	public String waitForTextChange(String elementListKey, String... replaceArgs) throws StopTestException {
+		return waitForChange("text", elementListKey, replaceArgs);
+	}
+
+	/**
+	 * Waits until the inner text of the web element changes and returns the
+	 * new text. The change is observed within the browser, so there is only
+	 * one request to the browser, until the text changes or a timeout occurs.
+	 * The text at the time this step is executed is taken as the original
+	 * text.
+	 *
+	 * @param elementListKey
+	 *            key in the element list to find the technical locator
+	 * @return the changed text of the web element
+	 * @throws StopTestException
+	 *             if element not available (hidden, not present) or a timeout
+	 *             occurred
+	 */
+	public String waitForTextChange(String elementListKey) throws StopTestException {
+		return waitForTextChange(elementListKey, new String[] {});
+	}
+
+	/**
+	 * Waits until the value of the web element (e.g. an input field) changes
+	 * and returns the new value. The change is observed within the browser, so
+	 * there is only one request to the browser, until the value changes or a
+	 * timeout occurs. The value at the time this step is executed is taken as
+	 * the original value.
+	 *
+	 * @param elementListKey
+	 *            key in the element list to find the technical locator
+	 * @param replaceArgs
+	 *            values to replace the place holders in the element list entry
+	 * @return the changed value of the web element
+	 * @throws StopTestException
+	 *             if element not available (hidden, not present) or a timeout
+	 *             occurred
+	 */
+	public String waitForValueChange(String elementListKey, String... replaceArgs) throws StopTestException {
+		return waitForChange("value", elementListKey, replaceArgs);
+	}
+
+	/**
+	 * Waits until the value of the web element (e.g. an input field) changes
+	 * and returns the new value. The change is observed within the browser, so
+	 * there is only one request to the browser, until the value changes or a
+	 * timeout occurs. The value at the time this step is executed is taken as
+	 * the original value.
+	 *
+	 * @param elementListKey
+	 *            key in the element list to find the technical locator
+	 * @return the changed value of the web element
+	 * @throws StopTestException
+	 *             if element not available (hidden, not present) or a timeout
+	 *             occurred
+	 */
+	public String waitForValueChange(String elementListKey) throws StopTestException {
+		return waitForValueChange(elementListKey, new String[] {});
+	}
+
+	/**
+	 * Waits until the text or value of the web element changes.
+	 *
+	 * @param property
+	 *            'text' or 'value'
+	 * @param elementListKey
+	 *            key in the element list to find the technical locator
+	 * @param replaceArgs
+	 *            values to replace the place holders in the element list entry
+	 * @return the changed text or value
+	 * @throws StopTestException
+	 *             if element not available (hidden, not present) or a timeout
+	 *             occurred
+	 */
+	private String waitForChange(String property, String elementListKey, String... replaceArgs)
+			throws StopTestException {
+		WebElement element = findAvailableWebElement(elementListKey, replaceArgs);
+		try {
+			Object result = ((JavascriptExecutor) getWebDriver()).executeAsyncScript(BrowserScripts.WAIT_FOR_CHANGE,
+					element, property, getTimeout() * 1000L);
+			if (result == null) {
+				return "";
+			}
+			return result.toString();
+		} catch (TimeoutException e) {
+			throw new StopTestException("The " + property + " of the element '" + createBy(elementListKey, replaceArgs)
+					+ "' did not change within " + getTimeout() + " seconds!");
+		}
+	}
+
 	/**
 	 * Finds and returns all web element in the DOM matching the technical
 	 * locator. This does not necessarily mean that the elements are visible.
@@ -943,8 +1635,8 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 	 *             if a timeout occurred while finding the web elements
 	 */
 	protected List<WebElement> findWebElements(String elementListKey, String... replaceArgs) throws StopTestException {
-		int interval = (int) Math.floor(Math.sqrt(timeout));
-		Wait<WebDriver> wait = new FluentWait<WebDriver>(webDriver).withTimeout(timeout, TimeUnit.SECONDS)
+		int interval = (int) Math.floor(Math.sqrt(getTimeout()));
+		Wait<WebDriver> wait = new FluentWait<WebDriver>(getWebDriver()).withTimeout(getTimeout(), TimeUnit.SECONDS)
 				.pollingEvery(interval, TimeUnit.SECONDS)
 				.ignoring(NoSuchElementException.class, StaleElementReferenceException.class);
 		try {
@@ -955,9 +1647,23 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 		}
 	}
 
+	/**
+	 * Executes a script of the {@link BrowserScripts} in the current page.
+	 * 
+	 * @param script
+	 *            the script
+	 * @param args
+	 *            the arguments of the script, e.g. web elements
+	 * @return the result of the script
+	 */
+	protected Object executeScript(String script, Object... args) {
+		return ((JavascriptExecutor) getWebDriver()).executeScript(script, args);
+	}
+
 	/**
 	 * Finds and returns a web element displayed on the page. Always returns an
-	 * element or an exception.
+	 * element or an exception. The visibility of the found elements is checked
+	 * in the browser at once (see {@link VisibleElements}).
 	 * 
 	 * @param elementListKey
 	 *            key in the element list to find the technical locator
@@ -971,11 +1677,9 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 	protected WebElement findAvailableWebElement(String elementListKey, String... replaceArgs)
 			throws StopTestException {
 		List<WebElement> elements = findWebElements(elementListKey, replaceArgs);
-
-		for (WebElement webElement : elements) {
-			if (webElement != null && webElement.isDisplayed()) {
-				return webElement;
-			}
+		WebElement webElement = VisibleElements.getFirst(getWebDriver(), elements);
+		if (webElement != null) {
+			return webElement;
 		}
 
 		throw new StopTestException("The specified Gui-Element for the Key '" + createBy(elementListKey, replaceArgs)
@@ -983,8 +1687,10 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 	}
 
 	/**
-	 * Finds and returns a list of web element displayed on the page. If non
-	 * matching element, an empty list is returned.
+	 * Finds and returns a list of web element displayed on the page. Waits
+	 * until at least one of the matching elements is displayed, hidden ones are
+	 * left out. The visibility is checked in the browser at once (see
+	 * {@link VisibleElements}).
 	 * 
 	 * @param elementListKey
 	 *            key in the element list to find the technical locator
@@ -996,13 +1702,23 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 	 */
 	protected List<WebElement> findAllAvailableWebElements(String elementListKey, String... replaceArgs)
 			throws StopTestException {
-		int interval = (int) Math.floor(Math.sqrt(timeout));
-		Wait<WebDriver> wait = new FluentWait<WebDriver>(webDriver).withTimeout(timeout, TimeUnit.SECONDS)
+		int interval = (int) Math.floor(Math.sqrt(getTimeout()));
+		Wait<WebDriver> wait = new FluentWait<WebDriver>(getWebDriver()).withTimeout(getTimeout(), TimeUnit.SECONDS)
 				.pollingEvery(interval, TimeUnit.SECONDS)
 				.ignoring(NoSuchElementException.class, StaleElementReferenceException.class);
+		final By by = createBy(elementListKey, replaceArgs);
 		try {
-			return wait
-					.until(ExpectedConditions.visibilityOfAllElementsLocatedBy(createBy(elementListKey, replaceArgs)));
+			return wait.until(new ExpectedCondition<List<WebElement>>() {
+
+				@Override
+				public List<WebElement> apply(WebDriver driver) {
+					List<WebElement> visible = VisibleElements.getAll(driver, driver.findElements(by));
+					if (visible.isEmpty()) {
+						return null;
+					}
+					return visible;
+				}
+			});
 		} catch (TimeoutException e) {
 			throw new StopTestException(
 					"There was a timeout while finding the element '" + createBy(elementListKey, replaceArgs) + "'!");
@@ -1023,7 +1739,7 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 			if (elementListKey == null) {
 				throw new ElementKeyNotFoundException("Null is not a valid key!");
 			}
-			return elementListService.getValue(elementListKey);
+			return getElementListService().getValue(elementListKey);
 		} catch (ElementKeyNotFoundException e) {
 			throw new StopTestException(
 					"The specified Key '" + elementListKey + "' could not be found in element list!");
@@ -1047,7 +1763,7 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 
 		try {
 			Keys seleniumKey = Keys.valueOf(specialKey.trim().toUpperCase());
-			new Actions(webDriver).sendKeys(seleniumKey).build().perform();
+			new Actions(getWebDriver()).sendKeys(seleniumKey).build().perform();
 			return true;
 		} catch (IllegalArgumentException e) {
 			throw new StopTestException("The specified key '" + specialKey.trim().toUpperCase()
@@ -1197,26 +1913,61 @@ public abstract class AbstractWebFixture implements StoppableFixture, Fixture {
 
 	@Override
 	public void tearDown() {
-		closeBrowser();
+		try {
+			closeBrowser();
+		} finally {
+			// the session of the thread ends with the test, pooled threads
+			// (e.g. of a test runner) must not keep it
+			sessions.remove();
+		}
+		try {
+			TestDurationHistory.getInstance().save();
+		} catch (StopTestException e) {
+			logger.warn(e.getMessage());
+		}
 	}
 
 	@Override
 	public String getTestName() {
-		return null;
+		return getSession().getTestName();
 	}
 
 	@Override
 	public void postInvoke(Method arg0, Object arg1, Object... arg2)
 			throws InvocationTargetException, IllegalAccessException {
+		// records the wall time of the test in the TestDurationHistory
+		getSession().stepFinished();
+		// waits for the other browsers of a fan-out, their failures (exception
+		// or false) do not fail the step, they are logged and counted in the
+		// report of readFanOutReport
+		BrowserFanOut fanOut = getActiveFanOut();
+		if (fanOut != null && !fanOut.finish().isEmpty()) {
+			logger.warn("Step '" + arg0.getName() + "' failed in other browsers, see the fan-out report.");
+		}
 	}
 
 	@Override
-	public void preInvoke(Method arg0, Object arg1, Object... arg2)
+	public void preInvoke(final Method arg0, final Object arg1, final Object... arg2)
 			throws InvocationTargetException, IllegalAccessException {
+		// the first step starts the wall time of the test
+		getSession().stepStarted();
+		// runs the step in the other browsers of a fan-out, too
+		BrowserFanOut fanOut = getActiveFanOut();
+		if (fanOut != null && arg0 != null && !FAN_OUT_STEPS.contains(arg0.getName())) {
+			fanOut.begin(arg0.getName(), new BrowserFanOut.BrowserTask() {
+
+				@Override
+				public Object run(String browser) throws InvocationTargetException, IllegalAccessException {
+					return arg0.invoke(arg1, arg2);
+				}
+			});
+		}
 	}
 
 	@Override
 	public void setTestName(String arg0) {
+		getSession().setTestName(arg0);
+		recycleBrowserIfDegraded();
 	}
 
 }
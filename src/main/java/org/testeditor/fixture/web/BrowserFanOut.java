@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Runs each step of a scenario in several browsers at once. The first
+ * browser is driven by the calling thread as usual. Each other browser (the
+ * mirrors) has a thread of its own, which keeps its own {@link WebSession}
+ * and runs the same steps in parallel. So a run in three browsers takes about
+ * as long as the slowest browser, not the sum of all three.
+ * <p>
+ * A step is started on the mirrors with {@link #begin(String, BrowserTask)}
+ * before the calling thread runs it in the first browser. When that is done,
+ * {@link #finish()} waits for the mirrors. A step fails in a mirror, if it
+ * throws an exception or returns {@code false} (like the check steps). A
+ * failed step in a mirror does not fail or stop the scenario, the outcome of
+ * the step in FitNesse is the one of the first browser. The failure is only
+ * logged and counted in the report of the browser (see {@link #getReport()})
+ * together with the run time of the browser.
+ */
+public final class BrowserFanOut {
+
+	private static final Logger LOGGER = Logger.getLogger(BrowserFanOut.class);
+
+	private final String primary;
+
+	private final Map<String, ExecutorService> mirrors = new LinkedHashMap<String, ExecutorService>();
+
+	private final Map<String, Tally> tallies = new LinkedHashMap<String, Tally>();
+
+	private final Map<String, Future<Long>> pending = new LinkedHashMap<String, Future<Long>>();
+
+	private String pendingStep;
+
+	private long pendingStart;
+
+	private boolean closed;
+
+	/**
+	 * Task, which runs in the thread of a browser.
+	 */
+	public interface BrowserTask {
+
+		/**
+		 * @param browser
+		 *            the name of the browser
+		 * @return the result of the step, {@link Boolean#FALSE} if the step
+		 *         failed
+		 * @throws Exception
+		 *             if the task failed
+		 */
+		Object run(String browser) throws Exception;
+	}
+
+	/**
+	 * Creates the threads of the mirrors.
+	 *
+	 * @param browsers
+	 *            the names of the browsers, the first one is driven by the
+	 *            calling thread
+	 */
+	public BrowserFanOut(List<String> browsers) {
+		primary = browsers.get(0);
+		tallies.put(primary, new Tally());
+		for (String browser : browsers.subList(1, browsers.size())) {
+			mirrors.put(browser, Executors.newSingleThreadExecutor(new DaemonThreadFactory("fan-out-" + browser)));
+			tallies.put(browser, new Tally());
+		}
+	}
+
+	/**
+	 * @return the names of all browsers, the first one is driven by the
+	 *         calling thread
+	 */
+	public List<String> getBrowsers() {
+		return new ArrayList<String>(tallies.keySet());
+	}
+
+	/**
+	 * Starts a step on the mirrors. If the previous step was not finished,
+	 * it failed in the first browser.
+	 *
+	 * @param step
+	 *            the name of the step for the report
+	 * @param task
+	 *            runs the step in a mirror
+	 */
+	public void begin(String step, final BrowserTask task) {
+		if (pendingStep != null) {
+			tallies.get(primary).add(System.currentTimeMillis() - pendingStart, pendingStep + " failed");
+			join();
+		}
+		pendingStep = step;
+		pendingStart = System.currentTimeMillis();
+		for (Map.Entry<String, ExecutorService> mirror : mirrors.entrySet()) {
+			final String browser = mirror.getKey();
+			pending.put(browser, mirror.getValue().submit(new Callable<Long>() {
+
+				@Override
+				public Long call() throws Exception {
+					long start = System.currentTimeMillis();
+					if (Boolean.FALSE.equals(task.run(browser))) {
+						throw new IllegalStateException("returned false");
+					}
+					return System.currentTimeMillis() - start;
+				}
+			}));
+		}
+	}
+
+	/**
+	 * Finishes the step, which succeeded in the first browser, and waits for
+	 * the mirrors.
+	 *
+	 * @return the failures of the mirrors, empty if the step succeeded in all
+	 *         browsers
+	 */
+	public List<String> finish() {
+		if (pendingStep == null) {
+			return new ArrayList<String>();
+		}
+		tallies.get(primary).add(System.currentTimeMillis() - pendingStart, null);
+		return join();
+	}
+
+	/**
+	 * Waits for the pending step of the mirrors and records the outcomes.
+	 *
+	 * @return the failures of the mirrors
+	 */
+	private List<String> join() {
+		List<String> failures = new ArrayList<String>();
+		for (Map.Entry<String, Future<Long>> entry : pending.entrySet()) {
+			String browser = entry.getKey();
+			String failure = null;
+			long millis;
+			try {
+				millis = entry.getValue().get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				failure = pendingStep + " interrupted";
+				millis = System.currentTimeMillis() - pendingStart;
+			} catch (ExecutionException e) {
+				failure = pendingStep + " failed: " + getMessage(e.getCause());
+				millis = System.currentTimeMillis() - pendingStart;
+			}
+			tallies.get(browser).add(millis, failure);
+			if (failure != null) {
+				LOGGER.warn(browser + ": " + failure);
+				failures.add(browser + ": " + failure);
+			}
+		}
+		pending.clear();
+		pendingStep = null;
+		return failures;
+	}
+
+	/**
+	 * Stops the threads of the mirrors. The browsers of the mirrors must be
+	 * closed before, e.g. by the last step.
+	 */
+	public void close() {
+		closed = true;
+		for (ExecutorService executor : mirrors.values()) {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * @return {@code true}, if the threads of the mirrors are stopped
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Returns the outcomes of the browsers, one line each, e.g. 'chrome: 12
+	 * steps, 1 failed, 3400 ms (+500 ms), first failure: click failed: ...'.
+	 * The difference is the run time above the fastest browser.
+	 *
+	 * @return the report
+	 */
+	public String getReport() {
+		long fastest = Long.MAX_VALUE;
+		for (Tally tally : tallies.values()) {
+			fastest = Math.min(fastest, tally.millis);
+		}
+		StringBuilder report = new StringBuilder();
+		for (Map.Entry<String, Tally> entry : tallies.entrySet()) {
+			Tally tally = entry.getValue();
+			if (report.length() > 0) {
+				report.append('\n');
+			}
+			report.append(entry.getKey()).append(": ").append(tally.steps).append(" steps, ").append(tally.failed)
+					.append(" failed, ").append(tally.millis).append(" ms (+").append(tally.millis - fastest)
+					.append(" ms)");
+			if (tally.firstFailure != null) {
+				report.append(", first failure: ").append(tally.firstFailure);
+			}
+		}
+		return report.toString();
+	}
+
+	/**
+	 * @param browser
+	 *            the name of the browser
+	 * @return the number of failed steps of the browser
+	 */
+	public int getFailed(String browser) {
+		return tallies.get(browser).failed;
+	}
+
+	/**
+	 * @param cause
+	 *            the failure of a step
+	 * @return the message of the failure, reflective invocations unwrapped
+	 */
+	private static String getMessage(Throwable cause) {
+		Throwable failure = cause;
+		if (failure instanceof InvocationTargetException && failure.getCause() != null) {
+			failure = failure.getCause();
+		}
+		return String.valueOf(failure.getMessage());
+	}
+
+	/**
+	 * Outcomes of the steps of one browser.
+	 */
+	private static final class Tally {
+
+		private int steps;
+		private int failed;
+		private long millis;
+		private String firstFailure;
+
+		/**
+		 * @param duration
+		 *            the run time of the step in milliseconds
+		 * @param failure
+		 *            the failure or {@code null}, if the step succeeded
+		 */
+		private void add(long duration, String failure) {
+			steps++;
+			millis += duration;
+			if (failure != null) {
+				failed++;
+				if (firstFailure == null) {
+					firstFailure = failure;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,472 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Watches the health of the browser sessions, so degraded sessions can be
+ * replaced between tests. A session is degraded, if the average latency of
+ * the last wire commands exceeds {@link #getMaxLatency()} milliseconds, if a
+ * command does not return at all within {@link BrowserReaper#getTimeout()}
+ * seconds, or (on Linux) if the resident memory of the browser processes
+ * exceeds {@link #getMaxRss()} megabytes.
+ * <p/>
+ * The latency is measured with a cheap command ({@code getWindowHandle}) at
+ * each check, because the duration of the fixture steps includes their
+ * intended waits. Each launch gets a marker, which is passed to the browser
+ * process (as {@value #MARKER_ARGUMENT} argument for Chrome, as
+ * {@value #MARKER_VARIABLE} environment variable for Firefox). The browser
+ * processes are the processes of the JVM carrying the marker in their command
+ * line or environment and their descendants, so browsers started at the same
+ * time are kept apart.
+ * <p/>
+ * Both limits are disabled by default (0) and can be set with the system
+ * properties {@value #MAX_LATENCY_PROPERTY} and {@value #MAX_RSS_PROPERTY}.
+ */
+public final class BrowserHealthMonitor {
+
+	/** System property for the maximum average command latency (ms). */
+	public static final String MAX_LATENCY_PROPERTY = "testeditor.browserhealth.maxLatency";
+
+	/** System property for the maximum resident memory of a browser (MB). */
+	public static final String MAX_RSS_PROPERTY = "testeditor.browserhealth.maxRss";
+
+	/** Command line argument carrying the marker of a launch (Chrome). */
+	public static final String MARKER_ARGUMENT = "--testeditor-browser";
+
+	/** Environment variable carrying the marker of a launch (Firefox). */
+	public static final String MARKER_VARIABLE = "TESTEDITOR_BROWSER";
+
+	private static final Logger LOGGER = Logger.getLogger(BrowserHealthMonitor.class);
+
+	private static final int SAMPLES = 5;
+
+	private static final File PROC = new File("/proc");
+
+	private static final BrowserHealthMonitor INSTANCE = new BrowserHealthMonitor(Long.getLong(MAX_LATENCY_PROPERTY,
+			0), Long.getLong(MAX_RSS_PROPERTY, 0));
+
+	private static final ExecutorService PROBES = Executors.newCachedThreadPool(new DaemonThreadFactory(
+			"browser-health-probe"));
+
+	private final Map<WebDriver, Session> sessions = new WeakHashMap<WebDriver, Session>();
+	private final AtomicInteger launches = new AtomicInteger();
+	private volatile long maxLatency;
+	private volatile long maxRss;
+
+	/**
+	 * Creates a monitor.
+	 *
+	 * @param maxLatency
+	 *            the maximum average latency in milliseconds, 0 to disable
+	 * @param maxRss
+	 *            the maximum resident memory in megabytes, 0 to disable
+	 */
+	BrowserHealthMonitor(long maxLatency, long maxRss) {
+		this.maxLatency = Math.max(0, maxLatency);
+		this.maxRss = Math.max(0, maxRss);
+	}
+
+	/**
+	 * @return the JVM wide health monitor
+	 */
+	public static BrowserHealthMonitor getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * @return the maximum average latency in milliseconds, 0 if disabled
+	 */
+	public long getMaxLatency() {
+		return maxLatency;
+	}
+
+	/**
+	 * @param maxLatency
+	 *            the maximum average latency in milliseconds, 0 to disable
+	 */
+	public void setMaxLatency(long maxLatency) {
+		this.maxLatency = Math.max(0, maxLatency);
+	}
+
+	/**
+	 * @return the maximum resident memory in megabytes, 0 if disabled
+	 */
+	public long getMaxRss() {
+		return maxRss;
+	}
+
+	/**
+	 * @param maxRss
+	 *            the maximum resident memory in megabytes, 0 to disable
+	 */
+	public void setMaxRss(long maxRss) {
+		this.maxRss = Math.max(0, maxRss);
+	}
+
+	/**
+	 * Called before a browser is started.
+	 *
+	 * @return the marker to be passed to the browser process and to
+	 *         {@link #endLaunch(WebDriver, String)}, {@code null} if the
+	 *         memory is not monitored
+	 */
+	public String beginLaunch() {
+		if (maxRss == 0 || !PROC.isDirectory()) {
+			return null;
+		}
+		return getJvmPid() + "-" + launches.incrementAndGet();
+	}
+
+	/**
+	 * Called after a browser is started. The processes carrying the marker
+	 * are assigned to the browser.
+	 *
+	 * @param driver
+	 *            the started browser or {@code null} if the start failed
+	 * @param marker
+	 *            the result of {@link #beginLaunch()}
+	 */
+	public void endLaunch(WebDriver driver, String marker) {
+		if (driver == null) {
+			return;
+		}
+
+		Set<Integer> roots = new HashSet<Integer>();
+		if (marker != null) {
+			Map<Integer, Integer> parents = readParents();
+			Set<Integer> marked = new HashSet<Integer>();
+			for (Integer pid : findDescendants(parents, getJvmPid())) {
+				if (isMarked(pid, marker)) {
+					marked.add(pid);
+				}
+			}
+			for (Integer pid : marked) {
+				if (!marked.contains(parents.get(pid))) {
+					roots.add(pid);
+				}
+			}
+		}
+		synchronized (sessions) {
+			sessions.put(driver, new Session(roots));
+		}
+	}
+
+	/**
+	 * Checks the health of the browser. The check sends one command to the
+	 * browser and, if the memory limit is set, reads the memory of the
+	 * browser processes. Nothing is done if both limits are disabled.
+	 *
+	 * @param driver
+	 *            the browser
+	 * @return {@code true} if the browser should be replaced
+	 */
+	public boolean isDegraded(WebDriver driver) {
+		long latencyLimit = maxLatency;
+		long rssLimit = maxRss;
+		if (latencyLimit == 0 && rssLimit == 0) {
+			return false;
+		}
+
+		Session session = getSession(driver);
+		if (latencyLimit > 0) {
+			long latency = probe(driver);
+			if (latency < 0) {
+				LOGGER.warn("Browser did not respond within " + BrowserReaper.getTimeout() + " seconds.");
+				return true;
+			}
+			long average = session.addLatency(latency);
+			if (average > latencyLimit) {
+				LOGGER.info("Browser is degraded, average command latency " + average + " ms.");
+				return true;
+			}
+		}
+		if (rssLimit > 0) {
+			long rss = getRss(driver);
+			if (rss > rssLimit * 1024) {
+				LOGGER.info("Browser is degraded, resident memory " + rss / 1024 + " MB.");
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param driver
+	 *            the browser
+	 * @return the resident memory of the browser processes in kilobytes, 0 if
+	 *         the processes are unknown
+	 */
+	long getRss(WebDriver driver) {
+		Set<Integer> roots = getSession(driver).roots;
+		if (roots.isEmpty()) {
+			return 0;
+		}
+		Map<Integer, Integer> parents = readParents();
+		long rss = 0;
+		for (Integer root : roots) {
+			if (parents.containsKey(root)) {
+				rss += readRss(root);
+				for (Integer pid : findDescendants(parents, root)) {
+					rss += readRss(pid);
+				}
+			}
+		}
+		return rss;
+	}
+
+	/**
+	 * Measures the latency of one command.
+	 *
+	 * @param driver
+	 *            the browser
+	 * @return the latency in milliseconds, -1 if the browser did not respond
+	 *         in time
+	 */
+	private long probe(final WebDriver driver) {
+		long start = System.currentTimeMillis();
+		Future<?> command = PROBES.submit(new Runnable() {
+
+			@Override
+			public void run() {
+				driver.getWindowHandle();
+			}
+		});
+		try {
+			command.get(BrowserReaper.getTimeout(), TimeUnit.SECONDS);
+		} catch (TimeoutException e) {
+			command.cancel(true);
+			return -1;
+		} catch (ExecutionException e) {
+			LOGGER.debug("Browser health probe failed.", e.getCause());
+			return -1;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return System.currentTimeMillis() - start;
+	}
+
+	/**
+	 * @param driver
+	 *            the browser
+	 * @return the session of the browser, an empty one for unknown browsers
+	 */
+	private Session getSession(WebDriver driver) {
+		synchronized (sessions) {
+			Session session = sessions.get(driver);
+			if (session == null) {
+				session = new Session(Collections.<Integer> emptySet());
+				sessions.put(driver, session);
+			}
+			return session;
+		}
+	}
+
+	/**
+	 * @return the process id of the JVM, -1 if unknown
+	 */
+	private static int getJvmPid() {
+		try {
+			return Integer.parseInt(new File(PROC, "self").getCanonicalFile().getName());
+		} catch (IOException | NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @return the parent process ids by process id, empty if '/proc' is not
+	 *         available
+	 */
+	private static Map<Integer, Integer> readParents() {
+		Map<Integer, Integer> parents = new HashMap<Integer, Integer>();
+		File[] processes = PROC.listFiles();
+		if (processes == null) {
+			return parents;
+		}
+		for (File process : processes) {
+			String stat = readLine(new File(process, "stat"), null);
+			if (stat != null && stat.lastIndexOf(')') > 0) {
+				String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+				try {
+					parents.put(Integer.valueOf(process.getName()), Integer.valueOf(fields[1]));
+					// CHECKSTYLE:OFF
+				} catch (RuntimeException e) {
+					// CHECKSTYLE:ON
+					// not a process directory
+				}
+			}
+		}
+		return parents;
+	}
+
+	/**
+	 * @param parents
+	 *            the parent process ids by process id
+	 * @param pid
+	 *            the process id
+	 * @return all descendants of the process
+	 */
+	private static Set<Integer> findDescendants(Map<Integer, Integer> parents, int pid) {
+		Set<Integer> descendants = new HashSet<Integer>();
+		List<Integer> open = new ArrayList<Integer>();
+		open.add(pid);
+		while (!open.isEmpty()) {
+			Integer parent = open.remove(open.size() - 1);
+			for (Map.Entry<Integer, Integer> entry : parents.entrySet()) {
+				if (parent.equals(entry.getValue()) && descendants.add(entry.getKey())) {
+					open.add(entry.getKey());
+				}
+			}
+		}
+		return descendants;
+	}
+
+	/**
+	 * @param pid
+	 *            the process id
+	 * @param marker
+	 *            the marker of a launch
+	 * @return {@code true} if the command line or the environment of the
+	 *         process carries the marker
+	 */
+	private static boolean isMarked(int pid, String marker) {
+		File process = new File(PROC, String.valueOf(pid));
+		return containsEntry(new File(process, "cmdline"), MARKER_ARGUMENT + "=" + marker)
+				|| containsEntry(new File(process, "environ"), MARKER_VARIABLE + "=" + marker);
+	}
+
+	/**
+	 * @param file
+	 *            a file with entries separated by '\0' (e.g. 'cmdline')
+	 * @param entry
+	 *            the entry
+	 * @return {@code true} if the file contains the entry, {@code false} if
+	 *         not or the file could not be read (e.g. the process has ended)
+	 */
+	private static boolean containsEntry(File file, String entry) {
+		// CHECKSTYLE:OFF
+		try (Reader reader = new InputStreamReader(new FileInputStream(file), Charset.forName("UTF-8"))) {
+			// CHECKSTYLE:ON
+			StringBuilder content = new StringBuilder("\0");
+			char[] buffer = new char[4096];
+			int read = reader.read(buffer);
+			while (read >= 0) {
+				content.append(buffer, 0, read);
+				read = reader.read(buffer);
+			}
+			return content.append('\0').toString().contains("\0" + entry + "\0");
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @param pid
+	 *            the process id
+	 * @return the resident memory of the process in kilobytes, 0 if unknown
+	 */
+	private static long readRss(int pid) {
+		String line = readLine(new File(new File(PROC, String.valueOf(pid)), "status"), "VmRSS:");
+		if (line == null) {
+			return 0;
+		}
+		try {
+			return Long.parseLong(line.substring("VmRSS:".length()).replace("kB", "").trim());
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * @param file
+	 *            the file
+	 * @param prefix
+	 *            prefix of the line or {@code null} for the first line
+	 * @return the line or {@code null} if not found or the file could not be
+	 *         read (e.g. the process has ended)
+	 */
+	private static String readLine(File file, String prefix) {
+		// CHECKSTYLE:OFF
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+				Charset.forName("UTF-8")))) {
+			// CHECKSTYLE:ON
+			String line = reader.readLine();
+			while (line != null && prefix != null && !line.startsWith(prefix)) {
+				line = reader.readLine();
+			}
+			return line;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Health data of one browser session.
+	 */
+	private static final class Session {
+
+		private final Set<Integer> roots;
+
+		private final LinkedList<Long> latencies = new LinkedList<Long>();
+
+		/**
+		 * @param roots
+		 *            the root processes of the browser
+		 */
+		private Session(Set<Integer> roots) {
+			this.roots = roots;
+		}
+
+		/**
+		 * @param latency
+		 *            the latency of the last command in milliseconds
+		 * @return the average latency of the last commands
+		 */
+		private synchronized long addLatency(long latency) {
+			latencies.addLast(latency);
+			if (latencies.size() > SAMPLES) {
+				latencies.removeFirst();
+			}
+			long sum = 0;
+			for (Long value : latencies) {
+				sum += value;
+			}
+			return sum / latencies.size();
+		}
+	}
+}
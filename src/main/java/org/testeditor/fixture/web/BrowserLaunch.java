@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.WebDriver;
+import org.testeditor.fixture.core.exceptions.StopTestException;
+
+/**
+ * Browser launched in the background. With a lazy launch, {@code openBrowser}
+ * returns immediately and the test continues with its setup (e.g. loading the
+ * element list), while the browser starts. The first step, which needs the
+ * browser, waits for the launch with {@link #join()}.
+ * <p>
+ * Lazy launches are enabled with the system property {@value #LAZY_PROPERTY}
+ * or the fixture step {@code setLazyBrowserLaunch}.
+ */
+public final class BrowserLaunch {
+
+	/** System property to launch the browsers in the background. */
+	public static final String LAZY_PROPERTY = "testeditor.browser.lazylaunch";
+
+	private static final Logger LOGGER = Logger.getLogger(BrowserLaunch.class);
+
+	private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new DaemonThreadFactory(
+			"browser-launcher"));
+
+	private final String poolKey;
+
+	private final StartupProfiler profile;
+
+	private final Future<WebDriver> future;
+
+	/**
+	 * Leases the browser from the {@link BrowserPool} in the background.
+	 *
+	 * @param poolKey
+	 *            key of the browser in the pool
+	 * @param factory
+	 *            starts the browser, if the pool has no idle browser
+	 */
+	private BrowserLaunch(final String poolKey, final BrowserPool.DriverFactory factory) {
+		this.poolKey = poolKey;
+		this.profile = StartupProfiler.current();
+		this.future = EXECUTOR.submit(new Callable<WebDriver>() {
+
+			@Override
+			public WebDriver call() {
+				if (profile != null) {
+					profile.attach();
+				}
+				try {
+					long start = StartupProfiler.start();
+					WebDriver driver = BrowserPool.getInstance().lease(poolKey, factory);
+					StartupProfiler.recordPhase(StartupProfiler.LEASE, start);
+					return driver;
+				} finally {
+					if (profile != null) {
+						profile.detach();
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Starts the launch of a browser. The phases of the launch are recorded
+	 * to the {@link StartupProfiler} of the calling thread.
+	 *
+	 * @param poolKey
+	 *            key of the browser in the {@link BrowserPool}
+	 * @param factory
+	 *            starts the browser, if the pool has no idle browser
+	 * @return the launch
+	 */
+	public static BrowserLaunch start(String poolKey, BrowserPool.DriverFactory factory) {
+		return new BrowserLaunch(poolKey, factory);
+	}
+
+	/**
+	 * @return {@code true}, if the browser is started or the launch failed
+	 */
+	public boolean isDone() {
+		return future.isDone();
+	}
+
+	/**
+	 * Waits for the browser.
+	 *
+	 * @return the web driver of the started browser
+	 * @throws StopTestException
+	 *             if the browser could not be started
+	 */
+	public WebDriver join() throws StopTestException {
+		long start = StartupProfiler.start();
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new StopTestException("Interrupted while waiting for the browser.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof StopTestException) {
+				throw (StopTestException) e.getCause();
+			}
+			throw new StopTestException("Browser could not be started: " + e.getCause().getMessage(), e.getCause());
+		} finally {
+			if (profile != null) {
+				profile.addPhase(StartupProfiler.JOIN, start);
+			}
+		}
+	}
+
+	/**
+	 * Returns the browser to the pool or closes it, as soon as it is started,
+	 * without waiting for the launch.
+	 */
+	public void close() {
+		EXECUTOR.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				WebDriver driver;
+				try {
+					driver = future.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				} catch (ExecutionException e) {
+					LOGGER.info("Browser launch failed: " + e.getCause().getMessage());
+					return;
+				}
+				if (!BrowserPool.getInstance().release(poolKey, driver)) {
+					BrowserReaper.reap(driver);
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,630 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * JVM wide pool of started browsers. The fixtures lease a browser on
+ * {@code openBrowser} and return it on {@code closeBrowser}, so the launch of
+ * the browser is not paid for every test. Returned browsers are reset (extra
+ * windows, cookies, storage) and show 'about:blank'. WebDriver deletes only
+ * the cookies of the current page, so the pool keeps the origins of the pages
+ * a leased browser has shown (see {@link #visited(WebDriver, String)} and the
+ * windows open on release) and clears cookies and storage for each of them.
+ * Origins only passed by links between these pages are not known, tests
+ * depending on a clean state there should not use the pool. The pool keeps up to
+ * {@link #getSize()} browsers (idle and leased) per key (e.g. browser name)
+ * and launches the idle ones in the background. Returned browsers are checked
+ * and reset in the background, too.
+ * <p/>
+ * The pool is disabled by default (size 0), i.e. every browser is started
+ * and closed as before. The size can be set with the system property
+ * {@value #SIZE_PROPERTY} or with {@link #setSize(int)}.
+ */
+public final class BrowserPool {
+
+	/** System property for the number of browsers per key. */
+	public static final String SIZE_PROPERTY = "testeditor.browserpool.size";
+
+	/** Clears local and session storage of the current page. */
+	private static final String CLEAR_STORAGE = "try { window.localStorage.clear(); } catch (e) {}"
+			+ "try { window.sessionStorage.clear(); } catch (e) {}";
+
+	private static final Logger LOGGER = Logger.getLogger(BrowserPool.class);
+
+	private static final BrowserPool INSTANCE = new BrowserPool(Integer.getInteger(SIZE_PROPERTY, 0));
+
+	private final Map<String, LinkedList<WebDriver>> idle = new HashMap<String, LinkedList<WebDriver>>();
+	private final Map<String, Integer> launching = new HashMap<String, Integer>();
+	private final Map<WebDriver, String> leased = new HashMap<WebDriver, String>();
+	private final Map<WebDriver, Set<String>> origins = new HashMap<WebDriver, Set<String>>();
+	private final Map<WebDriver, String> returning = new HashMap<WebDriver, String>();
+	private ExecutorService launcher;
+	private boolean shutdownHookRegistered;
+	private int size;
+
+	/**
+	 * Factory to start a new browser.
+	 */
+	public interface DriverFactory {
+
+		/**
+		 * @return a new started web driver
+		 */
+		WebDriver create();
+	}
+
+	/**
+	 * Creates a pool.
+	 *
+	 * @param size
+	 *            the number of browsers per key
+	 */
+	BrowserPool(int size) {
+		this.size = Math.max(0, size);
+	}
+
+	/**
+	 * @return the JVM wide browser pool
+	 */
+	public static BrowserPool getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * @return the number of browsers (idle and leased) kept per key, 0 if the
+	 *         pool is disabled
+	 */
+	public synchronized int getSize() {
+		return size;
+	}
+
+	/**
+	 * Sets the number of browsers (idle and leased) kept per key. 0 disables
+	 * the pool, idle browsers above the new size are closed.
+	 *
+	 * @param size
+	 *            the number of browsers per key
+	 */
+	public void setSize(int size) {
+		List<WebDriver> surplus = new ArrayList<WebDriver>();
+		synchronized (this) {
+			this.size = Math.max(0, size);
+			for (Map.Entry<String, LinkedList<WebDriver>> entry : idle.entrySet()) {
+				LinkedList<WebDriver> drivers = entry.getValue();
+				while (!drivers.isEmpty() && drivers.size() + getLeased(entry.getKey()) > this.size) {
+					surplus.add(drivers.removeLast());
+				}
+			}
+		}
+		for (WebDriver driver : surplus) {
+			quit(driver);
+		}
+	}
+
+	/**
+	 * Leases a browser. If an idle browser is available, it is returned
+	 * immediately. If browsers of the key are being returned, the lease waits
+	 * for them, otherwise a new one is started by the {@code factory}. In
+	 * both cases the pool is refilled in the background, if it holds less
+	 * than {@link #getSize()} browsers for the key.
+	 *
+	 * @param key
+	 *            the key of the browser (e.g. browser name)
+	 * @param factory
+	 *            factory to start a new browser for this key
+	 * @return the leased browser
+	 */
+	public WebDriver lease(String key, DriverFactory factory) {
+		if (getSize() == 0) {
+			return factory.create();
+		}
+
+		awaitReturns(key);
+		WebDriver driver = pollIdle(key);
+		while (driver != null && !isAlive(driver)) {
+			quit(driver);
+			driver = pollIdle(key);
+		}
+
+		if (driver == null) {
+			driver = factory.create();
+		}
+
+		synchronized (this) {
+			leased.put(driver, key);
+			origins.put(driver, new LinkedHashSet<String>());
+			registerShutdownHook();
+		}
+		refill(key, factory);
+		return driver;
+	}
+
+	/**
+	 * Returns a leased browser to the pool. In the background the browser is
+	 * checked, reset and kept as idle browser, if the pool does not already
+	 * hold {@link #getSize()} browsers for the key, otherwise it is closed.
+	 * Degraded browsers (see {@link BrowserHealthMonitor}) are closed.
+	 *
+	 * @param key
+	 *            the key of the browser (e.g. browser name)
+	 * @param driver
+	 *            the leased browser
+	 * @return {@code true} if the pool has taken over the browser,
+	 *         {@code false} if the pool is disabled or the browser was not
+	 *         leased and the caller has to close it
+	 */
+	public boolean release(final String key, final WebDriver driver) {
+		synchronized (this) {
+			if (leased.remove(driver) == null) {
+				return false;
+			}
+			final Set<String> visited = origins.remove(driver);
+			returning.put(driver, key);
+			getLauncher().execute(new Runnable() {
+
+				@Override
+				public void run() {
+					takeBack(key, driver, visited);
+				}
+			});
+		}
+		return true;
+	}
+
+	/**
+	 * Checks the health of a returned browser and resets it. The browser is
+	 * added to the idle browsers of the key, if it is healthy and the pool
+	 * does not already hold {@link #getSize()} browsers for the key, otherwise
+	 * it is closed.
+	 *
+	 * @param key
+	 *            the key of the browser
+	 * @param driver
+	 *            the returned browser
+	 * @param visited
+	 *            the origins shown by the browser
+	 */
+	private void takeBack(String key, WebDriver driver, Set<String> visited) {
+		boolean degraded = BrowserHealthMonitor.getInstance().isDegraded(driver);
+		boolean clean = !degraded && reset(driver, visited);
+
+		synchronized (this) {
+			if (returning.remove(driver) == null) {
+				// closed by shutdown
+				return;
+			}
+			notifyAll();
+			if (clean && launcher != null && getIdle(key).size() + getLeased(key) + getReturning(key) < size) {
+				getIdle(key).addLast(driver);
+				return;
+			}
+		}
+
+		if (degraded) {
+			BrowserReaper.reap(driver);
+		} else {
+			quit(driver);
+		}
+	}
+
+	/**
+	 * Waits until no browser of the key is being returned.
+	 *
+	 * @param key
+	 *            the key of the browser
+	 */
+	synchronized void awaitReturns(String key) {
+		while (getReturning(key) > 0) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Removes a leased browser from the pool without returning it, e.g. to
+	 * replace a degraded browser. The caller has to close it.
+	 *
+	 * @param driver
+	 *            the leased browser
+	 * @return {@code true} if the browser was leased from the pool
+	 */
+	public synchronized boolean discard(WebDriver driver) {
+		origins.remove(driver);
+		return leased.remove(driver) != null;
+	}
+
+	/**
+	 * Notes that a leased browser has shown a page, so cookies and storage of
+	 * its origin are cleared, when the browser is returned.
+	 *
+	 * @param driver
+	 *            the leased browser
+	 * @param url
+	 *            the URL of the page
+	 */
+	public synchronized void visited(WebDriver driver, String url) {
+		Set<String> visited = origins.get(driver);
+		String origin = getOrigin(url);
+		if (visited != null && origin != null) {
+			visited.add(origin);
+		}
+	}
+
+	/**
+	 * Notes that a browser has navigated to a URL. For a leased browser the
+	 * origins of the URL and of the current page (after redirects) are noted,
+	 * other browsers are ignored without asking them for their current page.
+	 *
+	 * @param driver
+	 *            the browser
+	 * @param url
+	 *            the URL navigated to
+	 */
+	public void navigated(WebDriver driver, String url) {
+		if (isLeased(driver)) {
+			visited(driver, url);
+			visited(driver, driver.getCurrentUrl());
+		}
+	}
+
+	/**
+	 * @param driver
+	 *            the browser
+	 * @return {@code true} if the browser is leased from the pool
+	 */
+	private synchronized boolean isLeased(WebDriver driver) {
+		return leased.containsKey(driver);
+	}
+
+	/**
+	 * Starts browsers in the background until the pool holds
+	 * {@link #getSize()} browsers (idle and leased) for the key.
+	 *
+	 * @param key
+	 *            the key of the browser (e.g. browser name)
+	 * @param factory
+	 *            factory to start a new browser for this key
+	 */
+	public void warmUp(String key, DriverFactory factory) {
+		refill(key, factory);
+	}
+
+	/**
+	 * @param key
+	 *            the key of the browser (e.g. browser name)
+	 * @return the number of idle browsers for the key
+	 */
+	public synchronized int getIdleCount(String key) {
+		return getIdle(key).size();
+	}
+
+	/**
+	 * Closes all idle and leased browsers.
+	 */
+	public void shutdown() {
+		List<WebDriver> drivers = new ArrayList<WebDriver>();
+		synchronized (this) {
+			for (LinkedList<WebDriver> idleDrivers : idle.values()) {
+				drivers.addAll(idleDrivers);
+				idleDrivers.clear();
+			}
+			drivers.addAll(leased.keySet());
+			drivers.addAll(returning.keySet());
+			leased.clear();
+			origins.clear();
+			returning.clear();
+			notifyAll();
+			if (launcher != null) {
+				launcher.shutdownNow();
+				launcher = null;
+			}
+		}
+		for (WebDriver driver : drivers) {
+			quit(driver);
+		}
+	}
+
+	/**
+	 * Starts the missing browsers for the key in the background.
+	 *
+	 * @param key
+	 *            the key of the browser
+	 * @param factory
+	 *            factory to start a new browser for this key
+	 */
+	private synchronized void refill(final String key, final DriverFactory factory) {
+		int missing = size - getIdle(key).size() - getLeased(key) - getReturning(key) - getLaunching(key);
+		if (missing <= 0) {
+			return;
+		}
+
+		launching.put(key, getLaunching(key) + missing);
+		for (int i = 0; i < missing; i++) {
+			getLauncher().execute(new Runnable() {
+
+				@Override
+				public void run() {
+					launch(key, factory);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Starts a browser and adds it to the idle browsers of the key.
+	 *
+	 * @param key
+	 *            the key of the browser
+	 * @param factory
+	 *            factory to start a new browser for this key
+	 */
+	private void launch(String key, DriverFactory factory) {
+		WebDriver driver = null;
+		try {
+			driver = factory.create();
+			// CHECKSTYLE:OFF
+		} catch (RuntimeException e) {
+			// CHECKSTYLE:ON
+			LOGGER.warn("Browser '" + key + "' could not be started for the browser pool.", e);
+		}
+
+		synchronized (this) {
+			launching.put(key, getLaunching(key) - 1);
+			if (driver != null && launcher != null
+					&& getIdle(key).size() + getLeased(key) + getReturning(key) < size) {
+				getIdle(key).addLast(driver);
+				driver = null;
+			}
+		}
+
+		if (driver != null) {
+			quit(driver);
+		}
+	}
+
+	/**
+	 * Resets the browser: closes all windows except the first, deletes the
+	 * cookies and the storage of the current page and of all visited origins
+	 * and shows 'about:blank'. WebDriver deletes cookies and storage only for
+	 * the current page, so each other visited origin is opened once at its
+	 * root to clear it. These requests reach the application under test like
+	 * the first request of a user; tests, which must not open the root of an
+	 * origin, use no pool (size 0).
+	 *
+	 * @param driver
+	 *            the browser
+	 * @param visited
+	 *            the origins shown by the browser (modified)
+	 * @return {@code true} if the reset was successful
+	 */
+	private boolean reset(WebDriver driver, Set<String> visited) {
+		try {
+			List<String> handles = new ArrayList<String>(driver.getWindowHandles());
+			for (String handle : handles.subList(1, handles.size())) {
+				driver.switchTo().window(handle);
+				addOrigin(visited, driver.getCurrentUrl());
+				driver.close();
+			}
+			driver.switchTo().window(handles.get(0));
+			visited.remove(getOrigin(driver.getCurrentUrl()));
+			clear(driver);
+			for (String origin : visited) {
+				driver.get(origin);
+				clear(driver);
+			}
+			driver.get("about:blank");
+			return true;
+			// CHECKSTYLE:OFF
+		} catch (RuntimeException e) {
+			// CHECKSTYLE:ON
+			LOGGER.warn("Browser could not be reset and is closed.", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Deletes the cookies and the storage of the current page.
+	 *
+	 * @param driver
+	 *            the browser
+	 */
+	private void clear(WebDriver driver) {
+		driver.manage().deleteAllCookies();
+		if (driver instanceof JavascriptExecutor) {
+			((JavascriptExecutor) driver).executeScript(CLEAR_STORAGE);
+		}
+	}
+
+	/**
+	 * @param visited
+	 *            the origins shown by a browser
+	 * @param url
+	 *            the URL of a page
+	 */
+	private void addOrigin(Set<String> visited, String url) {
+		String origin = getOrigin(url);
+		if (origin != null) {
+			visited.add(origin);
+		}
+	}
+
+	/**
+	 * @param url
+	 *            the URL of a page
+	 * @return the root URL of the origin (e.g. 'http://host:8080/') or
+	 *         {@code null}, if the URL is no HTTP(S) URL
+	 */
+	static String getOrigin(String url) {
+		if (url == null) {
+			return null;
+		}
+		try {
+			URI uri = new URI(url.trim());
+			String scheme = uri.getScheme();
+			if (uri.getHost() == null || !("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme))) {
+				return null;
+			}
+			return new URI(scheme.toLowerCase(), null, uri.getHost().toLowerCase(), uri.getPort(), "/", null, null)
+					.toString();
+		} catch (URISyntaxException e) {
+			LOGGER.debug("No origin for '" + url + "'.", e);
+			return null;
+		}
+	}
+
+	/**
+	 * @param driver
+	 *            the browser
+	 * @return {@code true} if the browser still responds
+	 */
+	private boolean isAlive(WebDriver driver) {
+		try {
+			return !driver.getWindowHandles().isEmpty();
+			// CHECKSTYLE:OFF
+		} catch (RuntimeException e) {
+			// CHECKSTYLE:ON
+			return false;
+		}
+	}
+
+	/**
+	 * Quits the browser, errors are ignored.
+	 *
+	 * @param driver
+	 *            the browser
+	 */
+	private void quit(WebDriver driver) {
+		try {
+			driver.quit();
+			// CHECKSTYLE:OFF
+		} catch (RuntimeException e) {
+			// CHECKSTYLE:ON
+			LOGGER.debug("Browser could not be quit.", e);
+		}
+	}
+
+	/**
+	 * @param key
+	 *            the key of the browser
+	 * @return the next idle browser or {@code null}
+	 */
+	private synchronized WebDriver pollIdle(String key) {
+		return getIdle(key).pollFirst();
+	}
+
+	/**
+	 * @param key
+	 *            the key of the browser
+	 * @return the number of browsers currently started in the background
+	 */
+	private int getLaunching(String key) {
+		Integer count = launching.get(key);
+		if (count == null) {
+			return 0;
+		}
+		return count;
+	}
+
+	/**
+	 * @param key
+	 *            the key of the browser
+	 * @return the number of leased browsers
+	 */
+	private int getLeased(String key) {
+		int count = 0;
+		for (String leasedKey : leased.values()) {
+			if (leasedKey.equals(key)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @param key
+	 *            the key of the browser
+	 * @return the number of browsers being returned
+	 */
+	private int getReturning(String key) {
+		int count = 0;
+		for (String returningKey : returning.values()) {
+			if (returningKey.equals(key)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @param key
+	 *            the key of the browser
+	 * @return the (modifiable) list of idle browsers
+	 */
+	private LinkedList<WebDriver> getIdle(String key) {
+		LinkedList<WebDriver> drivers = idle.get(key);
+		if (drivers == null) {
+			drivers = new LinkedList<WebDriver>();
+			idle.put(key, drivers);
+		}
+		return drivers;
+	}
+
+	/**
+	 * Creates the executor for the background launches on first use.
+	 *
+	 * @return the executor
+	 */
+	private ExecutorService getLauncher() {
+		if (launcher == null) {
+			launcher = Executors.newCachedThreadPool(new DaemonThreadFactory("browser-pool-launcher"));
+		}
+		registerShutdownHook();
+		return launcher;
+	}
+
+	/**
+	 * Registers a shutdown hook on first use, which closes all browsers of the
+	 * pool.
+	 */
+	private void registerShutdownHook() {
+		if (!shutdownHookRegistered) {
+			Runtime.getRuntime().addShutdownHook(new Thread("browser-pool-shutdown") {
+
+				@Override
+				public void run() {
+					shutdown();
+				}
+			});
+			shutdownHookRegistered = true;
+		}
+	}
+}
@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.internal.Killable;
+
+/**
+ * Closes browsers in the background, so the test thread does not wait for the
+ * browser to shut down. A browser, which does not quit within
+ * {@link #getTimeout()} seconds, is killed (if the web driver supports it).
+ * The timeout can be set with the system property {@value #TIMEOUT_PROPERTY}.
+ * A shutdown hook waits for the pending shutdowns when the JVM exits.
+ */
+public final class BrowserReaper {
+
+	/** System property for the maximum seconds to wait for a browser to quit. */
+	public static final String TIMEOUT_PROPERTY = "testeditor.browserreaper.timeout";
+
+	private static final Logger LOGGER = Logger.getLogger(BrowserReaper.class);
+
+	private static final int TIMEOUT = Integer.getInteger(TIMEOUT_PROPERTY, 10);
+
+	private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new DaemonThreadFactory(
+			"browser-reaper"));
+
+	private static final Object LOCK = new Object();
+
+	private static int pending;
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread("browser-reaper-shutdown") {
+
+			@Override
+			public void run() {
+				awaitPending(TIMEOUT + 1, TimeUnit.SECONDS);
+			}
+		});
+	}
+
+	/**
+	 * Browsers are closed with {@link #reap(WebDriver)}.
+	 */
+	private BrowserReaper() {
+	}
+
+	/**
+	 * @return the maximum seconds to wait for a browser to quit, before it is
+	 *         killed
+	 */
+	public static int getTimeout() {
+		return TIMEOUT;
+	}
+
+	/**
+	 * Closes the browser in the background and returns immediately.
+	 *
+	 * @param webDriver
+	 *            the browser to close
+	 */
+	public static void reap(final WebDriver webDriver) {
+		synchronized (LOCK) {
+			pending++;
+		}
+		EXECUTOR.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					quitOrKill(webDriver);
+				} finally {
+					synchronized (LOCK) {
+						pending--;
+						LOCK.notifyAll();
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Waits until all browsers handed over to the reaper are closed.
+	 *
+	 * @param timeout
+	 *            the maximum time to wait
+	 * @param unit
+	 *            the unit of the {@code timeout}
+	 * @return {@code true} if all browsers are closed, {@code false} if the
+	 *         timeout elapsed before
+	 */
+	public static boolean awaitPending(long timeout, TimeUnit unit) {
+		long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+		synchronized (LOCK) {
+			while (pending > 0) {
+				long wait = deadline - System.currentTimeMillis();
+				if (wait <= 0) {
+					return false;
+				}
+				try {
+					LOCK.wait(wait);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Quits the browser, kills it if it does not quit within the timeout or
+	 * quitting fails.
+	 *
+	 * @param webDriver
+	 *            the browser to close
+	 */
+	private static void quitOrKill(final WebDriver webDriver) {
+		Future<?> quit = EXECUTOR.submit(new Runnable() {
+
+			@Override
+			public void run() {
+				quit(webDriver);
+			}
+		});
+
+		try {
+			quit.get(TIMEOUT, TimeUnit.SECONDS);
+		} catch (TimeoutException e) {
+			quit.cancel(true);
+			LOGGER.warn("Browser did not quit within " + TIMEOUT + " seconds.");
+			kill(webDriver);
+		} catch (ExecutionException e) {
+			LOGGER.warn("Browser could not be quit.", e.getCause());
+			kill(webDriver);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Quits the browser. Chrome is quit directly, other browsers are closed
+	 * before (necessary at least for Firefox portable). The browser is quit
+	 * even if closing fails.
+	 *
+	 * @param webDriver
+	 *            the browser to close
+	 */
+	private static void quit(WebDriver webDriver) {
+		if (SharedChromeDriverService.isChrome(webDriver)) {
+			webDriver.quit();
+			return;
+		}
+
+		try {
+			webDriver.close();
+			// CHECKSTYLE:OFF
+		} catch (RuntimeException e) {
+			// CHECKSTYLE:ON
+			LOGGER.debug("Browser could not be closed, it is quit anyway.", e);
+		}
+		// necessary wait, at least for Firefox-Portable
+		try {
+			Thread.sleep(500);
+			// CHECKSTYLE:OFF
+		} catch (InterruptedException e) {
+			// CHECKSTYLE:ON
+			// try to quit browser anyway
+		}
+		webDriver.quit();
+	}
+
+	/**
+	 * Kills the browser process, so it does not leak.
+	 *
+	 * @param webDriver
+	 *            the browser to kill
+	 */
+	private static void kill(WebDriver webDriver) {
+		if (webDriver instanceof Killable) {
+			LOGGER.warn("Browser is killed.");
+			try {
+				((Killable) webDriver).kill();
+				// CHECKSTYLE:OFF
+			} catch (RuntimeException e) {
+				// CHECKSTYLE:ON
+				LOGGER.warn("Browser could not be killed.", e);
+			}
+		} else {
+			LOGGER.warn("Browser cannot be killed.");
+		}
+	}
+}
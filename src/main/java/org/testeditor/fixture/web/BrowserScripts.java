@@ -0,0 +1,447 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+/**
+ * Collection of the JavaScript snippets injected into the browser by the
+ * fixtures. Each snippet does its work in one round trip to the browser.
+ */
+public final class BrowserScripts {
+
+	/**
+	 * Defines the function 'findWidget', which returns the client side RAP
+	 * widget of an element or of its nearest ancestor, which is registered as
+	 * RAP widget (by its id), or {@code null} outside of RAP.
+	 */
+	private static final String FIND_RAP_WIDGET = "var findWidget = function(start) {"
+			+ "  for (var node = start; node && node.id !== undefined; node = node.parentNode) {"
+			+ "    var widget = null;"
+			+ "    try { widget = node.id ? rwt.remote.ObjectRegistry.getObject(node.id) : null; } catch (e) { widget = null; }"
+			+ "    if (widget) { return widget; }"
+			+ "  }"
+			+ "  return null;"
+			+ "};";
+
+	/**
+	 * Defines the function 'isShown(element, layout)', which tells like the
+	 * isShown atom of Selenium (used by {@code isDisplayed()}) if an element is
+	 * visible. An element is hidden by 'display: none' or opacity 0 of itself
+	 * or an ancestor, by the inherited 'visibility', as hidden input or
+	 * noscript. Options are visible with their select box. With layout (not in
+	 * HtmlUnit, which has no real geometry), an element without positive size
+	 * (neither itself nor a text or sized child) or outside of an ancestor
+	 * with 'overflow: hidden' or above/left of the document is hidden, too.
+	 */
+	private static final String IS_SHOWN = "var styleOf = function(node) {"
+			+ "  return window.getComputedStyle ? window.getComputedStyle(node, null) : node.currentStyle;"
+			+ "};"
+			+ "var tagOf = function(node) { return String(node.tagName).toLowerCase(); };"
+			+ "var isClipping = function(style) {"
+			+ "  return style.overflow === 'hidden' || style.overflowX === 'hidden' || style.overflowY === 'hidden';"
+			+ "};"
+			+ "var positiveSize = function(node) {"
+			+ "  var rect = node.getBoundingClientRect();"
+			+ "  if (rect.right - rect.left > 0 && rect.bottom - rect.top > 0) { return true; }"
+			+ "  var style = styleOf(node);"
+			+ "  if (style && isClipping(style)) { return false; }"
+			+ "  for (var child = node.firstChild; child; child = child.nextSibling) {"
+			+ "    if (child.nodeType === 3 || (child.nodeType === 1 && positiveSize(child))) { return true; }"
+			+ "  }"
+			+ "  return false;"
+			+ "};"
+			+ "var isClipped = function(element) {"
+			+ "  var rect = element.getBoundingClientRect();"
+			+ "  if (rect.right + (window.pageXOffset || 0) <= 0 || rect.bottom + (window.pageYOffset || 0) <= 0) {"
+			+ "    return true;"
+			+ "  }"
+			+ "  for (var node = element.parentNode; node && node.nodeType === 1; node = node.parentNode) {"
+			+ "    var style = styleOf(node);"
+			+ "    if (style && isClipping(style)) {"
+			+ "      var box = node.getBoundingClientRect();"
+			+ "      if (rect.right <= box.left || rect.left >= box.right || rect.bottom <= box.top"
+			+ "          || rect.top >= box.bottom) { return true; }"
+			+ "    }"
+			+ "  }"
+			+ "  return false;"
+			+ "};"
+			+ "var isShown = function(element, layout) {"
+			+ "  var tag = tagOf(element), node = element, visibility = 'inherit';"
+			+ "  if (tag === 'option' || tag === 'optgroup') {"
+			+ "    while (node && node.nodeType === 1 && tagOf(node) !== 'select') { node = node.parentNode; }"
+			+ "    return !!node && node.nodeType === 1 && isShown(node, layout);"
+			+ "  }"
+			+ "  if ((tag === 'input' && String(element.type).toLowerCase() === 'hidden') || tag === 'noscript') {"
+			+ "    return false;"
+			+ "  }"
+			+ "  for (; node && node.nodeType === 1; node = node.parentNode) {"
+			+ "    var style = styleOf(node);"
+			+ "    if (!style) { continue; }"
+			+ "    if (style.display === 'none' || String(style.opacity) === '0') { return false; }"
+			+ "    if (visibility === 'inherit' && style.visibility) { visibility = style.visibility; }"
+			+ "  }"
+			+ "  if (visibility === 'hidden' || visibility === 'collapse') { return false; }"
+			+ "  return !layout || (positiveSize(element) && !isClipped(element));"
+			+ "};";
+
+	/**
+	 * Returns the visible text of the page. If the text did not change since
+	 * the last call with the same token (first argument), {@code null} is
+	 * returned instead, so the text is not transferred again.
+	 */
+	public static final String PAGE_TEXT_SNAPSHOT = "var root = document.body || document.documentElement;"
+			+ "if (!root) { return null; }"
+			+ "var text = root.innerText;"
+			+ "if (typeof text !== 'string') { text = root.textContent || ''; }"
+			+ "var last = window.__testEditorTextSnapshot;"
+			+ "if (last && last.token === arguments[0] && last.text === text) { return null; }"
+			+ "window.__testEditorTextSnapshot = { token: arguments[0], text: text };"
+			+ "return text;";
+
+	/**
+	 * Asynchronous script, which waits until the text (second argument
+	 * 'text') or the value (second argument 'value') of the element (first
+	 * argument) changes and returns the new one. Changes are detected by a
+	 * {@code MutationObserver}, by input and change events and, for values set
+	 * by script, by a short interval within the browser. After the given
+	 * milliseconds (third argument) the script gives up without calling back.
+	 */
+	public static final String WAIT_FOR_CHANGE = "var element = arguments[0], property = arguments[1];"
+			+ "var callback = arguments[arguments.length - 1];"
+			+ "var read = function() {"
+			+ "  if (property === 'value' && element.value !== undefined) { return String(element.value); }"
+			+ "  var text = element.innerText;"
+			+ "  return typeof text === 'string' ? text : element.textContent;"
+			+ "};"
+			+ "var initial = read(), done = false, observer = null, timer = null, deadline = null;"
+			+ "var stop = function() {"
+			+ "  done = true;"
+			+ "  if (observer) { observer.disconnect(); }"
+			+ "  clearInterval(timer); clearTimeout(deadline);"
+			+ "  if (element.removeEventListener) {"
+			+ "    element.removeEventListener('input', check, false);"
+			+ "    element.removeEventListener('change', check, false);"
+			+ "  }"
+			+ "};"
+			+ "var check = function() {"
+			+ "  if (done) { return; }"
+			+ "  var current = read();"
+			+ "  if (current !== initial) { stop(); callback(current); }"
+			+ "};"
+			+ "if (window.MutationObserver) {"
+			+ "  observer = new MutationObserver(check);"
+			+ "  observer.observe(element, { attributes: true, childList: true, characterData: true, subtree: true });"
+			+ "}"
+			+ "if (element.addEventListener) {"
+			+ "  element.addEventListener('input', check, false);"
+			+ "  element.addEventListener('change', check, false);"
+			+ "}"
+			+ "timer = setInterval(check, 50);"
+			+ "deadline = setTimeout(stop, arguments[2]);";
+
+	/**
+	 * Returns the visible text of the page and of all same-origin frames
+	 * (recursively) as a list of pairs [frame path, text]. The path of the
+	 * page itself is '/', frames are named by their name, id or index, e.g.
+	 * '/content/details'. Frames of another origin are skipped.
+	 */
+	public static final String FRAME_TEXTS = "var result = [];"
+			+ "var collect = function(win, path) {"
+			+ "  var doc = null;"
+			+ "  try { doc = win.document; } catch (e) { return; }"
+			+ "  if (!doc) { return; }"
+			+ "  var root = doc.body || doc.documentElement;"
+			+ "  if (root) {"
+			+ "    var text = root.innerText;"
+			+ "    if (typeof text !== 'string') { text = root.textContent || ''; }"
+			+ "    result.push([path === '' ? '/' : path, text]);"
+			+ "  }"
+			+ "  for (var i = 0; i < win.frames.length; i++) {"
+			+ "    var child = win.frames[i], element = null;"
+			+ "    try { element = child.frameElement; } catch (e) { continue; }"
+			+ "    var name = element && (element.name || element.id) || String(i);"
+			+ "    collect(child, path + '/' + name);"
+			+ "  }"
+			+ "};"
+			+ "collect(window, '');"
+			+ "return result;";
+
+	/**
+	 * Returns the URL of the page and the entries of the local and session
+	 * storage as flat lists [key1, value1, key2, value2, ...].
+	 */
+	public static final String READ_STORAGE = "var read = function(name) {"
+			+ "  var result = [];"
+			+ "  try {"
+			+ "    var storage = window[name];"
+			+ "    for (var i = 0; storage && i < storage.length; i++) {"
+			+ "      var key = storage.key(i);"
+			+ "      result.push(key, storage.getItem(key));"
+			+ "    }"
+			+ "  } catch (e) { result = []; }"
+			+ "  return result;"
+			+ "};"
+			+ "return [window.location.href, read('localStorage'), read('sessionStorage')];";
+
+	/**
+	 * Replaces the entries of the local (first argument) and the session
+	 * storage (second argument), both given as flat lists [key1, value1, ...].
+	 */
+	public static final String WRITE_STORAGE = "var write = function(name, entries) {"
+			+ "  try {"
+			+ "    var storage = window[name];"
+			+ "    if (!storage) { return; }"
+			+ "    storage.clear();"
+			+ "    for (var i = 0; i + 1 < entries.length; i += 2) { storage.setItem(entries[i], entries[i + 1]); }"
+			+ "  } catch (e) { return; }"
+			+ "};"
+			+ "write('localStorage', arguments[0]);"
+			+ "write('sessionStorage', arguments[1]);";
+
+	/**
+	 * Reads or writes a RAP date field (first argument, the outer element of
+	 * the widget). The day, month and year fields are the third, first and
+	 * fifth div of the first descendant div with at least five child divs (as
+	 * the XPath './/div[5]/..'), because RAP renders different HTML for each
+	 * browser. Without values (empty second argument) the texts [day, month,
+	 * year] are returned. With values [day, month, year] the date is set
+	 * through the client side RAP DateTime widget, if available, which sends
+	 * the change to the server. The day is set to 1 first, so the date does
+	 * not roll over (e.g. from 31 January to 3 March on the way to 15
+	 * February). [true] is returned, if the widget holds the date afterwards,
+	 * otherwise [false] (e.g. for 31 February). Without widget [false, day,
+	 * month, year] with the visible fields (hidden ones are {@code null}) are
+	 * returned to type the values. Returns {@code null}, if the element has no
+	 * date fields.
+	 * <p>
+	 * The script depends on private members of the RAP widget
+	 * {@code rwt.widgets.DateTimeDate}: {@code _sendChanges()} and the model
+	 * values {@code _dayInt}, {@code _monthInt} (0-based) and
+	 * {@code _yearInt}. Without the model values the numeric field texts are
+	 * compared; texts, which are no numbers (e.g. month names), are not
+	 * checked.
+	 */
+	public static final String RAP_DATE_FIELD = "var element = arguments[0], values = arguments[1];"
+			+ "var childDivs = function(node) {"
+			+ "  var result = [];"
+			+ "  for (var child = node.firstChild; child; child = child.nextSibling) {"
+			+ "    if (child.nodeType === 1 && child.tagName.toLowerCase() === 'div') { result.push(child); }"
+			+ "  }"
+			+ "  return result;"
+			+ "};"
+			+ "var all = element.getElementsByTagName('div'), parts = null;"
+			+ "for (var i = 0; i < all.length && !parts; i++) {"
+			+ "  var siblings = childDivs(all[i].parentNode);"
+			+ "  if (siblings.length >= 5 && siblings[4] === all[i]) { parts = siblings; }"
+			+ "}"
+			+ "if (!parts) { return null; }"
+			+ "var day = parts[2], month = parts[0], year = parts[4];"
+			+ "var text = function(node) {"
+			+ "  var value = node.innerText;"
+			+ "  return typeof value === 'string' ? value : node.textContent;"
+			+ "};"
+			+ "if (!values.length) { return [text(day), text(month), text(year)]; }"
+			+ FIND_RAP_WIDGET
+			+ "var widget = findWidget(element);"
+			+ "if (widget && typeof widget.setYear === 'function' && typeof widget.setMonth === 'function'"
+			+ "    && typeof widget.setDay === 'function') {"
+			+ "  var number = function(value) { return parseInt(value, 10); };"
+			+ "  widget.setDay(1);"
+			+ "  widget.setYear(number(values[2]));"
+			+ "  widget.setMonth(number(values[1]) - 1);"
+			+ "  widget.setDay(number(values[0]));"
+			+ "  if (typeof widget._sendChanges === 'function') { widget._sendChanges(); }"
+			+ "  var actual = [number(text(day)), number(text(month)), number(text(year))];"
+			+ "  if (typeof widget._dayInt === 'number') {"
+			+ "    actual = [widget._dayInt, widget._monthInt + 1, widget._yearInt];"
+			+ "  }"
+			+ "  for (i = 0; i < actual.length; i++) {"
+			+ "    if (!isNaN(actual[i]) && actual[i] !== number(values[i])) { return [false]; }"
+			+ "  }"
+			+ "  return [true];"
+			+ "}"
+			+ "var visible = function(field) { return field.offsetWidth > 0 || field.offsetHeight > 0 ? field : null; };"
+			+ "return [false, visible(day), visible(month), visible(year)];";
+
+	/**
+	 * Returns the items of a RAP combo box (first argument, its input field or
+	 * outer element) from the client side RAP Combo widget as [labels,
+	 * selected index], the index is -1 without selection. Returns
+	 * {@code null}, if the widget is not available.
+	 */
+	public static final String RAP_COMBO_ITEMS = FIND_RAP_WIDGET
+			+ "var widget = findWidget(arguments[0]);"
+			+ "if (!widget) { return null; }"
+			+ "var list = widget._list, items = null, selected = -1, i;"
+			+ "if (list && typeof list.getItems === 'function') { items = list.getItems(); }"
+			+ "else if (typeof widget.getItems === 'function') { items = widget.getItems(); }"
+			+ "if (!items) { return null; }"
+			+ "var decoder = document.createElement('div'), labels = [];"
+			+ "for (i = 0; i < items.length; i++) {"
+			+ "  var label = items[i];"
+			+ "  if (label && typeof label.getLabel === 'function') { label = label.getLabel(); }"
+			+ "  decoder.innerHTML = label === null || label === undefined ? '' : String(label);"
+			+ "  var text = decoder.innerText;"
+			+ "  labels.push(typeof text === 'string' ? text : decoder.textContent);"
+			+ "}"
+			+ "if (list && typeof list.getSelectedItem === 'function') {"
+			+ "  var item = list.getSelectedItem();"
+			+ "  for (i = 0; i < items.length; i++) { if (items[i] === item) { selected = i; } }"
+			+ "} else if (typeof widget.getSelectionIndex === 'function') { selected = widget.getSelectionIndex(); }"
+			+ "return [labels, selected];";
+
+	/**
+	 * Returns the state of a RAP check box or radio button (first argument) as
+	 * 'UNCHECKED', 'CHECKED' or 'UNKNOWN'. The computed background images of
+	 * the widget and its descendants are searched for the image names of not
+	 * selected (second argument) and selected widgets (third argument).
+	 */
+	public static final String RAP_CHECK_STATE = "var root = arguments[0], nodes = root.getElementsByTagName('*');"
+			+ "var imageOf = function(node) {"
+			+ "  var image = null;"
+			+ "  var style = window.getComputedStyle ? window.getComputedStyle(node, null) : node.currentStyle;"
+			+ "  if (style) { image = style.backgroundImage; }"
+			+ "  if (!image || image === 'none') { image = node.style ? node.style.backgroundImage : null; }"
+			+ "  return image || '';"
+			+ "};"
+			+ "var images = [imageOf(root)], i, j;"
+			+ "for (i = 0; i < nodes.length; i++) { images.push(imageOf(nodes[i])); }"
+			+ "var shows = function(names) {"
+			+ "  for (i = 0; i < images.length; i++) {"
+			+ "    for (j = 0; j < names.length; j++) {"
+			+ "      if (names[j] && images[i].indexOf(names[j]) >= 0) { return true; }"
+			+ "    }"
+			+ "  }"
+			+ "  return false;"
+			+ "};"
+			+ "if (shows(arguments[1])) { return 'UNCHECKED'; }"
+			+ "return shows(arguments[2]) ? 'CHECKED' : 'UNKNOWN';";
+
+	/**
+	 * Returns the visible elements of the given elements (first argument) in
+	 * their order, only the first one if the second argument is {@code true}.
+	 * The third argument tells, if the browser has a layout (see
+	 * {@link VisibleElements#hasLayout(org.openqa.selenium.WebDriver)}).
+	 */
+	public static final String VISIBLE_ELEMENTS = IS_SHOWN
+			+ "var elements = arguments[0], firstOnly = arguments[1], layout = arguments[2], visible = [];"
+			+ "for (var i = 0; i < elements.length; i++) {"
+			+ "  if (elements[i] && isShown(elements[i], layout)) {"
+			+ "    visible.push(elements[i]);"
+			+ "    if (firstOnly) { break; }"
+			+ "  }"
+			+ "}"
+			+ "return visible;";
+
+	/**
+	 * Returns the value of the first visible element of the given elements
+	 * (first argument, the second one tells if the browser has a layout), or
+	 * {@code null} if none of them is visible. Depending
+	 * on the element, the value is
+	 * <ul>
+	 * <li>the value of the checked one of the visible check boxes or radio
+	 * buttons, '' if none is checked,</li>
+	 * <li>the value of the selected option of a select box,</li>
+	 * <li>the value of other inputs, options (their text without value), list
+	 * items, buttons, params and progress bars,</li>
+	 * <li>the source of images and media sources,</li>
+	 * <li>the element itself for all other elements including text areas,
+	 * whose visible text is read by {@code WebElement.getText()}, as browsers
+	 * without {@code innerText} offer no visible text to scripts.</li>
+	 * </ul>
+	 */
+	public static final String ELEMENT_VALUE = IS_SHOWN
+			+ "var elements = arguments[0], layout = arguments[1], visible = [], i;"
+			+ "for (i = 0; i < elements.length; i++) {"
+			+ "  if (elements[i] && isShown(elements[i], layout)) { visible.push(elements[i]); }"
+			+ "}"
+			+ "if (!visible.length) { return null; }"
+			+ "var valueOf = function(node) {"
+			+ "  var value = node.value;"
+			+ "  if (String(node.tagName).toLowerCase() === 'option') {"
+			+ "    var attribute = node.getAttributeNode('value');"
+			+ "    value = attribute && attribute.specified ? node.value : node.text;"
+			+ "  } else if (value === undefined || value === null) { value = node.getAttribute('value'); }"
+			+ "  return value === undefined || value === null ? '' : String(value);"
+			+ "};"
+			+ "var element = visible[0], tag = String(element.tagName).toLowerCase();"
+			+ "var type = tag === 'input' ? String(element.type).toLowerCase() : '';"
+			+ "if (type === 'checkbox' || type === 'radio') {"
+			+ "  for (i = 0; i < visible.length; i++) { if (visible[i].checked) { return valueOf(visible[i]); } }"
+			+ "  return '';"
+			+ "}"
+			+ "if (tag === 'select') {"
+			+ "  for (i = 0; i < element.options.length; i++) {"
+			+ "    if (element.options[i].selected) { return valueOf(element.options[i]); }"
+			+ "  }"
+			+ "  return '';"
+			+ "}"
+			+ "if (/^(input|option|li|button|param|progress)$/.test(tag)) { return valueOf(element); }"
+			+ "if (tag === 'img' || tag === 'source') { return element.src || element.getAttribute('src') || ''; }"
+			+ "return element;";
+
+	/**
+	 * Appends a value (second argument) to the value of an input field or text
+	 * area (first argument) and fires the events 'input' and 'change'. Returns
+	 * the value of the field afterwards, or {@code null} if the element is no
+	 * editable field.
+	 */
+	public static final String INSERT_VALUE = "var element = arguments[0], tag = String(element.tagName).toLowerCase();"
+			+ "if ((tag !== 'input' && tag !== 'textarea') || element.readOnly || element.disabled) { return null; }"
+			+ "if (element.focus) { element.focus(); }"
+			+ "element.value = element.value + arguments[1];"
+			+ "var fire = function(name) {"
+			+ "  if (document.createEvent) {"
+			+ "    var event = document.createEvent('HTMLEvents');"
+			+ "    event.initEvent(name, true, false);"
+			+ "    element.dispatchEvent(event);"
+			+ "  } else if (element.fireEvent) {"
+			+ "    try { element.fireEvent('on' + name); } catch (e) { return; }"
+			+ "  }"
+			+ "};"
+			+ "fire('input');"
+			+ "fire('change');"
+			+ "return element.value;";
+
+	/**
+	 * Returns the first of the given elements (first argument), whose value
+	 * equals the given value (second argument) ignoring case, or {@code null}.
+	 */
+	public static final String ELEMENT_WITH_VALUE = "var elements = arguments[0], expected = String(arguments[1]).toLowerCase();"
+			+ "for (var i = 0; i < elements.length; i++) {"
+			+ "  var value = elements[i].value;"
+			+ "  if (value === undefined || value === null) { value = elements[i].getAttribute('value'); }"
+			+ "  if (value !== undefined && value !== null && String(value).toLowerCase() === expected) {"
+			+ "    return elements[i];"
+			+ "  }"
+			+ "}"
+			+ "return null;";
+
+	/**
+	 * Returns the value of the first selected (checked) of the given elements
+	 * (first argument), or {@code null} if none is selected.
+	 */
+	public static final String SELECTED_VALUE = "var elements = arguments[0];"
+			+ "for (var i = 0; i < elements.length; i++) {"
+			+ "  if (elements[i].checked || elements[i].selected) {"
+			+ "    var value = elements[i].value;"
+			+ "    if (value === undefined || value === null) { value = elements[i].getAttribute('value'); }"
+			+ "    return value === undefined ? null : value;"
+			+ "  }"
+			+ "}"
+			+ "return null;";
+
+	/**
+	 * Holds only the script constants.
+	 */
+	private BrowserScripts() {
+	}
+}
@@ -0,0 +1,454 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.firefox.FirefoxBinary;
+import org.openqa.selenium.firefox.FirefoxDriver;
+import org.openqa.selenium.firefox.FirefoxProfile;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.testeditor.fixture.core.elementlist.ElementListService;
+import org.testeditor.fixture.core.exceptions.ElementKeyNotFoundException;
+import org.testeditor.fixture.core.exceptions.StopTestException;
+
+/**
+ * Profile of the browser capabilities used when a browser is started:
+ * headless mode, window size, disabled extensions and page load strategy. The
+ * profile is read from a properties file or from the element list, both use
+ * the same keys, e.g.:
+ *
+ * <pre>
+ * browser.headless = true
+ * browser.window.size = 1280x1024
+ * browser.extensions.disabled = true
+ * browser.pageLoadStrategy = eager
+ * </pre>
+ *
+ * The headless mode is supported by Chrome and HtmlUnit. The Firefox versions
+ * driven by this Selenium version have no headless mode, so Firefox is not
+ * started headless, but rejected (use a virtual display like Xvfb instead).
+ */
+public final class CapabilityProfile {
+
+	/** Key to start the browser without a window ('true' or 'false'). */
+	public static final String HEADLESS = "browser.headless";
+	/** Key for the window size, e.g. '1280x1024'. */
+	public static final String WINDOW_SIZE = "browser.window.size";
+	/** Key to disable the browser extensions ('true' or 'false'). */
+	public static final String EXTENSIONS_DISABLED = "browser.extensions.disabled";
+	/** Key for the page load strategy ('normal', 'eager' or 'none'). */
+	public static final String PAGE_LOAD_STRATEGY = "browser.pageLoadStrategy";
+
+	/** Profile without any changes to the browser defaults. */
+	public static final CapabilityProfile DEFAULT = new CapabilityProfile(false, null, false, null);
+
+	private static final List<String> PAGE_LOAD_STRATEGIES = Arrays.asList("normal", "eager", "none");
+
+	private final boolean headless;
+	private final Dimension windowSize;
+	private final boolean extensionsDisabled;
+	private final String pageLoadStrategy;
+
+	/**
+	 * Creates a profile.
+	 *
+	 * @param headless
+	 *            {@code true} to start the browser without a window
+	 * @param windowSize
+	 *            the window size or {@code null} for the default size
+	 * @param extensionsDisabled
+	 *            {@code true} to disable the browser extensions
+	 * @param pageLoadStrategy
+	 *            'normal', 'eager', 'none' or {@code null} for the default
+	 */
+	private CapabilityProfile(boolean headless, Dimension windowSize, boolean extensionsDisabled,
+			String pageLoadStrategy) {
+		this.headless = headless;
+		this.windowSize = windowSize;
+		this.extensionsDisabled = extensionsDisabled;
+		this.pageLoadStrategy = pageLoadStrategy;
+	}
+
+	/**
+	 * Creates a profile from the given properties. Missing keys keep the
+	 * browser defaults.
+	 *
+	 * @param properties
+	 *            the properties
+	 * @return the profile
+	 * @throws StopTestException
+	 *             if a value is invalid
+	 */
+	public static CapabilityProfile fromProperties(Properties properties) throws StopTestException {
+		return create(properties.getProperty(HEADLESS), properties.getProperty(WINDOW_SIZE),
+				properties.getProperty(EXTENSIONS_DISABLED), properties.getProperty(PAGE_LOAD_STRATEGY));
+	}
+
+	/**
+	 * Loads a profile from a properties file.
+	 *
+	 * @param path
+	 *            path to the properties file
+	 * @return the profile
+	 * @throws StopTestException
+	 *             if the file could not be read or a value is invalid
+	 */
+	public static CapabilityProfile load(String path) throws StopTestException {
+		Properties properties = new Properties();
+		// CHECKSTYLE:OFF
+		try (InputStream in = new FileInputStream(new File(path))) {
+			// CHECKSTYLE:ON
+			properties.load(in);
+		} catch (IOException e) {
+			throw new StopTestException("The capability profile '" + path + "' could not be read.", e);
+		}
+		return fromProperties(properties);
+	}
+
+	/**
+	 * Creates a profile from the entries of the element list. Missing keys
+	 * keep the browser defaults.
+	 *
+	 * @param elementListService
+	 *            the element list
+	 * @return the profile
+	 * @throws StopTestException
+	 *             if a value is invalid
+	 */
+	public static CapabilityProfile fromElementList(ElementListService elementListService)
+			throws StopTestException {
+		return create(readFromElementList(elementListService, HEADLESS),
+				readFromElementList(elementListService, WINDOW_SIZE),
+				readFromElementList(elementListService, EXTENSIONS_DISABLED),
+				readFromElementList(elementListService, PAGE_LOAD_STRATEGY));
+	}
+
+	/**
+	 * @return {@code true} if the browser is started without a window
+	 */
+	public boolean isHeadless() {
+		return headless;
+	}
+
+	/**
+	 * @return the window size or {@code null} for the default size
+	 */
+	public Dimension getWindowSize() {
+		return windowSize;
+	}
+
+	/**
+	 * @return {@code true} if the browser extensions are disabled
+	 */
+	public boolean isExtensionsDisabled() {
+		return extensionsDisabled;
+	}
+
+	/**
+	 * @return 'normal', 'eager', 'none' or {@code null} for the default
+	 */
+	public String getPageLoadStrategy() {
+		return pageLoadStrategy;
+	}
+
+	/**
+	 * @return {@code true} if the profile does not change the browser defaults
+	 */
+	public boolean isDefault() {
+		return equals(DEFAULT);
+	}
+
+	/**
+	 * Creates the capabilities for Google Chrome.
+	 *
+	 * @return the capabilities including the command line arguments of this
+	 *         profile
+	 */
+	public DesiredCapabilities toChromeCapabilities() {
+		return toChromeCapabilities(null);
+	}
+
+	/**
+	 * Creates the capabilities for Google Chrome.
+	 *
+	 * @param marker
+	 *            marker of the launch (see
+	 *            {@link BrowserHealthMonitor#beginLaunch()}) or {@code null}
+	 * @return the capabilities including the command line arguments of this
+	 *         profile
+	 */
+	public DesiredCapabilities toChromeCapabilities(String marker) {
+		DesiredCapabilities capabilities = DesiredCapabilities.chrome();
+		List<String> arguments = new ArrayList<String>();
+		if (marker != null) {
+			arguments.add(BrowserHealthMonitor.MARKER_ARGUMENT + "=" + marker);
+		}
+		if (headless) {
+			arguments.add("--headless");
+			arguments.add("--disable-gpu");
+		}
+		if (windowSize != null) {
+			arguments.add("--window-size=" + windowSize.getWidth() + "," + windowSize.getHeight());
+		}
+		if (extensionsDisabled) {
+			arguments.add("--disable-extensions");
+		}
+		if (!arguments.isEmpty()) {
+			ChromeOptions options = new ChromeOptions();
+			options.addArguments(arguments);
+			capabilities.setCapability(ChromeOptions.CAPABILITY, options);
+		}
+		if (pageLoadStrategy != null) {
+			capabilities.setCapability("pageLoadStrategy", pageLoadStrategy);
+		}
+		return capabilities;
+	}
+
+	/**
+	 * Creates the capabilities for Firefox on a node of a {@link SeleniumGrid}.
+	 *
+	 * @param binaryPath
+	 *            path to the Firefox executable on the node or {@code null}
+	 * @param profileName
+	 *            name of the Firefox profile or {@code null} for a new profile
+	 * @return the capabilities including the Firefox profile
+	 * @throws StopTestException
+	 *             if the profile is headless
+	 */
+	public DesiredCapabilities toFirefoxCapabilities(String binaryPath, String profileName) throws StopTestException {
+		checkFirefoxHeadless();
+		DesiredCapabilities capabilities = DesiredCapabilities.firefox();
+		capabilities.setCapability(FirefoxDriver.PROFILE, createFirefoxProfile(profileName));
+		if (binaryPath != null) {
+			capabilities.setCapability(FirefoxDriver.BINARY, binaryPath);
+		}
+		if (pageLoadStrategy != null) {
+			capabilities.setCapability("pageLoadStrategy", pageLoadStrategy);
+		}
+		return capabilities;
+	}
+
+	/**
+	 * Starts Firefox with this profile. The Firefox profile is created from a
+	 * {@link FirefoxProfileTemplates template}.
+	 *
+	 * @param binaryPath
+	 *            path to the Firefox executable or {@code null} to search it
+	 *            on the path
+	 * @param profileName
+	 *            name of the Firefox profile or {@code null} for a new profile
+	 * @return the web driver for Firefox
+	 * @throws StopTestException
+	 *             if the profile is headless
+	 */
+	public WebDriver createFirefoxDriver(String binaryPath, String profileName) throws StopTestException {
+		return createFirefoxDriver(binaryPath, profileName, null);
+	}
+
+	/**
+	 * Starts Firefox with this profile. The Firefox profile is created from a
+	 * {@link FirefoxProfileTemplates template}.
+	 *
+	 * @param binaryPath
+	 *            path to the Firefox executable or {@code null} to search it
+	 *            on the path
+	 * @param profileName
+	 *            name of the Firefox profile or {@code null} for a new profile
+	 * @param marker
+	 *            marker of the launch (see
+	 *            {@link BrowserHealthMonitor#beginLaunch()}) or {@code null}
+	 * @return the web driver for Firefox
+	 * @throws StopTestException
+	 *             if the profile is headless
+	 */
+	public WebDriver createFirefoxDriver(String binaryPath, String profileName, String marker)
+			throws StopTestException {
+		checkFirefoxHeadless();
+		long start = StartupProfiler.start();
+		FirefoxBinary binary = createFirefoxBinary(binaryPath);
+		if (marker != null) {
+			binary.setEnvironmentProperty(BrowserHealthMonitor.MARKER_VARIABLE, marker);
+		}
+		StartupProfiler.recordPhase(StartupProfiler.BINARY, start);
+		start = StartupProfiler.start();
+		FirefoxProfile profile = createFirefoxProfile(profileName);
+		StartupProfiler.recordPhase(StartupProfiler.PROFILE, start);
+
+		start = StartupProfiler.start();
+		WebDriver webDriver;
+		if (isDefault()) {
+			webDriver = new FirefoxDriver(binary, profile);
+		} else {
+			DesiredCapabilities capabilities = DesiredCapabilities.firefox();
+			if (pageLoadStrategy != null) {
+				capabilities.setCapability("pageLoadStrategy", pageLoadStrategy);
+			}
+			webDriver = new FirefoxDriver(binary, profile, capabilities);
+			if (windowSize != null) {
+				webDriver.manage().window().setSize(windowSize);
+			}
+		}
+		StartupProfiler.recordPhase(StartupProfiler.SESSION, start);
+		return webDriver;
+	}
+
+	/**
+	 * The legacy Firefox driver of this Selenium version only drives Firefox
+	 * versions without headless mode (added in Firefox 56).
+	 *
+	 * @throws StopTestException
+	 *             if the profile is headless
+	 */
+	private void checkFirefoxHeadless() throws StopTestException {
+		if (headless) {
+			throw new StopTestException("Firefox cannot be started headless with this Selenium version, "
+					+ "use a virtual display (e.g. Xvfb) instead.");
+		}
+	}
+
+	/**
+	 * @param binaryPath
+	 *            path to the Firefox executable or {@code null}
+	 * @return the Firefox binary
+	 */
+	private FirefoxBinary createFirefoxBinary(String binaryPath) {
+		if (binaryPath == null) {
+			return new FirefoxBinary();
+		}
+		return new FirefoxBinary(new File(binaryPath));
+	}
+
+	/**
+	 * @param profileName
+	 *            name of the Firefox profile or {@code null}
+	 * @return the Firefox profile with the preferences of this profile
+	 */
+	private FirefoxProfile createFirefoxProfile(String profileName) {
+		FirefoxProfile profile = FirefoxProfileTemplates.newProfile(profileName);
+		if (extensionsDisabled) {
+			// only the profile scope, which contains the web driver extension
+			profile.setPreference("extensions.enabledScopes", 1);
+			profile.setPreference("extensions.autoDisableScopes", 15);
+		}
+		if (pageLoadStrategy != null && !"normal".equals(pageLoadStrategy)) {
+			profile.setPreference("webdriver.load.strategy", "unstable");
+		}
+		return profile;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof CapabilityProfile)) {
+			return false;
+		}
+		return toString().equals(obj.toString());
+	}
+
+	@Override
+	public int hashCode() {
+		return toString().hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "headless=" + headless + ",windowSize=" + windowSize + ",extensionsDisabled=" + extensionsDisabled
+				+ ",pageLoadStrategy=" + pageLoadStrategy;
+	}
+
+	/**
+	 * Creates a profile from the given values.
+	 *
+	 * @param headlessValue
+	 *            'true' or 'false'
+	 * @param windowSizeValue
+	 *            e.g. '1280x1024'
+	 * @param extensionsDisabledValue
+	 *            'true' or 'false'
+	 * @param pageLoadStrategyValue
+	 *            'normal', 'eager' or 'none'
+	 * @return the profile
+	 * @throws StopTestException
+	 *             if a value is invalid
+	 */
+	private static CapabilityProfile create(String headlessValue, String windowSizeValue,
+			String extensionsDisabledValue, String pageLoadStrategyValue) throws StopTestException {
+		Dimension size = null;
+		if (!isEmpty(windowSizeValue)) {
+			String[] parts = windowSizeValue.trim().toLowerCase().split("\\s*x\\s*");
+			try {
+				size = new Dimension(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+				// CHECKSTYLE:OFF
+			} catch (RuntimeException e) {
+				// CHECKSTYLE:ON
+				throw new StopTestException("The window size '" + windowSizeValue
+						+ "' is invalid, use the format <width>x<height>, e.g. 1280x1024!");
+			}
+		}
+
+		String strategy = null;
+		if (!isEmpty(pageLoadStrategyValue)) {
+			strategy = pageLoadStrategyValue.trim().toLowerCase();
+			if (!PAGE_LOAD_STRATEGIES.contains(strategy)) {
+				throw new StopTestException("The page load strategy '" + pageLoadStrategyValue
+						+ "' is invalid, use one of " + PAGE_LOAD_STRATEGIES + "!");
+			}
+		}
+
+		return new CapabilityProfile(isTrue(headlessValue), size, isTrue(extensionsDisabledValue), strategy);
+	}
+
+	/**
+	 * Reads an entry of the element list.
+	 *
+	 * @param elementListService
+	 *            the element list
+	 * @param key
+	 *            the key
+	 * @return the value or {@code null} if the key does not exist
+	 */
+	private static String readFromElementList(ElementListService elementListService, String key) {
+		try {
+			return elementListService.getValue(key);
+		} catch (ElementKeyNotFoundException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @param value
+	 *            the value
+	 * @return {@code true} if the value is 'true' (case is ignored)
+	 */
+	private static boolean isTrue(String value) {
+		return value != null && Boolean.parseBoolean(value.trim());
+	}
+
+	/**
+	 * @param value
+	 *            the value
+	 * @return {@code true} if the value is {@code null} or blank
+	 */
+	private static boolean isEmpty(String value) {
+		return value == null || value.trim().isEmpty();
+	}
+}
@@ -0,0 +1,328 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.io.File;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+import org.openqa.selenium.ie.InternetExplorerDriver;
+import org.openqa.selenium.ie.InternetExplorerDriverService;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.testeditor.fixture.core.exceptions.StopTestException;
+
+/**
+ * Immutable configuration of a browser session: browser name, paths to the
+ * browser and driver executables, the Firefox profile, the
+ * {@link CapabilityProfile} and optionally the {@link SeleniumGrid}, through
+ * which the session is opened. The paths are passed directly to the driver
+ * services and binaries, no system property is changed, so differently
+ * configured browsers can be started at the same time from several threads.
+ * <p>
+ * The defaults are read (not written) from the system properties
+ * 'webdriver.firefox.bin', 'webdriver.firefox.profile',
+ * 'webdriver.chrome.driver' and 'webdriver.ie.driver'.
+ */
+public final class DriverConfiguration {
+
+	/** Name of the Firefox browser. */
+	public static final String FIREFOX = "firefox";
+	/** Name of the Google Chrome browser. */
+	public static final String CHROME = "chrome";
+	/** Name of the Internet Explorer. */
+	public static final String IE = "ie";
+	/** Name of the headless HtmlUnit browser. */
+	public static final String HTMLUNIT = "htmlunit";
+
+	private final String browserName;
+	private final String browserPath;
+	private final String driverPath;
+	private final String firefoxProfile;
+	private final CapabilityProfile capabilityProfile;
+	private final String grid;
+
+	/**
+	 * Creates a configuration.
+	 *
+	 * @param browserName
+	 *            name of browser ('ie', 'chrome' or 'firefox')
+	 * @param browserPath
+	 *            path to the browser executable or {@code null}
+	 * @param driverPath
+	 *            path to the driver executable or {@code null}
+	 * @param firefoxProfile
+	 *            name of the Firefox profile or {@code null}
+	 * @param capabilityProfile
+	 *            the capability profile
+	 * @param grid
+	 *            the {@link SeleniumGrid} or {@code null}
+	 */
+	private DriverConfiguration(String browserName, String browserPath, String driverPath, String firefoxProfile,
+			CapabilityProfile capabilityProfile, String grid) {
+		this.browserName = browserName;
+		this.browserPath = browserPath;
+		this.driverPath = driverPath;
+		this.firefoxProfile = firefoxProfile;
+		this.capabilityProfile = capabilityProfile;
+		this.grid = grid;
+	}
+
+	/**
+	 * Creates the configuration of a browser with the defaults of the system
+	 * properties.
+	 *
+	 * @param browserName
+	 *            name of browser ('ie', 'chrome' or 'firefox')
+	 * @param capabilityProfile
+	 *            the capability profile
+	 * @return the configuration
+	 */
+	public static DriverConfiguration forBrowser(String browserName, CapabilityProfile capabilityProfile) {
+		String name = String.valueOf(browserName).trim().toLowerCase();
+		DriverConfiguration configuration = new DriverConfiguration(name, null, null, null, capabilityProfile, null);
+		if (FIREFOX.equals(name)) {
+			return configuration.withBrowserPath(System.getProperty("webdriver.firefox.bin")).withFirefoxProfile(
+					System.getProperty("webdriver.firefox.profile"));
+		} else if (CHROME.equals(name)) {
+			return configuration.withDriverPath(System.getProperty("webdriver.chrome.driver"));
+		} else if (IE.equals(name)) {
+			return configuration.withDriverPath(System.getProperty("webdriver.ie.driver"));
+		}
+		return configuration;
+	}
+
+	/**
+	 * @param path
+	 *            path to the browser executable (Firefox) or {@code null} for
+	 *            the default
+	 * @return a copy of this configuration with the browser path
+	 */
+	public DriverConfiguration withBrowserPath(String path) {
+		return new DriverConfiguration(browserName, emptyToNull(path), driverPath, firefoxProfile, capabilityProfile,
+				grid);
+	}
+
+	/**
+	 * @param path
+	 *            path to the driver executable (chromedriver,
+	 *            IEDriverServer) or {@code null} for the default
+	 * @return a copy of this configuration with the driver path
+	 */
+	public DriverConfiguration withDriverPath(String path) {
+		return new DriverConfiguration(browserName, browserPath, emptyToNull(path), firefoxProfile, capabilityProfile,
+				grid);
+	}
+
+	/**
+	 * @param profileName
+	 *            name of the Firefox profile or {@code null} for a new profile
+	 * @return a copy of this configuration with the Firefox profile
+	 */
+	public DriverConfiguration withFirefoxProfile(String profileName) {
+		return new DriverConfiguration(browserName, browserPath, driverPath, emptyToNull(profileName),
+				capabilityProfile, grid);
+	}
+
+	/**
+	 * @param gridUrl
+	 *            {@value SeleniumGrid#EMBEDDED}, the URL of a Selenium grid
+	 *            hub or {@code null} to start the browser directly
+	 * @return a copy of this configuration with the grid
+	 */
+	public DriverConfiguration withGrid(String gridUrl) {
+		return new DriverConfiguration(browserName, browserPath, driverPath, firefoxProfile, capabilityProfile,
+				emptyToNull(gridUrl));
+	}
+
+	/**
+	 * @return the browser name in lower case
+	 */
+	public String getBrowserName() {
+		return browserName;
+	}
+
+	/**
+	 * @return path to the browser executable or {@code null}
+	 */
+	public String getBrowserPath() {
+		return browserPath;
+	}
+
+	/**
+	 * @return path to the driver executable or {@code null}
+	 */
+	public String getDriverPath() {
+		return driverPath;
+	}
+
+	/**
+	 * @return name of the Firefox profile or {@code null}
+	 */
+	public String getFirefoxProfile() {
+		return firefoxProfile;
+	}
+
+	/**
+	 * @return the capability profile
+	 */
+	public CapabilityProfile getCapabilityProfile() {
+		return capabilityProfile;
+	}
+
+	/**
+	 * @return the {@link SeleniumGrid}, {@code null} if the browser is started
+	 *         directly
+	 */
+	public String getGrid() {
+		return grid;
+	}
+
+	/**
+	 * Starts a new browser with this configuration. The browser is registered
+	 * at the {@link BrowserHealthMonitor}.
+	 *
+	 * @return the web driver of the started browser
+	 * @throws StopTestException
+	 *             if the browser is not available
+	 */
+	public WebDriver createDriver() throws StopTestException {
+		BrowserHealthMonitor monitor = BrowserHealthMonitor.getInstance();
+		String marker = monitor.beginLaunch();
+		WebDriver driver = null;
+		try {
+			driver = launch(marker);
+			return driver;
+		} finally {
+			monitor.endLaunch(driver, marker);
+		}
+	}
+
+	/**
+	 * @param marker
+	 *            marker of the launch for the {@link BrowserHealthMonitor} or
+	 *            {@code null}
+	 * @return the web driver of the started browser
+	 * @throws StopTestException
+	 *             if the browser is not available
+	 */
+	private WebDriver launch(String marker) throws StopTestException {
+		if (grid != null) {
+			return launchOnGrid();
+		}
+		if (FIREFOX.equals(browserName)) {
+			if (browserPath != null && !new File(browserPath).exists()) {
+				throw new StopTestException("Web driver initialisation error. Browser path '" + browserPath
+						+ "' does not exist.");
+			}
+			return capabilityProfile.createFirefoxDriver(browserPath, firefoxProfile, marker);
+		} else if (CHROME.equals(browserName)) {
+			long start = StartupProfiler.start();
+			SharedChromeDriverService.getService(driverPath);
+			StartupProfiler.recordPhase(StartupProfiler.SERVICE, start);
+			start = StartupProfiler.start();
+			WebDriver driver = SharedChromeDriverService.createDriver(driverPath,
+					capabilityProfile.toChromeCapabilities(marker));
+			StartupProfiler.recordPhase(StartupProfiler.SESSION, start);
+			return driver;
+		} else if (IE.equals(browserName)) {
+			return launchInternetExplorer();
+		} else if (HTMLUNIT.equals(browserName)) {
+			return new HtmlUnitDriver(true);
+		}
+		throw new StopTestException("Browser '" + browserName + "' not available.");
+	}
+
+	/**
+	 * @return the web driver of a session on the Selenium grid
+	 * @throws StopTestException
+	 *             if the browser is not available
+	 */
+	private WebDriver launchOnGrid() throws StopTestException {
+		DesiredCapabilities capabilities;
+		if (FIREFOX.equals(browserName)) {
+			capabilities = capabilityProfile.toFirefoxCapabilities(browserPath, firefoxProfile);
+		} else if (CHROME.equals(browserName)) {
+			capabilities = capabilityProfile.toChromeCapabilities();
+		} else if (IE.equals(browserName)) {
+			capabilities = DesiredCapabilities.internetExplorer();
+			capabilities.setCapability(InternetExplorerDriver.INTRODUCE_FLAKINESS_BY_IGNORING_SECURITY_DOMAINS,
+					"true");
+		} else if (HTMLUNIT.equals(browserName)) {
+			capabilities = DesiredCapabilities.htmlUnit();
+			capabilities.setJavascriptEnabled(true);
+		} else {
+			throw new StopTestException("Browser '" + browserName + "' not available.");
+		}
+		WebDriver driver = SeleniumGrid.createDriver(grid, capabilities);
+		if (FIREFOX.equals(browserName) && capabilityProfile.getWindowSize() != null) {
+			driver.manage().window().setSize(capabilityProfile.getWindowSize());
+		}
+		return driver;
+	}
+
+	/**
+	 * @return the web driver of the started Internet Explorer
+	 */
+	private WebDriver launchInternetExplorer() {
+		DesiredCapabilities cap = DesiredCapabilities.internetExplorer();
+		cap.setCapability(InternetExplorerDriver.INTRODUCE_FLAKINESS_BY_IGNORING_SECURITY_DOMAINS, "true");
+		long start = StartupProfiler.start();
+		WebDriver driver;
+		if (driverPath == null) {
+			driver = new InternetExplorerDriver(cap);
+		} else {
+			InternetExplorerDriverService service = new InternetExplorerDriverService.Builder()
+					.usingDriverExecutable(new File(driverPath)).usingAnyFreePort().build();
+			driver = new InternetExplorerDriver(service, cap);
+		}
+		StartupProfiler.recordPhase(StartupProfiler.SESSION, start);
+		return driver;
+	}
+
+	/**
+	 * @return the key of this configuration in the {@link BrowserPool}
+	 */
+	public String getPoolKey() {
+		return toString();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof DriverConfiguration)) {
+			return false;
+		}
+		return toString().equals(obj.toString());
+	}
+
+	@Override
+	public int hashCode() {
+		return toString().hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return browserName + ":browserPath=" + browserPath + ",driverPath=" + driverPath + ",firefoxProfile="
+				+ firefoxProfile + ",grid=" + grid + ":" + capabilityProfile;
+	}
+
+	/**
+	 * @param value
+	 *            the value or {@code null}
+	 * @return {@code null} for an empty value, otherwise the trimmed value
+	 */
+	private static String emptyToNull(String value) {
+		if (value == null || value.trim().isEmpty()) {
+			return null;
+		}
+		return value.trim();
+	}
+}
@@ -15,6 +15,7 @@ package org.testeditor.fixture.web;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Calendar;
 
 import org.apache.log4j.Logger;
@@ -37,10 +38,18 @@ public class EclipseRapFixture extends WebFixture {
 
 	private static final String DEFAULT_DATE_FORMAT = "dd.MM.yyyy";
 
+	private static final String CHECK_IMAGES = "EclipseRapFixture.checkImages";
+
 	/**
 	 * Refines the behavior of the super class, such that the target element is
-	 * clicked once more, after the given <code>value</code> has been inserted
-	 * into the target element.
+	 * clicked once more, after the given <code>value</code> has been typed into
+	 * the target element. The RAP client may update the field after the click,
+	 * so the value of input fields and text areas is read from the found
+	 * element (see {@link FieldInsertion}) until it is the inserted value or
+	 * the wait time is over, otherwise a {@link StopTestException} is thrown.
+	 * Values set by a script (see {@link FieldInsertion}) need no second
+	 * click. Other elements (e.g. the divs of date selection widgets) format
+	 * the value, so the value is typed and not read.
 	 * 
 	 * @param elementListKey
 	 *            key to find the technical locator
@@ -49,7 +58,6 @@ public class EclipseRapFixture extends WebFixture {
 	 * @param replaceArgs
 	 *            values to replace the place holders in the element list entry
 	 *            with
-	 * @return true if input was successful, otherwise false
 	 */
 	@Override
 	public void insertIntoField(String value, String elementListKey, String... replaceArgs) {
@@ -57,32 +65,51 @@ public class EclipseRapFixture extends WebFixture {
 		WebElement element = findWebelement(elementListKey, replaceArgs);
 
 		if (element != null && element.isDisplayed()) {
-			element.click();
-			element.sendKeys(value);
-			// for a non-wrapping textarea this click caused an exception
-			if (!element.getTagName().equalsIgnoreCase("textarea")) {
-				waitTime(500);
+			String tagName = element.getTagName();
+			if (!tagName.matches("(?i)input|textarea")) {
 				element.click();
+				element.sendKeys(value);
+				element.click();
+				return;
 			}
 
-			String expectedValue;
-
-			if (element.getTagName().equalsIgnoreCase("input")) {
-				expectedValue = readAttributeFromField("value", elementListKey, replaceArgs);
-			} else {
-				// resolve to cheating (i.e. no plausibility checks) for
-				// problematic cases e.g. for div elements in date selection
-				// widgets
-				expectedValue = value;
+			FieldInsertion insertion = FieldInsertion.insert(getWebDriver(), element, value, getSession()
+					.getInsertScriptLength());
+			String insertedValue = insertion.getValue();
+			// for a non-wrapping textarea this click caused an exception
+			if (insertion.isTyped() && !tagName.equalsIgnoreCase("textarea")) {
+				element.click();
+				insertedValue = element.getAttribute("value");
 			}
 
-			if (assertIsEqualTo(value, expectedValue)) {
+			if (!waitForValue(element, value, insertedValue)) {
 				throw new StopTestException("Value wasn't inserted correctly");
 			}
 		}
 
 	}
 
+	/**
+	 * Waits until the field shows the value.
+	 * 
+	 * @param element
+	 *            the input field or text area
+	 * @param value
+	 *            the expected value
+	 * @param insertedValue
+	 *            the value of the field right after the insertion (and the
+	 *            second click)
+	 * @return {@code true} if the field shows the value
+	 */
+	private boolean waitForValue(WebElement element, String value, String insertedValue) {
+		String current = insertedValue;
+		for (int counter = 0; !assertIsEqualTo(value, current) && counter < getWaitCounter(); counter++) {
+			waitTime(getWaitInMillis());
+			current = element.getAttribute("value");
+		}
+		return assertIsEqualTo(value, current);
+	}
+
 	/**
 	 * Inserts the given date value into a date field. The technical locator of
 	 * the field gets identified by the element list matching the given key.
@@ -216,13 +243,12 @@ public class EclipseRapFixture extends WebFixture {
 	}
 
 	/**
-	 * (Horrible) Workaround to read RAP a checkbox. This method gets the
-	 * element (possibly by its id) and then reads its inner HTML text. In RAP
-	 * applications at least two <code>div</code> elements are nested within the
-	 * target <code>div</code> (possibly a third, when the checkbox is focused).
-	 * One of them sets the background image to display the current state of the
-	 * checkbox. The current state of the checkbox is identified by looking up
-	 * the image names from the element list.
+	 * (Horrible) Workaround to read RAP a checkbox. In RAP applications at
+	 * least two <code>div</code> elements are nested within the target
+	 * <code>div</code> (possibly a third, when the checkbox is focused). One of
+	 * them sets the background image to display the current state of the
+	 * checkbox. The current state of the checkbox is identified in the browser
+	 * by the image names from the element list (see {@link RapCheckImages}).
 	 * 
 	 * @param elementListKey
 	 *            key to find the technical locator
@@ -235,21 +261,22 @@ public class EclipseRapFixture extends WebFixture {
 	 */
 	@Override
 	public boolean readCheckbox(String elementListKey, String... replaceArgs) {
-		String innerHTML = readAttributeFromField("innerHTML", elementListKey, replaceArgs);
+		WebElement element = findWebelement(elementListKey, replaceArgs);
+		if (element != null && !element.isDisplayed()) {
+			element = null;
+		}
 
 		boolean result = false;
 		boolean error = false;
 
-		String uncheckedImg = getLocatorFromElementList("RAP_CHECK_UNCHECKED");
-		String uncheckedHoverImg = getLocatorFromElementList("RAP_CHECK_UNCHECKED_HOVER");
-		String checkedImg = getLocatorFromElementList("RAP_CHECK_CHECKED");
-		String checkedHoverImg = getLocatorFromElementList("RAP_CHECK_CHECKED_HOVER");
-
-		if (innerHTML.contains(uncheckedImg) || innerHTML.contains(uncheckedHoverImg)) {
+		switch (getCheckImages().readState(getWebDriver(), element)) {
+		case UNCHECKED:
 			result = false;
-		} else if (innerHTML.contains(checkedImg) || innerHTML.contains(checkedHoverImg)) {
+			break;
+		case CHECKED:
 			result = true;
-		} else {
+			break;
+		default:
 			error = true;
 		}
 
@@ -262,6 +289,24 @@ public class EclipseRapFixture extends WebFixture {
 		return result;
 	}
 
+	/**
+	 * Returns the image names of checkboxes. They are read from the element
+	 * list once and cached in the session.
+	 * 
+	 * @return the image names
+	 */
+	private RapCheckImages getCheckImages() {
+		RapCheckImages images = RapCheckImages.getCached(getSession(), CHECK_IMAGES, getElementlist());
+		if (images == null) {
+			images = new RapCheckImages(getElementlist(), Arrays.asList(
+					getLocatorFromElementList("RAP_CHECK_UNCHECKED"),
+					getLocatorFromElementList("RAP_CHECK_UNCHECKED_HOVER")), Arrays.asList(
+					getLocatorFromElementList("RAP_CHECK_CHECKED"), getLocatorFromElementList("RAP_CHECK_CHECKED_HOVER")));
+			getSession().putCached(CHECK_IMAGES, images);
+		}
+		return images;
+	}
+
 	/**
 	 * Works just like <code>readCheckbox(elementListKey, replaceArgs)</code>
 	 * except the argument <code>replaceArgs</code> is always an empty array.
@@ -358,7 +403,9 @@ public class EclipseRapFixture extends WebFixture {
 	}
 
 	/**
-	 * Selects the given value from drop down.
+	 * Selects the given value from drop down. The entries are read from the
+	 * client side RAP widget, so the value is selected directly (see
+	 * {@link RapCombo}).
 	 * 
 	 * @param value
 	 *            the value to select
@@ -379,7 +426,12 @@ public class EclipseRapFixture extends WebFixture {
 		 */
 
 		WebElement element = findWebelement(elementListKey, replaceArgs);
+		Boolean selected = RapCombo.select(getWebDriver(), element, value);
+		if (selected != null) {
+			return selected;
+		}
 
+		// no client side widget: search the entry key by key
 		element.click();
 		element.sendKeys(Keys.PAGE_UP);
 
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Inserts a value into a field and returns the value of the field afterwards,
+ * both through the handle of the field, so the field is not searched again for
+ * the verification. The result tells, whether the value was typed or set by a
+ * script.
+ * <p>
+ * The value is typed into the field key by key, which takes long for long
+ * values (e.g. a text of some KB in a text area). Values with at least the
+ * length of the session (see {@link WebSession#getInsertScriptLength()},
+ * default is the system property {@value #SCRIPT_LENGTH_PROPERTY}) are set by
+ * a script instead (see {@link BrowserScripts#INSERT_VALUE}), which fires the
+ * events 'input' and 'change' like the browser. Applications, which react on
+ * single keys, do not see the value this way, so the script is disabled by
+ * default (length 0).
+ */
+public final class FieldInsertion {
+
+	/**
+	 * System property with the minimal length of values, which are set by a
+	 * script, 0 to type all values.
+	 */
+	public static final String SCRIPT_LENGTH_PROPERTY = "testeditor.insert.scriptlength";
+
+	private final String value;
+
+	private final boolean typed;
+
+	/**
+	 * Results are created by
+	 * {@link #insert(WebDriver, WebElement, String, int)}.
+	 *
+	 * @param value
+	 *            the value of the field after the insertion
+	 * @param typed
+	 *            {@code true}, if the value was typed
+	 */
+	private FieldInsertion(String value, boolean typed) {
+		this.value = value;
+		this.typed = typed;
+	}
+
+	/**
+	 * Appends the value to the value of an input field or text area.
+	 *
+	 * @param webDriver
+	 *            the web driver
+	 * @param element
+	 *            the field, which is clicked before typing
+	 * @param value
+	 *            the value to insert
+	 * @param scriptLength
+	 *            the minimal length of values, which are set by a script, 0 to
+	 *            type all values
+	 * @return the insertion with the value of the field afterwards
+	 */
+	public static FieldInsertion insert(WebDriver webDriver, WebElement element, String value, int scriptLength) {
+		if (isScripted(webDriver, value, scriptLength)) {
+			Object inserted = ((JavascriptExecutor) webDriver).executeScript(BrowserScripts.INSERT_VALUE, element,
+					value);
+			if (inserted != null) {
+				return new FieldInsertion(inserted.toString(), false);
+			}
+		}
+		element.click();
+		element.sendKeys(value);
+		return new FieldInsertion(element.getAttribute("value"), true);
+	}
+
+	/**
+	 * @param webDriver
+	 *            the web driver
+	 * @param value
+	 *            the value to insert
+	 * @param scriptLength
+	 *            the minimal length of values, which are set by a script, 0 to
+	 *            type all values
+	 * @return {@code true}, if the value is set by a script
+	 */
+	public static boolean isScripted(WebDriver webDriver, String value, int scriptLength) {
+		return scriptLength > 0 && value.length() >= scriptLength && webDriver instanceof JavascriptExecutor;
+	}
+
+	/**
+	 * @return the value of the field after the insertion
+	 */
+	public String getValue() {
+		return value;
+	}
+
+	/**
+	 * @return {@code true}, if the value was typed (also if the script could
+	 *         not set it), {@code false} if it was set by the script
+	 */
+	public boolean isTyped() {
+		return typed;
+	}
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.firefox.FirefoxProfile;
+import org.openqa.selenium.firefox.internal.ProfilesIni;
+import org.openqa.selenium.io.FileHandler;
+
+/**
+ * Prepares Firefox profiles once per JVM and creates per-session profiles
+ * from them. Without the templates, Selenium copies the named profile (system
+ * property 'webdriver.firefox.profile') including its caches for the lookup
+ * and a second time for the session, for every started browser.
+ * <p>
+ * A template is the profile laid out once by
+ * {@link FirefoxProfile#layoutOnDisk()} without caches and lock files. A
+ * session profile is a {@link FirefoxProfile} with the template as model.
+ * Selenium copies the template into a new directory for each session, the
+ * files are not linked, so the startup still grows with the size of the
+ * template (e.g. its extensions), but no longer with the caches.
+ * <p>
+ * The serialized form of a profile (used for remote browsers) is cached per
+ * template and preferences. The preferences are read by the protected
+ * {@code updateUserPrefs} of {@link FirefoxProfile}, as Selenium offers no
+ * public access to them.
+ */
+public final class FirefoxProfileTemplates {
+
+	private static final Logger LOGGER = Logger.getLogger(FirefoxProfileTemplates.class);
+
+	private static final String[] CACHES = { "cache2", "Cache", "startupCache", "OfflineCache", "sessionstore.js",
+			"sessionstore-backups", "compreg.dat", "extensions.cache" };
+
+	/** Templates per profile name, the key {@code null} for a new profile. */
+	private static final Map<String, File> TEMPLATES = new HashMap<String, File>();
+
+	private static final Map<String, String> JSON_CACHE = new ConcurrentHashMap<String, String>();
+
+	/**
+	 * Profiles are created with {@link #newProfile(String)}.
+	 */
+	private FirefoxProfileTemplates() {
+	}
+
+	/**
+	 * Creates a profile for a new browser session based on the template of
+	 * the named profile. The template is prepared on the first call.
+	 *
+	 * @param profileName
+	 *            name of the Firefox profile (see 'profiles.ini') or
+	 *            {@code null} for a new, empty profile
+	 * @return the profile for the session
+	 */
+	public static FirefoxProfile newProfile(String profileName) {
+		return new TemplateProfile(getTemplate(profileName));
+	}
+
+	/**
+	 * Returns the template of the profile and prepares it, if necessary.
+	 *
+	 * @param profileName
+	 *            name of the Firefox profile or {@code null}
+	 * @return the directory of the template
+	 */
+	static synchronized File getTemplate(String profileName) {
+		File template = TEMPLATES.get(profileName);
+		if (template == null || !template.isDirectory()) {
+			template = prepareTemplate(profileName);
+			TEMPLATES.put(profileName, template);
+		}
+		return template;
+	}
+
+	/**
+	 * Lays out the profile and removes the caches and lock files.
+	 *
+	 * @param profileName
+	 *            name of the Firefox profile or {@code null}
+	 * @return the directory of the template
+	 */
+	private static File prepareTemplate(String profileName) {
+		long start = System.currentTimeMillis();
+		FirefoxProfile source = null;
+		if (profileName != null) {
+			source = new ProfilesIni().getProfile(profileName);
+			if (source == null) {
+				LOGGER.warn("Firefox profile '" + profileName + "' not found, a new profile is used.");
+			}
+		}
+		if (source == null) {
+			source = new FirefoxProfile();
+		}
+
+		File template = source.layoutOnDisk();
+		for (String cache : CACHES) {
+			File file = new File(template, cache);
+			if (file.exists()) {
+				FileHandler.delete(file);
+			}
+		}
+		LOGGER.info("Firefox profile template " + template + " prepared in " + (System.currentTimeMillis() - start)
+				+ " ms");
+		return template;
+	}
+
+	/**
+	 * Profile, which is laid out from a template.
+	 */
+	private static final class TemplateProfile extends FirefoxProfile {
+
+		private final File template;
+
+		/**
+		 * @param template
+		 *            the prepared template
+		 */
+		private TemplateProfile(File template) {
+			super(template);
+			this.template = template;
+		}
+
+		@Override
+		public String toJson() throws IOException {
+			String key = template.getPath() + "\n" + readUserPrefs();
+			String json = JSON_CACHE.get(key);
+			if (json == null) {
+				json = super.toJson();
+				JSON_CACHE.put(key, json);
+			}
+			return json;
+		}
+
+		/**
+		 * Writes the preferences with the protected method of Selenium to a
+		 * temporary file.
+		 *
+		 * @return the preferences of this profile as written to 'user.js'
+		 * @throws IOException
+		 *             if the preferences could not be written
+		 */
+		private String readUserPrefs() throws IOException {
+			File prefs = File.createTempFile("user", ".js");
+			try {
+				FileHandler.delete(prefs);
+				updateUserPrefs(prefs);
+				return FileHandler.readAsString(prefs);
+			} catch (WebDriverException e) {
+				throw new IOException(e);
+			} finally {
+				FileHandler.delete(prefs);
+			}
+		}
+	}
+}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.util.List;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.testeditor.fixture.core.exceptions.StopTestException;
+
+/**
+ * Searches a text in the page and in all of its same-origin frames. The texts
+ * of all frames are collected by one script, so no switching between the
+ * frames is necessary.
+ */
+public final class FrameTextSearch {
+
+	/**
+	 * Frames are searched with {@link #findFramePath(WebDriver, String, TextMatchMode)}.
+	 */
+	private FrameTextSearch() {
+	}
+
+	/**
+	 * Returns the path of the first frame, which contains the text. The page
+	 * itself is searched first and has the path '/', frames are named by their
+	 * name, id or index, e.g. '/content/details'.
+	 *
+	 * @param webDriver
+	 *            the web driver (must support JavaScript)
+	 * @param text
+	 *            the text or regular expression to be searched for
+	 * @param mode
+	 *            how to match the {@code text}
+	 * @return the path of the frame or {@code null} if the text is not found
+	 * @throws StopTestException
+	 *             if {@code text} is not a valid regular expression
+	 */
+	public static String findFramePath(WebDriver webDriver, String text, TextMatchMode mode)
+			throws StopTestException {
+		Object result = ((JavascriptExecutor) webDriver).executeScript(BrowserScripts.FRAME_TEXTS);
+		if (!(result instanceof List)) {
+			return null;
+		}
+
+		for (Object entry : (List<?>) result) {
+			List<?> frame = (List<?>) entry;
+			if (TextMatcher.matches(String.valueOf(frame.get(1)), text, mode)) {
+				return String.valueOf(frame.get(0));
+			}
+		}
+
+		return null;
+	}
+}
@@ -71,7 +71,10 @@ public class HtmlWebFixture extends AbstractWebFixture {
 
 	/**
 	 * Returns the value of the given web element. If the element has no value
-	 * attribute, the element text is returned.
+	 * attribute, the element text is returned. The element is found, checked
+	 * and read in the browser by one script (see
+	 * {@link BrowserScripts#ELEMENT_VALUE}), only the text is read by
+	 * {@link WebElement#getText()} afterwards.
 	 * 
 	 * @param elementListKey
 	 *            key in the element list to find the technical locator
@@ -82,43 +85,19 @@ public class HtmlWebFixture extends AbstractWebFixture {
 	 *             if element not available (hidden, not present) or a timeout
 	 *             occurred
 	 */
-	// CHECKSTYLE:OFF
 	public String readValueOfElement(String elementListKey, String... replaceArgs) throws StopTestException {
-		// CHECKSTYLE:ON
-		WebElement element = findAvailableWebElement(elementListKey, replaceArgs);
-
-		String value = null;
-
-		switch (element.getTagName()) {
-		case "input":
-			String type = element.getAttribute("type");
-			// handle check-box and radio-button different
-			if ("checkbox".equalsIgnoreCase(type) || "radio".equalsIgnoreCase(type)) {
-				value = getSelectionOfRadioButtonOrCheckBox(elementListKey, replaceArgs);
-				break;
-			}
-		case "option":
-		case "li":
-		case "button":
-		case "param":
-		case "progress":
-			value = element.getAttribute("value");
-			break;
-		case "select":
-			value = new Select(element).getFirstSelectedOption().getAttribute("value");
-			break;
-		case "img":
-		case "source":
-			value = element.getAttribute("src");
-			break;
-		default:
-			// used by <a>, <body>, <div>, <textarea>, ...
-			value = element.getText();
-			break;
+		List<WebElement> elements = findWebElements(elementListKey, replaceArgs);
+		Object value = executeScript(BrowserScripts.ELEMENT_VALUE, elements,
+				VisibleElements.hasLayout(getWebDriver()));
+		if (value == null) {
+			throw new StopTestException("The specified Gui-Element for the Key '"
+					+ createBy(elementListKey, replaceArgs) + "' could not be found on web page!");
 		}
-		// CHECKSTYLE:OFF
-		return value == null ? "" : value.trim();
-		// CHECKSTYLE:ON
+		if (value instanceof WebElement) {
+			// the visible text as computed by the driver
+			value = ((WebElement) value).getText();
+		}
+		return value.toString().trim();
 	}
 
 	/**
@@ -177,7 +156,9 @@ public class HtmlWebFixture extends AbstractWebFixture {
 	}
 
 	/**
-	 * Selects or deselects a radio-button or check-box.
+	 * Selects or deselects a radio-button or check-box. The element with the
+	 * value is searched in the browser by one script (see
+	 * {@link BrowserScripts#ELEMENT_WITH_VALUE}).
 	 * 
 	 * @param value
 	 *            the value to select
@@ -192,11 +173,10 @@ public class HtmlWebFixture extends AbstractWebFixture {
 	public boolean clickRadioButtonOrCheckBox(String value, String elementListKey, String... replaceArgs)
 			throws StopTestException {
 		List<WebElement> elements = findAllAvailableWebElements(elementListKey, replaceArgs);
-		for (WebElement webElement : elements) {
-			if (value.equalsIgnoreCase(webElement.getAttribute("value"))) {
-				webElement.click();
-				return true;
-			}
+		Object webElement = executeScript(BrowserScripts.ELEMENT_WITH_VALUE, elements, value);
+		if (webElement instanceof WebElement) {
+			((WebElement) webElement).click();
+			return true;
 		}
 		return false;
 	}
@@ -218,7 +198,9 @@ public class HtmlWebFixture extends AbstractWebFixture {
 	}
 
 	/**
-	 * Returns the current selection of a radio-button or check-box.
+	 * Returns the current selection of a radio-button or check-box. The
+	 * selected element is searched in the browser by one script (see
+	 * {@link BrowserScripts#SELECTED_VALUE}).
 	 * 
 	 * @param elementListKey
 	 *            key in the element list to find the technical locator
@@ -231,12 +213,11 @@ public class HtmlWebFixture extends AbstractWebFixture {
 	private String getSelectionOfRadioButtonOrCheckBox(String elementListKey, String... replaceArgs)
 			throws StopTestException {
 		List<WebElement> elements = findAllAvailableWebElements(elementListKey, replaceArgs);
-		for (WebElement webElement : elements) {
-			if (webElement.isSelected()) {
-				return webElement.getAttribute("value");
-			}
+		Object value = executeScript(BrowserScripts.SELECTED_VALUE, elements);
+		if (value == null) {
+			return null;
 		}
-		return null;
+		return value.toString();
 	}
 
 	/**
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.util.UUID;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Snapshot of the visible text of the current page, used while polling for a
+ * text. The text is kept in the browser and only transferred again, if it has
+ * changed since the last {@link #refresh()}.
+ */
+public class PageTextSnapshot {
+
+	private final WebDriver webDriver;
+	private final String token = UUID.randomUUID().toString();
+	private String text;
+
+	/**
+	 * Creates a snapshot for the current page of the given web driver.
+	 *
+	 * @param webDriver
+	 *            the web driver (must support JavaScript)
+	 */
+	public PageTextSnapshot(WebDriver webDriver) {
+		this.webDriver = webDriver;
+	}
+
+	/**
+	 * Updates the snapshot.
+	 *
+	 * @return {@code true} if the text changed since the last refresh (or on
+	 *         the first refresh), {@code false} otherwise
+	 */
+	public boolean refresh() {
+		Object result = ((JavascriptExecutor) webDriver).executeScript(BrowserScripts.PAGE_TEXT_SNAPSHOT, token);
+		if (result == null) {
+			return false;
+		}
+		text = result.toString();
+		return true;
+	}
+
+	/**
+	 * @return the text of the last refresh or {@code null} if there was no
+	 *         refresh
+	 */
+	public String getText() {
+		return text;
+	}
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.testeditor.fixture.core.elementlist.ElementListService;
+
+/**
+ * The image names, which show the state of RAP check boxes and radio buttons.
+ * RAP draws these widgets with a background image, so their state is found by
+ * the image names configured in the element list. The names are read from
+ * the element list once and kept in the {@link WebSession}. The state is
+ * evaluated in the browser against the computed background images of the
+ * widget (see {@link BrowserScripts#RAP_CHECK_STATE}), so only the state is
+ * transferred instead of the inner HTML of the widget.
+ */
+public final class RapCheckImages {
+
+	/**
+	 * State of a check box or radio button.
+	 */
+	public enum State {
+		/** One of the images of a selected widget is shown. */
+		CHECKED,
+		/** One of the images of a not selected widget is shown. */
+		UNCHECKED,
+		/** None of the configured images is shown. */
+		UNKNOWN
+	}
+
+	private final ElementListService elementList;
+
+	private final List<String> unchecked;
+
+	private final List<String> checked;
+
+	/**
+	 * @param elementList
+	 *            the element list, from which the image names are read
+	 * @param unchecked
+	 *            the image names of not selected widgets
+	 * @param checked
+	 *            the image names of selected widgets
+	 */
+	public RapCheckImages(ElementListService elementList, List<String> unchecked, List<String> checked) {
+		this.elementList = elementList;
+		this.unchecked = new ArrayList<String>(unchecked);
+		this.checked = new ArrayList<String>(checked);
+	}
+
+	/**
+	 * @param session
+	 *            the session of the current thread
+	 * @param key
+	 *            the key of the image names in the cache of the session
+	 * @param elementList
+	 *            the element list of the session
+	 * @return the cached image names of the element list or {@code null}, if
+	 *         they are not read yet
+	 */
+	public static RapCheckImages getCached(WebSession session, String key, ElementListService elementList) {
+		Object cached = session.getCached(key);
+		if (cached instanceof RapCheckImages && ((RapCheckImages) cached).elementList == elementList) {
+			return (RapCheckImages) cached;
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the state of a check box or radio button. If the images of both
+	 * states are shown, the widget is not selected.
+	 *
+	 * @param webDriver
+	 *            the web driver (must support JavaScript)
+	 * @param element
+	 *            the check box or radio button
+	 * @return the state, {@link State#UNKNOWN} without element
+	 */
+	public State readState(WebDriver webDriver, WebElement element) {
+		if (element == null) {
+			return State.UNKNOWN;
+		}
+		Object state = ((JavascriptExecutor) webDriver).executeScript(BrowserScripts.RAP_CHECK_STATE, element,
+				unchecked, checked);
+		return State.valueOf(String.valueOf(state));
+	}
+}
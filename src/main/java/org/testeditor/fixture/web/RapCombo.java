@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.util.List;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.Keys;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Selects an entry of a RAP combo box with a constant number of round trips
+ * to the browser, whatever the length of the list. The entries and the
+ * selected index are read from the client side RAP Combo widget in one
+ * script (see {@link BrowserScripts#RAP_COMBO_ITEMS}), then the selection is
+ * moved to the entry with one sequence of arrow keys. The keys are handled by
+ * RAP as if typed by the user, so the server is notified as before.
+ */
+public final class RapCombo {
+
+	/**
+	 * Values are selected with {@link #select(WebDriver, WebElement, String)}.
+	 */
+	private RapCombo() {
+	}
+
+	/**
+	 * Selects the first entry with the given text.
+	 *
+	 * @param webDriver
+	 *            the web driver (must support JavaScript)
+	 * @param field
+	 *            the input field of the combo box
+	 * @param value
+	 *            the text of the entry
+	 * @return {@code TRUE} if the entry is selected, {@code FALSE} if the combo
+	 *         box has no such entry, {@code null} if the entries are not
+	 *         available (no RAP widget) or the selection did not arrive at the
+	 *         entry, so the caller has to search the entry by itself
+	 */
+	public static Boolean select(WebDriver webDriver, WebElement field, String value) {
+		Object result = ((JavascriptExecutor) webDriver).executeScript(BrowserScripts.RAP_COMBO_ITEMS, field);
+		if (!(result instanceof List)) {
+			return null;
+		}
+		List<?> items = (List<?>) ((List<?>) result).get(0);
+		int target = items.indexOf(value);
+		if (target < 0) {
+			return Boolean.FALSE;
+		}
+		int selected = ((Number) ((List<?>) result).get(1)).intValue();
+
+		field.click();
+		String moves = getMoves(selected, target);
+		if (!moves.isEmpty()) {
+			field.sendKeys(moves);
+		}
+		if (!value.equals(field.getAttribute("value"))) {
+			return null;
+		}
+		field.click();
+		return Boolean.TRUE;
+	}
+
+	/**
+	 * @param selected
+	 *            the index of the selected entry, -1 without selection
+	 * @param target
+	 *            the index of the entry to select
+	 * @return the arrow keys to move the selection to the target
+	 */
+	static String getMoves(int selected, int target) {
+		StringBuilder moves = new StringBuilder();
+		for (int i = selected; i < target; i++) {
+			moves.append(Keys.DOWN);
+		}
+		for (int i = target; i < selected; i++) {
+			moves.append(Keys.UP);
+		}
+		return moves.toString();
+	}
+}
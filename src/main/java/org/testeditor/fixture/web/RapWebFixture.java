@@ -14,7 +14,10 @@ package org.testeditor.fixture.web;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
 
 import org.openqa.selenium.By;
 import org.openqa.selenium.Keys;
@@ -30,9 +33,12 @@ public class RapWebFixture extends AbstractWebFixture {
 
 	private static final String DEFAULT_DATE_FORMAT = "dd.MM.yyyy";
 
+	private static final String CHECK_IMAGES = "RapWebFixture.checkImages";
+
 	/**
 	 * Selects an option from an available drop down element by the visible
-	 * text.
+	 * text. The entries are read from the client side RAP widget, so the
+	 * option is selected directly (see {@link RapCombo}).
 	 * 
 	 * <p/>
 	 * <b>Hint:</b> Doesn't work for drop down lists with duplicate entries.
@@ -57,9 +63,14 @@ public class RapWebFixture extends AbstractWebFixture {
 		 * share a common XPATH.
 		 */
 
-		boolean result = false;
 		WebElement element = findAvailableWebElement(elementListKey, replaceArgs);
+		Boolean selected = RapCombo.select(getWebDriver(), element, value);
+		if (selected != null) {
+			return selected;
+		}
 
+		// no client side widget: search the entry key by key
+		boolean result = false;
 		element.click();
 		// start on top of the list
 		element.sendKeys(Keys.DOWN);
@@ -255,8 +266,6 @@ public class RapWebFixture extends AbstractWebFixture {
 	public boolean deprecatedInsertIntoDateField(String value, String dateFormat, String elementListKey,
 			String... replaceArgs) throws StopTestException {
 
-		boolean result = true;
-
 		final DateFormat df = new SimpleDateFormat(dateFormat);
 		final Calendar calendar = Calendar.getInstance();
 		try {
@@ -265,46 +274,10 @@ public class RapWebFixture extends AbstractWebFixture {
 			throw new StopTestException("Date format don't match with date value");
 		}
 
-		// get outer calendar element
-		WebElement element = findAvailableWebElement(elementListKey, replaceArgs);
-
-		// Find div element that contains day/month/year divs. This is
-		// necessary, because RAP renders different HTML for chrome, firefox
-		// and ie.
-		WebElement parent = element.findElement(By.xpath(".//div[5]/.."));
-
-		// YEAR
-		WebElement year = parent.findElement(By.xpath("./div[5]"));
-		if (year != null && year.isDisplayed()) {
-			year.click();
-			year.sendKeys(calendar.get(Calendar.YEAR) + "");
-			year.click();
-		} else {
-			result = false;
-		}
-
-		// MONTH
-		WebElement month = parent.findElement(By.xpath("./div[1]"));
-		if (month != null && month.isDisplayed()) {
-			month.click();
-			// add +1 because month field is 0-based
-			month.sendKeys(calendar.get(Calendar.MONTH) + 1 + "");
-			month.click();
-		} else {
-			result = false;
-		}
-
-		// DAY
-		WebElement day = parent.findElement(By.xpath("./div[3]"));
-		if (day != null && day.isDisplayed()) {
-			day.click();
-			day.sendKeys(calendar.get(Calendar.DAY_OF_MONTH) + "");
-			day.click();
-		} else {
-			result = false;
-		}
-
-		return result;
+		// add +1 because month field is 0-based
+		return insertIntoDateField(String.valueOf(calendar.get(Calendar.DAY_OF_MONTH)),
+				String.valueOf(calendar.get(Calendar.MONTH) + 1), String.valueOf(calendar.get(Calendar.YEAR)),
+				elementListKey, replaceArgs);
 	}
 
 	/**
@@ -362,6 +335,11 @@ public class RapWebFixture extends AbstractWebFixture {
 	/**
 	 * Inserts the given date value into a date field. The technical locator of
 	 * the field gets identified by the element list matching the given key.
+	 * <p/>
+	 * The day, month and year fields are located in one script, which sets
+	 * the date through the client side RAP DateTime widget, if available (see
+	 * {@link BrowserScripts#RAP_DATE_FIELD}), and checks the widget afterwards.
+	 * Otherwise the values are typed into the visible fields.
 	 * 
 	 * @param dayValue
 	 *            the day of the date (1-31)
@@ -378,34 +356,28 @@ public class RapWebFixture extends AbstractWebFixture {
 	 * @return {@code true} if date was insert successful, {@code false}
 	 *         otherwise
 	 * @throws StopTestException
-	 *             if element not available (hidden, not present) or a timeout
-	 *             occurred
+	 *             if element not available (hidden, not present), a timeout
+	 *             occurred or the widget does not hold the date afterwards
+	 *             (e.g. an invalid date)
 	 */
 	public boolean insertIntoDateField(String dayValue, String monthValue, String yearValue, String elementListKey,
 			String... replaceArgs) throws StopTestException {
 
-		// get outer calendar element
-		WebElement element = findAvailableWebElement(elementListKey, replaceArgs);
-
-		// Find div element that contains day/month/year divs. This is
-		// necessary, because RAP renders different HTML for chrome, firefox
-		// and ie.
-		WebElement parent = element.findElement(By.xpath(".//div[5]/.."));
+		List<?> fields = executeDateFieldScript(Arrays.asList(dayValue, monthValue, yearValue), elementListKey,
+				replaceArgs);
+		if (Boolean.TRUE.equals(fields.get(0))) {
+			return true;
+		}
+		if (fields.size() == 1) {
+			throw new StopTestException("The date field '" + elementListKey + "' does not accept the date "
+					+ dayValue + "." + monthValue + "." + yearValue + ", it shows "
+					+ readDateField(elementListKey, replaceArgs) + ".");
+		}
 
 		boolean result = true;
-
-		// YEAR
-		WebElement year = parent.findElement(By.xpath("./div[5]"));
-		result &= sendDateValue(yearValue, year);
-
-		// MONTH
-		WebElement month = parent.findElement(By.xpath("./div[1]"));
-		result &= sendDateValue(monthValue, month);
-
-		// DAY
-		WebElement day = parent.findElement(By.xpath("./div[3]"));
-		result &= sendDateValue(dayValue, day);
-
+		result &= sendDateValue(yearValue, (WebElement) fields.get(3));
+		result &= sendDateValue(monthValue, (WebElement) fields.get(2));
+		result &= sendDateValue(dayValue, (WebElement) fields.get(1));
 		return result;
 	}
 
@@ -439,12 +411,13 @@ public class RapWebFixture extends AbstractWebFixture {
 	 * @param value
 	 *            the value to insert
 	 * @param element
-	 *            the date element (day, month or year field)
+	 *            the visible date element (day, month or year field) or
+	 *            {@code null} if it is hidden
 	 * @return {@code true} if {@code value} was insert successful,
 	 *         {@code false} otherwise
 	 */
 	private boolean sendDateValue(String value, WebElement element) {
-		if (element != null && element.isDisplayed()) {
+		if (element != null) {
 			element.click();
 			element.sendKeys(value);
 			element.click();
@@ -469,24 +442,35 @@ public class RapWebFixture extends AbstractWebFixture {
 	 *             occurred
 	 */
 	public String readDateField(String elementListKey, String... replaceArgs) throws StopTestException {
+		List<?> texts = executeDateFieldScript(Collections.<String> emptyList(), elementListKey, replaceArgs);
+		return texts.get(0) + "." + texts.get(1) + "." + texts.get(2);
+	}
+
+	/**
+	 * Executes {@link BrowserScripts#RAP_DATE_FIELD} on the date field.
+	 * 
+	 * @param values
+	 *            the values [day, month, year] to insert or an empty list to
+	 *            read the date
+	 * @param elementListKey
+	 *            key to find the technical locator of the date field
+	 * @param replaceArgs
+	 *            values to replace the place holders in the element list entry
+	 *            with
+	 * @return the result of the script
+	 * @throws StopTestException
+	 *             if element not available (hidden, not present), a timeout
+	 *             occurred or the element is no date field
+	 */
+	private List<?> executeDateFieldScript(List<String> values, String elementListKey, String... replaceArgs)
+			throws StopTestException {
 		// get outer calendar element
 		WebElement element = findAvailableWebElement(elementListKey, replaceArgs);
-
-		// Find div element that contains day/month/year divs. This is
-		// necessary, because RAP renders different HTML for chrome, firefox
-		// and ie.
-		WebElement parent = element.findElement(By.xpath(".//div[5]/.."));
-
-		// YEAR
-		WebElement year = parent.findElement(By.xpath("./div[5]"));
-
-		// MONTH
-		WebElement month = parent.findElement(By.xpath("./div[1]"));
-
-		// DAY
-		WebElement day = parent.findElement(By.xpath("./div[3]"));
-
-		return day.getText() + "." + month.getText() + "." + year.getText();
+		Object result = executeScript(BrowserScripts.RAP_DATE_FIELD, element, values);
+		if (!(result instanceof List)) {
+			throw new StopTestException("The element '" + elementListKey + "' has no day, month and year fields.");
+		}
+		return (List<?>) result;
 	}
 
 	/**
@@ -833,14 +817,13 @@ public class RapWebFixture extends AbstractWebFixture {
 	 * Checks if a check-box or radio-button is selected.
 	 * 
 	 * <p />
-	 * (Horrible) Workaround to read RAP a check-box or radio-button. This
-	 * method gets the element (possibly by its id) and then reads its inner
-	 * HTML text. In RAP applications at least two {@code div} elements are
-	 * nested within the target {@code div} (possibly a third, when the
-	 * check-box/radio-button is focused). One of them sets the background image
-	 * to display the current state of the check-box/radio-button. The current
-	 * state of the check-box/radio-button is identified by looking up the image
-	 * names from the element list.
+	 * (Horrible) Workaround to read RAP a check-box or radio-button. In RAP
+	 * applications at least two {@code div} elements are nested within the
+	 * target {@code div} (possibly a third, when the check-box/radio-button is
+	 * focused). One of them sets the background image to display the current
+	 * state of the check-box/radio-button. The current state of the
+	 * check-box/radio-button is identified in the browser by the image names
+	 * from the element list (see {@link RapCheckImages}).
 	 * 
 	 * @param elementListKey
 	 *            key to find the technical locator
@@ -859,32 +842,42 @@ public class RapWebFixture extends AbstractWebFixture {
 	public boolean checkIsSelected(String elementListKey, String... replaceArgs)
 			throws StopTestException, ContinueTestException {
 		WebElement element = findAvailableWebElement(elementListKey, replaceArgs);
-		String innerHTML = element.getAttribute("innerHTML");
-
-		// Check-Boxes
-		String uncheckedCheckBoxImg = readConfigurationFromElementList("RAP_CHECKBOX_UNCHECKED");
-		String uncheckedCheckBoxHoverImg = readConfigurationFromElementList("RAP_CHECKBOX_UNCHECKED_HOVER");
-		String checkedCheckBoxImg = readConfigurationFromElementList("RAP_CHECKBOX_CHECKED");
-		String checkedCheckBoxHoverImg = readConfigurationFromElementList("RAP_CHECKBOX_CHECKED_HOVER");
-
-		// Radio-Buttons
-		String uncheckedRadioButtonImg = readConfigurationFromElementList("RAP_RADIOBUTTON_UNCHECKED");
-		String uncheckedRadioButtonHoverImg = readConfigurationFromElementList("RAP_RADIOBUTTON_UNCHECKED_HOVER");
-		String checkedRadioButtonImg = readConfigurationFromElementList("RAP_RADIOBUTTON_CHECKED");
-		String checkedRadioButtonHoverImg = readConfigurationFromElementList("RAP_RADIOBUTTON_CHECKED_HOVER");
-
-		if (innerHTML.contains(uncheckedCheckBoxImg) || innerHTML.contains(uncheckedCheckBoxHoverImg)
-				|| innerHTML.contains(uncheckedRadioButtonImg) || innerHTML.contains(uncheckedRadioButtonHoverImg)) {
+		switch (getCheckImages().readState(getWebDriver(), element)) {
+		case UNCHECKED:
 			return false;
-		} else if (innerHTML.contains(checkedCheckBoxImg) || innerHTML.contains(checkedCheckBoxHoverImg)
-				|| innerHTML.contains(checkedRadioButtonImg) || innerHTML.contains(checkedRadioButtonHoverImg)) {
+		case CHECKED:
 			return true;
-		} else {
+		default:
 			throw new ContinueTestException(
 					"Please check the configuration for Check-Boxes and Radio-Buttons in your element list.");
 		}
 	}
 
+	/**
+	 * Returns the image names of check-boxes and radio-buttons. They are read
+	 * from the element list once and cached in the session.
+	 * 
+	 * @return the image names
+	 * @throws ContinueTestException
+	 *             if an image name is missing or not set in the element list
+	 */
+	private RapCheckImages getCheckImages() throws ContinueTestException {
+		RapCheckImages images = RapCheckImages.getCached(getSession(), CHECK_IMAGES, getElementListService());
+		if (images == null) {
+			List<String> unchecked = Arrays.asList(readConfigurationFromElementList("RAP_CHECKBOX_UNCHECKED"),
+					readConfigurationFromElementList("RAP_CHECKBOX_UNCHECKED_HOVER"),
+					readConfigurationFromElementList("RAP_RADIOBUTTON_UNCHECKED"),
+					readConfigurationFromElementList("RAP_RADIOBUTTON_UNCHECKED_HOVER"));
+			List<String> checked = Arrays.asList(readConfigurationFromElementList("RAP_CHECKBOX_CHECKED"),
+					readConfigurationFromElementList("RAP_CHECKBOX_CHECKED_HOVER"),
+					readConfigurationFromElementList("RAP_RADIOBUTTON_CHECKED"),
+					readConfigurationFromElementList("RAP_RADIOBUTTON_CHECKED_HOVER"));
+			images = new RapCheckImages(getElementListService(), unchecked, checked);
+			getSession().putCached(CHECK_IMAGES, images);
+		}
+		return images;
+	}
+
 	/**
 	 * Reads a configuration from the element list.
 	 * 
@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.openqa.grid.common.RegistrationRequest;
+import org.openqa.grid.internal.Registry;
+import org.openqa.grid.internal.utils.GridHubConfiguration;
+import org.openqa.grid.internal.utils.SelfRegisteringRemote;
+import org.openqa.grid.web.Hub;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.Platform;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.testeditor.fixture.core.exceptions.StopTestException;
+
+/**
+ * Opens browser sessions through a Selenium grid hub instead of starting the
+ * browsers directly. The hub limits the number of concurrent sessions per
+ * node and queues the requests for new sessions above the limit, so the
+ * browser capacity of a machine is managed at one place, even if many
+ * fixture instances run concurrently.
+ * <p/>
+ * The grid is either a running hub (its URL, e.g.
+ * 'http://localhost:4444/wd/hub') or {@value #EMBEDDED}: a hub and a node
+ * started once inside this JVM on free local ports and stopped by a shutdown
+ * hook. The embedded node offers Firefox, Chrome, HtmlUnit and on Windows the
+ * Internet Explorer with at most {@value #MAX_SESSIONS_PROPERTY} (default
+ * {@value #DEFAULT_MAX_SESSIONS}) concurrent sessions. It starts the browsers
+ * with the system properties 'webdriver.chrome.driver' and
+ * 'webdriver.ie.driver' of this JVM. Queued requests wait up to
+ * {@value #SESSION_WAIT_PROPERTY} seconds (default
+ * {@value #DEFAULT_SESSION_WAIT}).
+ * <p/>
+ * The default grid of the fixtures is the system property
+ * {@value #GRID_PROPERTY}, without it the browsers are started directly.
+ */
+public final class SeleniumGrid {
+
+	/** System property for the default grid: a hub URL or 'embedded'. */
+	public static final String GRID_PROPERTY = "testeditor.grid";
+
+	/** System property for the maximum sessions of the embedded node. */
+	public static final String MAX_SESSIONS_PROPERTY = "testeditor.grid.maxsessions";
+
+	/** System property for the maximum wait time of queued requests. */
+	public static final String SESSION_WAIT_PROPERTY = "testeditor.grid.sessionwait";
+
+	/** Name of the grid started inside this JVM. */
+	public static final String EMBEDDED = "embedded";
+
+	/** Default maximum number of concurrent sessions of the embedded node. */
+	public static final int DEFAULT_MAX_SESSIONS = 5;
+
+	/** Default maximum wait time in seconds of queued requests. */
+	public static final int DEFAULT_SESSION_WAIT = 600;
+
+	private static final String LOCALHOST = "localhost";
+
+	private static final String HUB_PATH = "/wd/hub";
+
+	private static final Logger LOGGER = Logger.getLogger(SeleniumGrid.class);
+
+	private static Hub hub;
+
+	private static SelfRegisteringRemote node;
+
+	private static boolean shutdownHookRegistered;
+
+	/**
+	 * Drivers of a grid are created with {@link #createDriver(String, Capabilities)}.
+	 */
+	private SeleniumGrid() {
+	}
+
+	/**
+	 * Opens a new session through the grid. If the grid has no free slot for
+	 * the capabilities, the request waits in the queue of the hub.
+	 *
+	 * @param grid
+	 *            {@value #EMBEDDED} or the URL of a running hub
+	 * @param capabilities
+	 *            the desired capabilities of the session
+	 * @return the web driver of the new session
+	 * @throws StopTestException
+	 *             if the grid could not be started or refused the session
+	 */
+	public static WebDriver createDriver(String grid, Capabilities capabilities) throws StopTestException {
+		long start = StartupProfiler.start();
+		URL url = getUrl(grid);
+		StartupProfiler.recordPhase(StartupProfiler.SERVICE, start);
+		start = StartupProfiler.start();
+		try {
+			return new RemoteWebDriver(url, capabilities);
+			// CHECKSTYLE:OFF
+		} catch (RuntimeException e) {
+			// CHECKSTYLE:ON
+			throw new StopTestException("No session for " + capabilities.getBrowserName() + " at grid '" + url
+					+ "': " + e.getMessage(), e);
+		} finally {
+			StartupProfiler.recordPhase(StartupProfiler.SESSION, start);
+		}
+	}
+
+	/**
+	 * Returns the URL for new sessions, starts the embedded grid if necessary.
+	 *
+	 * @param grid
+	 *            {@value #EMBEDDED} or the URL of a running hub, the path
+	 *            '/wd/hub' is optional
+	 * @return the URL for new sessions
+	 * @throws StopTestException
+	 *             if the URL is invalid or the embedded grid could not be
+	 *             started
+	 */
+	public static URL getUrl(String grid) throws StopTestException {
+		String value = String.valueOf(grid).trim();
+		if (EMBEDDED.equalsIgnoreCase(value)) {
+			value = startEmbedded().toString();
+		}
+		if (value.endsWith("/")) {
+			value = value.substring(0, value.length() - 1);
+		}
+		if (!value.endsWith(HUB_PATH)) {
+			value = value + HUB_PATH;
+		}
+		try {
+			return new URL(value);
+		} catch (MalformedURLException e) {
+			throw new StopTestException("Invalid URL of the Selenium grid: '" + grid + "'.", e);
+		}
+	}
+
+	/**
+	 * Starts the embedded hub and node, if they are not running.
+	 *
+	 * @return the URL of the embedded hub
+	 * @throws StopTestException
+	 *             if the hub or the node could not be started
+	 */
+	public static synchronized URL startEmbedded() throws StopTestException {
+		if (hub != null) {
+			return hub.getUrl();
+		}
+		int maxSessions = Math.max(1, Integer.getInteger(MAX_SESSIONS_PROPERTY, DEFAULT_MAX_SESSIONS));
+		int sessionWait = Integer.getInteger(SESSION_WAIT_PROPERTY, DEFAULT_SESSION_WAIT);
+		try {
+			GridHubConfiguration configuration = new GridHubConfiguration();
+			configuration.setHost(LOCALHOST);
+			configuration.setPort(getFreePort());
+			configuration.setNewSessionWaitTimeout(sessionWait * 1000);
+			configuration.setThrowOnCapabilityNotPresent(true);
+			hub = new Hub(configuration);
+			hub.start();
+
+			RegistrationRequest request = RegistrationRequest.build("-role", "node", "-host", LOCALHOST, "-port",
+					String.valueOf(getFreePort()), "-hub", hub.getRegistrationURL().toString(), "-maxSession",
+					String.valueOf(maxSessions));
+			request.setCapabilities(getNodeCapabilities(maxSessions));
+			node = new SelfRegisteringRemote(request);
+			node.startRemoteServer();
+			node.sendRegistrationRequest();
+			// CHECKSTYLE:OFF
+		} catch (Exception e) {
+			// CHECKSTYLE:ON
+			stopEmbedded();
+			throw new StopTestException("The embedded Selenium grid could not be started: " + e.getMessage(), e);
+		}
+
+		LOGGER.info("Started embedded Selenium grid at " + hub.getUrl() + " with " + maxSessions + " sessions.");
+		registerShutdownHook();
+		return hub.getUrl();
+	}
+
+	/**
+	 * Stops the embedded hub and node. Open sessions are lost.
+	 */
+	public static synchronized void stopEmbedded() {
+		if (node != null) {
+			try {
+				node.stopRemoteServer();
+				// CHECKSTYLE:OFF
+			} catch (RuntimeException e) {
+				// CHECKSTYLE:ON
+				LOGGER.debug("The embedded Selenium node could not be stopped.", e);
+			}
+			node = null;
+		}
+		if (hub != null) {
+			try {
+				hub.stop();
+				// CHECKSTYLE:OFF
+			} catch (Exception e) {
+				// CHECKSTYLE:ON
+				LOGGER.debug("The embedded Selenium hub could not be stopped.", e);
+			}
+			hub = null;
+		}
+	}
+
+	/**
+	 * Returns the load of the embedded grid, e.g. 'sessions=2, queued=1'.
+	 *
+	 * @return the number of active and queued sessions, empty if the
+	 *         embedded grid is not running
+	 */
+	public static synchronized String getStatus() {
+		if (hub == null) {
+			return "";
+		}
+		Registry registry = hub.getRegistry();
+		return "sessions=" + registry.getActiveSessions().size() + ", queued="
+				+ registry.getNewSessionRequestCount();
+	}
+
+	/**
+	 * @param maxInstances
+	 *            the maximum number of sessions per browser
+	 * @return the browsers of the embedded node
+	 */
+	private static List<DesiredCapabilities> getNodeCapabilities(int maxInstances) {
+		List<DesiredCapabilities> browsers = new ArrayList<DesiredCapabilities>();
+		browsers.add(DesiredCapabilities.firefox());
+		browsers.add(DesiredCapabilities.chrome());
+		browsers.add(DesiredCapabilities.htmlUnit());
+		if (Platform.getCurrent().is(Platform.WINDOWS)) {
+			browsers.add(DesiredCapabilities.internetExplorer());
+		}
+		for (DesiredCapabilities browser : browsers) {
+			browser.setCapability(RegistrationRequest.MAX_INSTANCES, maxInstances);
+		}
+		return browsers;
+	}
+
+	/**
+	 * @return a free local port
+	 * @throws IOException
+	 *             if no port is free
+	 */
+	private static int getFreePort() throws IOException {
+		// CHECKSTYLE:OFF
+		try (ServerSocket socket = new ServerSocket(0)) {
+			// CHECKSTYLE:ON
+			return socket.getLocalPort();
+		}
+	}
+
+	/**
+	 * Registers a shutdown hook on first use, which stops the embedded grid.
+	 * The pooled sessions are closed before, as they need the running grid.
+	 */
+	private static void registerShutdownHook() {
+		if (!shutdownHookRegistered) {
+			Runtime.getRuntime().addShutdownHook(new Thread("selenium-grid-shutdown") {
+
+				@Override
+				public void run() {
+					BrowserPool.getInstance().shutdown();
+					stopEmbedded();
+				}
+			});
+			shutdownHookRegistered = true;
+		}
+	}
+}
@@ -0,0 +1,321 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.testeditor.fixture.core.exceptions.StopTestException;
+
+/**
+ * Snapshot of an (authenticated) browser session: the cookies and the local
+ * and session storage of the current page. Restoring the snapshot into
+ * another browser session skips e.g. the login of a test.
+ */
+public final class SessionSnapshot {
+
+	private static final String URL = "url";
+	private static final String COOKIE = "cookie.";
+	private static final String LOCAL_STORAGE = "localStorage.";
+	private static final String SESSION_STORAGE = "sessionStorage.";
+
+	private static final Logger LOGGER = Logger.getLogger(SessionSnapshot.class);
+
+	private final String url;
+	private final List<Cookie> cookies;
+	private final Map<String, String> localStorage;
+	private final Map<String, String> sessionStorage;
+
+	/**
+	 * Creates a snapshot.
+	 *
+	 * @param url
+	 *            the URL of the page, where the snapshot was taken
+	 * @param cookies
+	 *            the cookies
+	 * @param localStorage
+	 *            the entries of the local storage
+	 * @param sessionStorage
+	 *            the entries of the session storage
+	 */
+	public SessionSnapshot(String url, List<Cookie> cookies, Map<String, String> localStorage,
+			Map<String, String> sessionStorage) {
+		this.url = url;
+		this.cookies = Collections.unmodifiableList(new ArrayList<Cookie>(cookies));
+		this.localStorage = Collections.unmodifiableMap(new LinkedHashMap<String, String>(localStorage));
+		this.sessionStorage = Collections.unmodifiableMap(new LinkedHashMap<String, String>(sessionStorage));
+	}
+
+	/**
+	 * Takes a snapshot of the current page of the browser.
+	 *
+	 * @param webDriver
+	 *            the browser
+	 * @return the snapshot
+	 */
+	public static SessionSnapshot capture(WebDriver webDriver) {
+		List<?> result = (List<?>) ((JavascriptExecutor) webDriver).executeScript(BrowserScripts.READ_STORAGE);
+		return new SessionSnapshot(String.valueOf(result.get(0)),
+				new ArrayList<Cookie>(webDriver.manage().getCookies()), toMap((List<?>) result.get(1)),
+				toMap((List<?>) result.get(2)));
+	}
+
+	/**
+	 * Restores the snapshot into the browser. The browser shows the page,
+	 * where the snapshot was taken, afterwards. Navigate to the page of the
+	 * test after restoring the snapshot, so the page is loaded with the
+	 * restored cookies.
+	 *
+	 * @param webDriver
+	 *            the browser
+	 */
+	public void restore(WebDriver webDriver) {
+		webDriver.get(url);
+		WebDriver.Options options = webDriver.manage();
+		options.deleteAllCookies();
+		String host = getHost(url);
+		for (Cookie cookie : cookies) {
+			try {
+				options.addCookie(cookie);
+			} catch (WebDriverException e) {
+				if (!isDomainOf(cookie.getDomain(), host)) {
+					LOGGER.warn("Cookie '" + cookie.getName() + "' of the domain '" + cookie.getDomain()
+							+ "' is not restored, it does not belong to " + url + ".");
+					continue;
+				}
+				// some drivers do not accept the notation of the domain (e.g.
+				// '.host'), the cookie is set for the host of the page instead
+				options.addCookie(new Cookie(cookie.getName(), cookie.getValue(), null, cookie.getPath(), cookie
+						.getExpiry(), cookie.isSecure()));
+			}
+		}
+		((JavascriptExecutor) webDriver).executeScript(BrowserScripts.WRITE_STORAGE, toList(localStorage),
+				toList(sessionStorage));
+	}
+
+	/**
+	 * @return the URL of the page, where the snapshot was taken
+	 */
+	public String getUrl() {
+		return url;
+	}
+
+	/**
+	 * @return the cookies
+	 */
+	public List<Cookie> getCookies() {
+		return cookies;
+	}
+
+	/**
+	 * @return the entries of the local storage
+	 */
+	public Map<String, String> getLocalStorage() {
+		return localStorage;
+	}
+
+	/**
+	 * @return the entries of the session storage
+	 */
+	public Map<String, String> getSessionStorage() {
+		return sessionStorage;
+	}
+
+	/**
+	 * Writes the snapshot to a properties file.
+	 *
+	 * @param file
+	 *            the file
+	 * @throws StopTestException
+	 *             if the file could not be written
+	 */
+	public void store(File file) throws StopTestException {
+		Properties properties = new Properties();
+		properties.setProperty(URL, url);
+		for (int i = 0; i < cookies.size(); i++) {
+			Cookie cookie = cookies.get(i);
+			String prefix = COOKIE + i + ".";
+			properties.setProperty(prefix + "name", cookie.getName());
+			properties.setProperty(prefix + "value", cookie.getValue());
+			setIfNotNull(properties, prefix + "domain", cookie.getDomain());
+			setIfNotNull(properties, prefix + "path", cookie.getPath());
+			if (cookie.getExpiry() != null) {
+				properties.setProperty(prefix + "expiry", String.valueOf(cookie.getExpiry().getTime()));
+			}
+			properties.setProperty(prefix + "secure", String.valueOf(cookie.isSecure()));
+		}
+		for (Map.Entry<String, String> entry : localStorage.entrySet()) {
+			properties.setProperty(LOCAL_STORAGE + entry.getKey(), entry.getValue());
+		}
+		for (Map.Entry<String, String> entry : sessionStorage.entrySet()) {
+			properties.setProperty(SESSION_STORAGE + entry.getKey(), entry.getValue());
+		}
+
+		// CHECKSTYLE:OFF
+		try (OutputStream out = new FileOutputStream(file)) {
+			// CHECKSTYLE:ON
+			properties.store(out, "Session snapshot");
+		} catch (IOException e) {
+			throw new StopTestException("The session snapshot '" + file + "' could not be written.", e);
+		}
+	}
+
+	/**
+	 * Reads a snapshot from a properties file.
+	 *
+	 * @param file
+	 *            the file
+	 * @return the snapshot
+	 * @throws StopTestException
+	 *             if the file could not be read
+	 */
+	public static SessionSnapshot load(File file) throws StopTestException {
+		Properties properties = new Properties();
+		// CHECKSTYLE:OFF
+		try (InputStream in = new FileInputStream(file)) {
+			// CHECKSTYLE:ON
+			properties.load(in);
+		} catch (IOException e) {
+			throw new StopTestException("The session snapshot '" + file + "' could not be read.", e);
+		}
+
+		List<Cookie> cookies = new ArrayList<Cookie>();
+		for (int i = 0; properties.containsKey(COOKIE + i + ".name"); i++) {
+			String prefix = COOKIE + i + ".";
+			cookies.add(new Cookie(properties.getProperty(prefix + "name"), properties.getProperty(prefix + "value"),
+					properties.getProperty(prefix + "domain"), properties.getProperty(prefix + "path"),
+					toDate(properties.getProperty(prefix + "expiry")), Boolean.parseBoolean(properties.getProperty(prefix + "secure"))));
+		}
+
+		Map<String, String> local = new LinkedHashMap<String, String>();
+		Map<String, String> session = new LinkedHashMap<String, String>();
+		for (String key : properties.stringPropertyNames()) {
+			if (key.startsWith(LOCAL_STORAGE)) {
+				local.put(key.substring(LOCAL_STORAGE.length()), properties.getProperty(key));
+			} else if (key.startsWith(SESSION_STORAGE)) {
+				session.put(key.substring(SESSION_STORAGE.length()), properties.getProperty(key));
+			}
+		}
+
+		return new SessionSnapshot(properties.getProperty(URL), cookies, local, session);
+	}
+
+	/**
+	 * @param url
+	 *            the URL of a page
+	 * @return the host of the URL in lower case or {@code null}
+	 */
+	private static String getHost(String url) {
+		try {
+			String host = new URI(url).getHost();
+			if (host == null) {
+				return null;
+			}
+			return host.toLowerCase();
+		} catch (URISyntaxException e) {
+			LOGGER.debug("No host in '" + url + "'.", e);
+			return null;
+		}
+	}
+
+	/**
+	 * @param domain
+	 *            the domain of a cookie or {@code null}
+	 * @param host
+	 *            the host of the page or {@code null}
+	 * @return {@code true}, if the cookie belongs to the host (e.g. the domain
+	 *         '.example.org' to the host 'www.example.org')
+	 */
+	private static boolean isDomainOf(String domain, String host) {
+		if (domain == null) {
+			return true;
+		}
+		String name = domain.toLowerCase();
+		if (name.startsWith(".")) {
+			name = name.substring(1);
+		}
+		return host != null && (host.equals(name) || host.endsWith("." + name));
+	}
+
+	/**
+	 * @param entries
+	 *            flat list [key1, value1, key2, value2, ...]
+	 * @return the entries as map
+	 */
+	private static Map<String, String> toMap(List<?> entries) {
+		Map<String, String> map = new LinkedHashMap<String, String>();
+		for (int i = 0; i + 1 < entries.size(); i += 2) {
+			map.put(String.valueOf(entries.get(i)), String.valueOf(entries.get(i + 1)));
+		}
+		return map;
+	}
+
+	/**
+	 * @param map
+	 *            the entries
+	 * @return the entries as flat list [key1, value1, key2, value2, ...]
+	 */
+	private static List<String> toList(Map<String, String> map) {
+		List<String> entries = new ArrayList<String>();
+		for (Map.Entry<String, String> entry : map.entrySet()) {
+			entries.add(entry.getKey());
+			entries.add(entry.getValue());
+		}
+		return entries;
+	}
+
+	/**
+	 * @param millis
+	 *            milliseconds since epoch or {@code null}
+	 * @return the date or {@code null}
+	 */
+	private static Date toDate(String millis) {
+		if (millis == null) {
+			return null;
+		}
+		return new Date(Long.parseLong(millis));
+	}
+
+	/**
+	 * Sets the property, if the value is not {@code null}.
+	 *
+	 * @param properties
+	 *            the properties
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 */
+	private static void setIfNotNull(Properties properties, String key, String value) {
+		if (value != null) {
+			properties.setProperty(key, value);
+		}
+	}
+}
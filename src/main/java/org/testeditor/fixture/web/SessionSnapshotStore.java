@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.testeditor.fixture.core.exceptions.StopTestException;
+
+/**
+ * JVM-wide store of named {@link SessionSnapshot}s. Snapshots are kept in
+ * memory and, if a directory is configured (system property
+ * {@value #DIRECTORY_PROPERTY} or {@link #setDirectory(String)}), also written
+ * to {@code <name>.snapshot} files, so they survive the test run. Names must
+ * not contain path separators or '..', so the files stay in the directory.
+ */
+public final class SessionSnapshotStore {
+
+	/** System property for the directory of the snapshot files. */
+	public static final String DIRECTORY_PROPERTY = "testeditor.sessionsnapshot.dir";
+
+	private static final String FILE_SUFFIX = ".snapshot";
+
+	private static final Map<String, SessionSnapshot> SNAPSHOTS = new ConcurrentHashMap<String, SessionSnapshot>();
+
+	private static volatile File directory = toDirectory(System.getProperty(DIRECTORY_PROPERTY));
+
+	/**
+	 * Snapshots are stored and read by name with
+	 * {@link #put(String, SessionSnapshot)} and {@link #get(String)}.
+	 */
+	private SessionSnapshotStore() {
+	}
+
+	/**
+	 * Sets the directory of the snapshot files.
+	 *
+	 * @param path
+	 *            the directory or {@code null}/empty to keep the snapshots in
+	 *            memory only
+	 * @throws StopTestException
+	 *             if the directory could not be created
+	 */
+	public static void setDirectory(String path) throws StopTestException {
+		File dir = toDirectory(path);
+		if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+			throw new StopTestException("The directory '" + path + "' for session snapshots could not be created.");
+		}
+		directory = dir;
+	}
+
+	/**
+	 * Stores the snapshot under the name, replacing an existing one.
+	 *
+	 * @param name
+	 *            the name of the snapshot
+	 * @param snapshot
+	 *            the snapshot
+	 * @throws StopTestException
+	 *             if the name is invalid or the snapshot file could not be
+	 *             written
+	 */
+	public static void put(String name, SessionSnapshot snapshot) throws StopTestException {
+		checkName(name);
+		SNAPSHOTS.put(name, snapshot);
+		File dir = directory;
+		if (dir != null) {
+			snapshot.store(new File(dir, name + FILE_SUFFIX));
+		}
+	}
+
+	/**
+	 * Returns the snapshot stored under the name. Snapshots not in memory are
+	 * read from the directory of the snapshot files.
+	 *
+	 * @param name
+	 *            the name of the snapshot
+	 * @return the snapshot or {@code null} if there is none
+	 * @throws StopTestException
+	 *             if the name is invalid or the snapshot file could not be
+	 *             read
+	 */
+	public static SessionSnapshot get(String name) throws StopTestException {
+		checkName(name);
+		SessionSnapshot snapshot = SNAPSHOTS.get(name);
+		File dir = directory;
+		if (snapshot == null && dir != null) {
+			File file = new File(dir, name + FILE_SUFFIX);
+			if (file.isFile()) {
+				snapshot = SessionSnapshot.load(file);
+				SNAPSHOTS.put(name, snapshot);
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Removes all snapshots from memory. Snapshot files are kept.
+	 */
+	public static void clear() {
+		SNAPSHOTS.clear();
+	}
+
+	/**
+	 * @param name
+	 *            the name of a snapshot
+	 * @throws StopTestException
+	 *             if the name is empty or contains a path separator or '..'
+	 */
+	private static void checkName(String name) throws StopTestException {
+		if (name == null || name.trim().isEmpty() || name.contains("/") || name.contains("\\")
+				|| name.contains("..")) {
+			throw new StopTestException("The session snapshot name '" + name
+					+ "' must not be empty or contain '/', '\\' or '..'.");
+		}
+	}
+
+	/**
+	 * @param path
+	 *            the path or {@code null}/empty
+	 * @return the directory or {@code null}
+	 */
+	private static File toDirectory(String path) {
+		if (path == null || path.trim().isEmpty()) {
+			return null;
+		}
+		return new File(path.trim());
+	}
+}
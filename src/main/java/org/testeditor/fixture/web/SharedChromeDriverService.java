@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.HasCapabilities;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeDriverService;
+import org.openqa.selenium.remote.BrowserType;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.testeditor.fixture.core.exceptions.StopTestException;
+
+/**
+ * Starts the chromedriver executable once per JVM (and executable) and opens
+ * all Chrome sessions against it, instead of starting a new chromedriver for
+ * each browser. The services are stopped by a shutdown hook.
+ */
+public final class SharedChromeDriverService {
+
+	private static final Logger LOGGER = Logger.getLogger(SharedChromeDriverService.class);
+
+	private static final Map<String, ChromeDriverService> SERVICES = new HashMap<String, ChromeDriverService>();
+
+	private static boolean shutdownHookRegistered;
+
+	/**
+	 * Drivers are created with {@link #createDriver(String, Capabilities)}.
+	 */
+	private SharedChromeDriverService() {
+	}
+
+	/**
+	 * Opens a new Chrome session.
+	 *
+	 * @param executable
+	 *            path to the chromedriver executable or {@code null} to use
+	 *            the system property 'webdriver.chrome.driver'
+	 * @param capabilities
+	 *            the desired capabilities of the session
+	 * @return the web driver of the new session
+	 * @throws StopTestException
+	 *             if the chromedriver could not be started
+	 */
+	public static WebDriver createDriver(String executable, Capabilities capabilities) throws StopTestException {
+		return new RemoteWebDriver(getService(executable).getUrl(), capabilities);
+	}
+
+	/**
+	 * Returns the running service for the chromedriver executable, starts it
+	 * if necessary.
+	 *
+	 * @param executable
+	 *            path to the chromedriver executable or {@code null} to use
+	 *            the system property 'webdriver.chrome.driver'
+	 * @return the running service
+	 * @throws StopTestException
+	 *             if the chromedriver could not be started
+	 */
+	public static synchronized ChromeDriverService getService(String executable) throws StopTestException {
+		String key = String.valueOf(executable);
+		ChromeDriverService service = SERVICES.get(key);
+		if (service != null && service.isRunning()) {
+			return service;
+		}
+
+		try {
+			if (executable == null || executable.trim().isEmpty()) {
+				service = ChromeDriverService.createDefaultService();
+			} else {
+				service = new ChromeDriverService.Builder().usingDriverExecutable(new File(executable))
+						.usingAnyFreePort().build();
+			}
+			service.start();
+		} catch (IOException e) {
+			throw new StopTestException("The chromedriver could not be started: " + e.getMessage(), e);
+			// CHECKSTYLE:OFF
+		} catch (RuntimeException e) {
+			// CHECKSTYLE:ON
+			throw new StopTestException("The chromedriver could not be started: " + e.getMessage(), e);
+		}
+
+		LOGGER.info("Started chromedriver at " + service.getUrl());
+		SERVICES.put(key, service);
+		registerShutdownHook();
+		return service;
+	}
+
+	/**
+	 * Stops all started chromedriver services.
+	 */
+	public static synchronized void stopAll() {
+		for (ChromeDriverService service : SERVICES.values()) {
+			try {
+				service.stop();
+				// CHECKSTYLE:OFF
+			} catch (RuntimeException e) {
+				// CHECKSTYLE:ON
+				LOGGER.debug("The chromedriver could not be stopped.", e);
+			}
+		}
+		SERVICES.clear();
+	}
+
+	/**
+	 * Checks, if the web driver controls a Chrome browser, either directly or
+	 * through a shared service.
+	 *
+	 * @param webDriver
+	 *            the web driver
+	 * @return {@code true} for Chrome, {@code false} otherwise
+	 */
+	public static boolean isChrome(WebDriver webDriver) {
+		if (webDriver instanceof ChromeDriver) {
+			return true;
+		}
+		if (webDriver instanceof HasCapabilities) {
+			Capabilities capabilities = ((HasCapabilities) webDriver).getCapabilities();
+			return capabilities != null && BrowserType.CHROME.equals(capabilities.getBrowserName());
+		}
+		return false;
+	}
+
+	/**
+	 * Registers a shutdown hook on first use, which stops all services. The
+	 * pooled sessions are closed before, as they need the running service.
+	 */
+	private static void registerShutdownHook() {
+		if (!shutdownHookRegistered) {
+			Runtime.getRuntime().addShutdownHook(new Thread("chromedriver-service-shutdown") {
+
+				@Override
+				public void run() {
+					BrowserPool.getInstance().shutdown();
+					stopAll();
+				}
+			});
+			shutdownHookRegistered = true;
+		}
+	}
+}
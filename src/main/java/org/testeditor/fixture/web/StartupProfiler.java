@@ -0,0 +1,243 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Records the duration of the phases of a browser start, e.g. to decide
+ * whether the browser pool or the profile templates are worth it. One
+ * instance holds the phases of one {@code openBrowser} call; the phases of all
+ * starts are aggregated JVM wide, see {@link #getReport()}.
+ * <p/>
+ * The phases nest: {@value #LEASE} is the time to get a browser from the
+ * {@link BrowserPool} and contains {@value #BINARY}, {@value #PROFILE},
+ * {@value #SERVICE} and {@value #SESSION}, if the browser is started while
+ * leasing (and not in the background). With a lazy launch (see
+ * {@link BrowserLaunch}) the start runs in the background and {@value #JOIN}
+ * is the part of it, which the test had to wait for.
+ */
+public final class StartupProfiler {
+
+	/** Creating the driver configuration. */
+	public static final String RESOLVE = "resolve";
+	/** Leasing the browser, including the start if no idle browser exists. */
+	public static final String LEASE = "lease";
+	/** Locating the browser executable. */
+	public static final String BINARY = "binary";
+	/** Creating the browser profile. */
+	public static final String PROFILE = "profile";
+	/** Starting the driver service (e.g. chromedriver). */
+	public static final String SERVICE = "service";
+	/** Starting the browser and creating the web driver session. */
+	public static final String SESSION = "session";
+	/** Waiting for a browser launched in the background. */
+	public static final String JOIN = "join";
+	/** The first navigation after the start. */
+	public static final String NAVIGATION = "navigation";
+
+	private static final Logger LOGGER = Logger.getLogger(StartupProfiler.class);
+
+	private static final ThreadLocal<StartupProfiler> CURRENT = new ThreadLocal<StartupProfiler>();
+
+	/** Count, total and maximum milliseconds per phase. */
+	private static final Map<String, long[]> TOTALS = new LinkedHashMap<String, long[]>();
+
+	private final Map<String, Long> phases = new LinkedHashMap<String, Long>();
+
+	/**
+	 * Creates an empty profile.
+	 */
+	private StartupProfiler() {
+	}
+
+	/**
+	 * Starts the profile of a browser start. Phases recorded by this thread
+	 * with {@link #recordPhase(String, long)} are added to the profile until
+	 * {@link #end()} is called.
+	 *
+	 * @return the profile
+	 */
+	public static StartupProfiler begin() {
+		StartupProfiler profiler = new StartupProfiler();
+		CURRENT.set(profiler);
+		return profiler;
+	}
+
+	/**
+	 * Ends the recording of the phases of this thread.
+	 */
+	public void end() {
+		if (CURRENT.get() == this) {
+			CURRENT.remove();
+		}
+		LOGGER.info("Browser startup: " + this);
+	}
+
+	/**
+	 * Returns the profile of the current browser start of this thread.
+	 *
+	 * @return the profile or {@code null} if no start is recorded
+	 */
+	public static StartupProfiler current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Records the phases of this thread to this profile, e.g. in the thread
+	 * of a browser launched in the background, until {@link #detach()} is
+	 * called.
+	 */
+	public void attach() {
+		CURRENT.set(this);
+	}
+
+	/**
+	 * Ends the recording of the phases of this thread without logging the
+	 * profile.
+	 */
+	public void detach() {
+		if (CURRENT.get() == this) {
+			CURRENT.remove();
+		}
+	}
+
+	/**
+	 * @return the start time of a phase
+	 */
+	public static long start() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Records a phase of the current browser start of this thread (if any)
+	 * and of the JVM wide report.
+	 *
+	 * @param phase
+	 *            the name of the phase
+	 * @param start
+	 *            the result of {@link #start()} at the beginning of the phase
+	 */
+	public static void recordPhase(String phase, long start) {
+		long millis = (System.nanoTime() - start) / 1000000;
+		StartupProfiler profiler = CURRENT.get();
+		if (profiler != null) {
+			profiler.add(phase, millis);
+		}
+		aggregate(phase, millis);
+	}
+
+	/**
+	 * Records a phase of this browser start (also after {@link #end()}, e.g.
+	 * for the first navigation) and of the JVM wide report.
+	 *
+	 * @param phase
+	 *            the name of the phase
+	 * @param start
+	 *            the result of {@link #start()} at the beginning of the phase
+	 */
+	public void addPhase(String phase, long start) {
+		long millis = (System.nanoTime() - start) / 1000000;
+		add(phase, millis);
+		aggregate(phase, millis);
+	}
+
+	/**
+	 * @param phase
+	 *            the name of the phase
+	 * @return the milliseconds of the phase, {@code null} if not recorded
+	 */
+	public synchronized Long getPhase(String phase) {
+		return phases.get(phase);
+	}
+
+	/**
+	 * @return the phases of this browser start, e.g.
+	 *         {@code resolve=1 ms, lease=1830 ms, session=1790 ms}
+	 */
+	@Override
+	public synchronized String toString() {
+		StringBuilder result = new StringBuilder();
+		for (Map.Entry<String, Long> entry : phases.entrySet()) {
+			if (result.length() > 0) {
+				result.append(", ");
+			}
+			result.append(entry.getKey()).append('=').append(entry.getValue()).append(" ms");
+		}
+		return result.toString();
+	}
+
+	/**
+	 * @return the aggregated phases of all browser starts of the JVM, e.g.
+	 *         {@code session: 12x, avg 1790 ms, max 2410 ms; ...}
+	 */
+	public static String getReport() {
+		StringBuilder result = new StringBuilder();
+		synchronized (TOTALS) {
+			for (Map.Entry<String, long[]> entry : TOTALS.entrySet()) {
+				long[] values = entry.getValue();
+				if (result.length() > 0) {
+					result.append("; ");
+				}
+				result.append(entry.getKey()).append(": ").append(values[0]).append("x, avg ")
+						.append(values[1] / values[0]).append(" ms, max ").append(values[2]).append(" ms");
+			}
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Clears the JVM wide report.
+	 */
+	public static void resetReport() {
+		synchronized (TOTALS) {
+			TOTALS.clear();
+		}
+	}
+
+	/**
+	 * @param phase
+	 *            the name of the phase
+	 * @param millis
+	 *            the duration, added to an already recorded duration
+	 */
+	private synchronized void add(String phase, long millis) {
+		Long recorded = phases.get(phase);
+		if (recorded == null) {
+			phases.put(phase, millis);
+		} else {
+			phases.put(phase, recorded + millis);
+		}
+	}
+
+	/**
+	 * @param phase
+	 *            the name of the phase
+	 * @param millis
+	 *            the duration
+	 */
+	private static void aggregate(String phase, long millis) {
+		synchronized (TOTALS) {
+			long[] values = TOTALS.get(phase);
+			if (values == null) {
+				values = new long[3];
+				TOTALS.put(phase, values);
+			}
+			values[0]++;
+			values[1] += millis;
+			values[2] = Math.max(values[2], millis);
+		}
+	}
+}
@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+import org.testeditor.fixture.core.exceptions.StopTestException;
+
+/**
+ * Wall time of the tests of previous runs, e.g. to distribute the tests
+ * evenly to parallel workers. The web fixtures record the time from the first
+ * to the last step of each test (see {@code preInvoke} and
+ * {@code postInvoke}). The durations are kept in a properties file (system
+ * property {@value #FILE_PROPERTY}), which is written when a fixture is torn
+ * down and when the JVM exits. Without the property, the durations are kept
+ * in memory only.
+ * <p>
+ * The stored duration of a test is smoothed over the runs (the mean of the
+ * stored and the last duration), so a single slow run does not turn the
+ * distribution upside down.
+ */
+public final class TestDurationHistory {
+
+	/** System property for the file of the durations. */
+	public static final String FILE_PROPERTY = "testeditor.durationhistory.file";
+
+	private static final Logger LOGGER = Logger.getLogger(TestDurationHistory.class);
+
+	private static TestDurationHistory instance;
+
+	private final File file;
+
+	/** Smoothed durations of the previous runs. */
+	private final Map<String, Long> previous = new HashMap<String, Long>();
+
+	/** Durations of this run. */
+	private final Map<String, Long> current = new HashMap<String, Long>();
+
+	/**
+	 * Creates the history and reads the durations of the previous runs.
+	 *
+	 * @param file
+	 *            the file of the durations or {@code null} to keep them in
+	 *            memory only
+	 */
+	public TestDurationHistory(File file) {
+		this.file = file;
+		if (file != null && file.isFile()) {
+			Properties properties = new Properties();
+			// CHECKSTYLE:OFF
+			try (InputStream in = new FileInputStream(file)) {
+				// CHECKSTYLE:ON
+				properties.load(in);
+			} catch (IOException e) {
+				LOGGER.warn("Test durations could not be read from " + file + ": " + e.getMessage());
+			}
+			for (String name : properties.stringPropertyNames()) {
+				try {
+					previous.put(name, Long.valueOf(properties.getProperty(name).trim()));
+				} catch (NumberFormatException e) {
+					LOGGER.warn("Invalid duration of test '" + name + "' in " + file);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the JVM wide history of the file of the system property
+	 * {@value #FILE_PROPERTY}. It is written when the JVM exits.
+	 *
+	 * @return the history
+	 */
+	public static synchronized TestDurationHistory getInstance() {
+		if (instance == null) {
+			String path = System.getProperty(FILE_PROPERTY);
+			File historyFile = null;
+			if (path != null && !path.trim().isEmpty()) {
+				historyFile = new File(path.trim());
+			}
+			final TestDurationHistory history = new TestDurationHistory(historyFile);
+			Runtime.getRuntime().addShutdownHook(new Thread("test-duration-history") {
+
+				@Override
+				public void run() {
+					try {
+						history.save();
+					} catch (StopTestException e) {
+						LOGGER.warn(e.getMessage());
+					}
+				}
+			});
+			instance = history;
+		}
+		return instance;
+	}
+
+	/**
+	 * Records the duration of a test in this run, replacing a duration
+	 * recorded before in this run.
+	 *
+	 * @param test
+	 *            the name of the test
+	 * @param millis
+	 *            the wall time in milliseconds
+	 */
+	public synchronized void record(String test, long millis) {
+		current.put(test, millis);
+	}
+
+	/**
+	 * @param test
+	 *            the name of the test
+	 * @return the expected duration in milliseconds, {@code null} if the test
+	 *         has not run yet
+	 */
+	public synchronized Long getDuration(String test) {
+		return smooth(previous.get(test), current.get(test));
+	}
+
+	/**
+	 * @return the expected durations of all known tests
+	 */
+	public synchronized Map<String, Long> getDurations() {
+		Map<String, Long> durations = new HashMap<String, Long>(previous);
+		for (String test : current.keySet()) {
+			durations.put(test, getDuration(test));
+		}
+		return durations;
+	}
+
+	/**
+	 * Writes the durations to the file. Does nothing, if the history has no
+	 * file or no test was recorded.
+	 *
+	 * @throws StopTestException
+	 *             if the file could not be written
+	 */
+	public synchronized void save() throws StopTestException {
+		if (file == null || current.isEmpty()) {
+			return;
+		}
+		Properties properties = new Properties();
+		for (Map.Entry<String, Long> entry : getDurations().entrySet()) {
+			properties.setProperty(entry.getKey(), String.valueOf(entry.getValue()));
+		}
+		try {
+			File dir = file.getAbsoluteFile().getParentFile();
+			if (!dir.isDirectory() && !dir.mkdirs()) {
+				throw new IOException("Directory " + dir + " could not be created.");
+			}
+			File temp = File.createTempFile(file.getName(), ".tmp", dir);
+			// CHECKSTYLE:OFF
+			try (OutputStream out = new FileOutputStream(temp)) {
+				// CHECKSTYLE:ON
+				properties.store(out, "Test durations in milliseconds");
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			throw new StopTestException("Test durations could not be written to '" + file + "'.", e);
+		}
+		previous.putAll(getDurations());
+		current.clear();
+	}
+
+	/**
+	 * @param stored
+	 *            the smoothed duration of the previous runs or {@code null}
+	 * @param last
+	 *            the duration of this run or {@code null}
+	 * @return the smoothed duration
+	 */
+	private static Long smooth(Long stored, Long last) {
+		if (stored == null) {
+			return last;
+		}
+		if (last == null) {
+			return stored;
+		}
+		return (stored + last) / 2;
+	}
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.util.Arrays;
+
+import org.testeditor.fixture.core.exceptions.StopTestException;
+
+/**
+ * enumeration for the modes used to match an expected text against the text of
+ * a web page or web element.
+ *
+ */
+public enum TextMatchMode {
+	/** Plain {@code String.contains}, like the classic text checks. */
+	CONTAINS,
+	/** The expected text is a regular expression, which must be found. */
+	REGEX,
+	/** Any sequence of white spaces matches any other sequence of them. */
+	WHITESPACE,
+	/** Upper and lower case are not distinguished. */
+	IGNORECASE,
+	/** Combination of {@link #WHITESPACE} and {@link #IGNORECASE}. */
+	NORMALIZED;
+
+	/**
+	 * Returns the mode for the given name. Upper and lower case of the name are
+	 * ignored, an empty name is interpreted as {@link #CONTAINS}.
+	 *
+	 * @param name
+	 *            the name of the mode (e.g. 'regex')
+	 * @return the mode
+	 * @throws StopTestException
+	 *             if there is no mode with the given name
+	 */
+	public static TextMatchMode fromString(String name) throws StopTestException {
+		if (name == null || name.trim().isEmpty()) {
+			return CONTAINS;
+		}
+
+		try {
+			return valueOf(name.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new StopTestException("The specified match mode '" + name.trim() + "' is invalid, use one of "
+					+ Arrays.toString(values()) + "!");
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.testeditor.fixture.core.exceptions.StopTestException;
+
+/**
+ * Matches the text of a web page or web element against an expected text. The
+ * patterns are compiled once per expression and mode and kept in a bounded
+ * cache (least recently used entries are dropped first).
+ */
+public final class TextMatcher {
+
+	/** Maximum number of compiled patterns kept in the cache. */
+	private static final int MAX_CACHED_PATTERNS = 256;
+
+	private static final Map<String, Pattern> PATTERN_CACHE = new LinkedHashMap<String, Pattern>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+			return size() > MAX_CACHED_PATTERNS;
+		}
+	};
+
+	/**
+	 * Texts are matched with {@link #matches(String, String, TextMatchMode)}.
+	 */
+	private TextMatcher() {
+	}
+
+	/**
+	 * Checks if the {@code expected} text is found within the {@code text}
+	 * according to the given {@code mode}.
+	 *
+	 * @param text
+	 *            the text to analyze (e.g. the text of the page)
+	 * @param expected
+	 *            the text or regular expression to be found within
+	 *            {@code text}
+	 * @param mode
+	 *            how to match the {@code expected} text
+	 * @return {@code true} if {@code expected} is found within {@code text},
+	 *         {@code false} otherwise
+	 * @throws StopTestException
+	 *             if {@code expected} is blank (it would be found in any
+	 *             text) or not a valid regular expression
+	 */
+	public static boolean matches(String text, String expected, TextMatchMode mode) throws StopTestException {
+		if (expected != null && expected.trim().isEmpty()) {
+			throw new StopTestException("The expected text must not be empty!");
+		}
+		if (text == null || expected == null) {
+			return false;
+		}
+
+		if (mode == TextMatchMode.CONTAINS) {
+			return text.contains(expected.trim());
+		}
+
+		return getPattern(expected, mode).matcher(text).find();
+	}
+
+	/**
+	 * Returns the compiled pattern for the expression and mode, compiles it if
+	 * it is not already cached.
+	 *
+	 * @param expected
+	 *            the text or regular expression
+	 * @param mode
+	 *            how to match the {@code expected} text
+	 * @return the compiled pattern
+	 * @throws StopTestException
+	 *             if {@code expected} is not a valid regular expression
+	 */
+	static Pattern getPattern(String expected, TextMatchMode mode) throws StopTestException {
+		String key = mode.name() + ':' + expected;
+		synchronized (PATTERN_CACHE) {
+			Pattern pattern = PATTERN_CACHE.get(key);
+			if (pattern == null) {
+				pattern = compile(expected, mode);
+				PATTERN_CACHE.put(key, pattern);
+			}
+			return pattern;
+		}
+	}
+
+	/**
+	 * Compiles the pattern for the expression and mode.
+	 *
+	 * @param expected
+	 *            the text or regular expression
+	 * @param mode
+	 *            how to match the {@code expected} text
+	 * @return the compiled pattern
+	 * @throws StopTestException
+	 *             if {@code expected} is not a valid regular expression
+	 */
+	private static Pattern compile(String expected, TextMatchMode mode) throws StopTestException {
+		switch (mode) {
+		case REGEX:
+			try {
+				return Pattern.compile(expected);
+			} catch (PatternSyntaxException e) {
+				throw new StopTestException("The regular expression '" + expected + "' is invalid!", e);
+			}
+		case WHITESPACE:
+			return Pattern.compile(toWhitespaceInsensitiveRegex(expected));
+		case IGNORECASE:
+			return Pattern.compile(Pattern.quote(expected.trim()), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+		case NORMALIZED:
+			return Pattern.compile(toWhitespaceInsensitiveRegex(expected),
+					Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+		default:
+			return Pattern.compile(Pattern.quote(expected.trim()));
+		}
+	}
+
+	/**
+	 * Creates a regular expression, where each sequence of white spaces in the
+	 * text matches any sequence of white spaces.
+	 *
+	 * @param expected
+	 *            the text
+	 * @return the regular expression
+	 */
+	private static String toWhitespaceInsensitiveRegex(String expected) {
+		StringBuilder regex = new StringBuilder();
+		for (String token : expected.trim().split("\\s+")) {
+			if (regex.length() > 0) {
+				regex.append("\\s+");
+			}
+			regex.append(Pattern.quote(token));
+		}
+		return regex.toString();
+	}
+}
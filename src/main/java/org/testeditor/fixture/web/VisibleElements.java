@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.HasCapabilities;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Filters the elements found by a locator by their visibility. Generic
+ * locators match many elements and {@link WebElement#isDisplayed()} costs one
+ * round trip to the browser per element. So the elements are filtered in the
+ * browser by one script (see {@link BrowserScripts#VISIBLE_ELEMENTS}), which
+ * returns only the visible ones. The script follows the rules of
+ * {@code isDisplayed()} of the driver: the size and the clipping of elements
+ * are only checked in browsers with a layout, not in HtmlUnit. Browsers
+ * without JavaScript are still checked by {@code isDisplayed()}.
+ */
+public final class VisibleElements {
+
+	private static final Logger LOGGER = Logger.getLogger(VisibleElements.class);
+
+	/**
+	 * Elements are filtered with {@link #getFirst(WebDriver, List)} and
+	 * {@link #getAll(WebDriver, List)}.
+	 */
+	private VisibleElements() {
+	}
+
+	/**
+	 * @param webDriver
+	 *            the web driver
+	 * @param elements
+	 *            the elements found by a locator
+	 * @return the first visible element or {@code null}, if none is visible
+	 */
+	public static WebElement getFirst(WebDriver webDriver, List<WebElement> elements) {
+		List<WebElement> visible = filter(webDriver, elements, true);
+		if (visible.isEmpty()) {
+			return null;
+		}
+		return visible.get(0);
+	}
+
+	/**
+	 * @param webDriver
+	 *            the web driver
+	 * @param elements
+	 *            the elements found by a locator
+	 * @return the visible elements in the order of the given elements
+	 */
+	public static List<WebElement> getAll(WebDriver webDriver, List<WebElement> elements) {
+		return filter(webDriver, elements, false);
+	}
+
+	/**
+	 * @param webDriver
+	 *            the web driver
+	 * @param elements
+	 *            the elements found by a locator
+	 * @param firstOnly
+	 *            {@code true}, if only the first visible element is needed
+	 * @return the visible elements
+	 */
+	private static List<WebElement> filter(WebDriver webDriver, List<WebElement> elements, boolean firstOnly) {
+		if (elements == null || elements.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<WebElement> visible = null;
+		if (webDriver instanceof JavascriptExecutor) {
+			visible = filterInBrowser((JavascriptExecutor) webDriver, elements, firstOnly);
+		}
+		if (visible == null) {
+			visible = filterOneByOne(elements, firstOnly);
+		}
+		return visible;
+	}
+
+	/**
+	 * @param webDriver
+	 *            the web driver
+	 * @return {@code true}, if the browser lays out the page, so the size of
+	 *         elements is known; {@code false} for HtmlUnit, whose
+	 *         {@code isDisplayed()} ignores the size
+	 */
+	public static boolean hasLayout(WebDriver webDriver) {
+		if (webDriver instanceof HasCapabilities) {
+			Capabilities capabilities = ((HasCapabilities) webDriver).getCapabilities();
+			return capabilities == null || !DriverConfiguration.HTMLUNIT.equals(capabilities.getBrowserName());
+		}
+		return true;
+	}
+
+	/**
+	 * @param elements
+	 *            the elements found by a locator
+	 * @param firstOnly
+	 *            {@code true}, if only the first visible element is needed
+	 * @return the visible elements, asked one by one
+	 */
+	private static List<WebElement> filterOneByOne(List<WebElement> elements, boolean firstOnly) {
+		List<WebElement> visible = new ArrayList<WebElement>();
+		for (WebElement element : elements) {
+			if (element != null && element.isDisplayed()) {
+				visible.add(element);
+				if (firstOnly) {
+					break;
+				}
+			}
+		}
+		return visible;
+	}
+
+	/**
+	 * @param executor
+	 *            the web driver
+	 * @param elements
+	 *            the elements found by a locator
+	 * @param firstOnly
+	 *            {@code true}, if only the first visible element is needed
+	 * @return the visible elements or {@code null}, if the script failed
+	 */
+	@SuppressWarnings("unchecked")
+	private static List<WebElement> filterInBrowser(JavascriptExecutor executor, List<WebElement> elements,
+			boolean firstOnly) {
+		Object visible;
+		try {
+			visible = executor.executeScript(BrowserScripts.VISIBLE_ELEMENTS, elements, firstOnly,
+					hasLayout((WebDriver) executor));
+		} catch (WebDriverException e) {
+			LOGGER.debug("Visibility script failed, the elements are checked one by one.", e);
+			visible = null;
+		} catch (UnsupportedOperationException e) {
+			LOGGER.debug("JavaScript is disabled, the elements are checked one by one.");
+			visible = null;
+		}
+		if (visible instanceof List) {
+			return (List<WebElement>) visible;
+		}
+		return null;
+	}
+}
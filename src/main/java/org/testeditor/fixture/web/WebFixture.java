@@ -12,7 +12,6 @@
 
 package org.testeditor.fixture.web;
 
-import java.io.File;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.text.MessageFormat;
@@ -25,11 +24,7 @@ import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.firefox.FirefoxDriver;
-import org.openqa.selenium.ie.InternetExplorerDriver;
 import org.openqa.selenium.interactions.Actions;
-import org.openqa.selenium.remote.DesiredCapabilities;
 import org.openqa.selenium.support.ui.Select;
 import org.testeditor.fixture.core.elementlist.ElementListService;
 import org.testeditor.fixture.core.exceptions.ElementKeyNotFoundException;
@@ -50,12 +45,8 @@ public class WebFixture implements StoppableFixture, Fixture {
 	protected static final String WINDOWS = "Windows";
 	private static final Logger LOGGER = Logger.getLogger(WebFixture.class);
 
-	private Integer waitInMillis = 250;
-	private Integer waitCounter = 100;
-
-	private ElementListService elementListService;
-	protected WebDriver webDriver;
-	private int timeout;
+	/** Web driver, timeouts and element list of the session of each thread. */
+	private final ThreadLocal<WebSession> sessions = WebSession.forThread();
 
 	/**
 	 * Creates the element list instance representing the GUI-Map for widget
@@ -73,21 +64,102 @@ public class WebFixture implements StoppableFixture, Fixture {
 	 *            Wiki Sites of the recent project are
 	 */
 	public void setElementlist(String elementList) {
-		elementListService = ElementListService.instanceFor(elementList);
+		getSession().setElementListService(ElementListService.instanceFor(elementList));
+	}
+
+	/**
+	 * Loads the capability profile (e.g. headless mode, window size) for the
+	 * browsers started by this fixture from a properties file. Without an
+	 * explicit profile, the profile is read from the element list. See
+	 * {@link CapabilityProfile} for the keys. <br />
+	 * 
+	 * FitNesse usage..: |set capability profile|arg1| <br/>
+	 * FitNesse example: |set capability profile|ci-headless.properties| <br />
+	 * <br />
+	 * 
+	 * @param propertiesFile
+	 *            path to the properties file
+	 */
+	public void setCapabilityProfile(String propertiesFile) {
+		getSession().setCapabilityProfile(CapabilityProfile.load(propertiesFile));
+	}
+
+	/**
+	 * @return the explicitly set capability profile, otherwise the profile of
+	 *         the element list
+	 */
+	private CapabilityProfile getCapabilityProfile() {
+		CapabilityProfile capabilityProfile = getSession().getCapabilityProfile();
+		if (capabilityProfile != null) {
+			return capabilityProfile;
+		}
+		ElementListService elementListService = getElementlist();
+		if (elementListService != null) {
+			return CapabilityProfile.fromElementList(elementListService);
+		}
+		return CapabilityProfile.DEFAULT;
+	}
+
+	/**
+	 * Returns the session of the current thread. All state of the fixture
+	 * (web driver, timeouts, element list) is kept in the session, so
+	 * scenarios on separate threads do not share mutable state.
+	 * 
+	 * @return the session of the current thread
+	 */
+	protected WebSession getSession() {
+		return sessions.get();
 	}
 
 	/**
 	 * @return the elementListService
 	 */
 	protected ElementListService getElementlist() {
-		return elementListService;
+		return getSession().getElementListService();
 	}
 
 	/**
+	 * Returns the web driver of the opened browser. If the browser is
+	 * launched in the background, waits until it is started and ends its
+	 * startup profile.
+	 * 
 	 * @return the webDriver
+	 * @throws StopTestException
+	 *             if the browser launched in the background could not be
+	 *             started
 	 */
-	protected WebDriver getWebDriver() {
-		return webDriver;
+	protected WebDriver getWebDriver() throws StopTestException {
+		WebSession session = getSession();
+		BrowserLaunch launch = session.getPendingLaunch();
+		if (launch != null) {
+			session.setPendingLaunch(null);
+			try {
+				session.setWebDriver(launch.join());
+			} finally {
+				session.getStartupProfile().end();
+			}
+		}
+		return session.getWebDriver();
+	}
+
+	/**
+	 * Enables or disables the lazy launch of browsers. With a lazy launch,
+	 * {@code openBrowser} starts the browser in the background and returns
+	 * immediately. The first step, which needs the browser, waits for it. The
+	 * default is the system property {@value BrowserLaunch#LAZY_PROPERTY}.
+	 * <br />
+	 * 
+	 * FitNesse usage..: |set lazy browser launch|arg1| <br />
+	 * FitNesse example: |set lazy browser launch|true| <br />
+	 * <br />
+	 * 
+	 * @param lazy
+	 *            'true' to launch the browsers in the background
+	 * @return always true to show inside FitNesse a positive result
+	 */
+	public boolean setLazyBrowserLaunch(String lazy) {
+		getSession().setLazyLaunch(Boolean.parseBoolean(lazy.trim()));
+		return true;
 	}
 
 	/**
@@ -97,14 +169,14 @@ public class WebFixture implements StoppableFixture, Fixture {
 	 *            the waitInMillis to set
 	 */
 	public void setWaitInMillis(Integer waitInMillis) {
-		this.waitInMillis = waitInMillis;
+		getSession().setWaitInMillis(waitInMillis);
 	}
 
 	/**
 	 * @return the waitInMillis as an {@link Integer}
 	 */
 	protected Integer getWaitInMillis() {
-		return waitInMillis;
+		return getSession().getWaitInMillis();
 	}
 
 	/**
@@ -114,14 +186,14 @@ public class WebFixture implements StoppableFixture, Fixture {
 	 *            the waitCounter to set
 	 */
 	public void setWaitCounter(Integer waitCounter) {
-		this.waitCounter = waitCounter;
+		getSession().setWaitCounter(waitCounter);
 	}
 
 	/**
 	 * @return the waitCounter
 	 */
 	protected Integer getWaitCounter() {
-		return waitCounter;
+		return getSession().getWaitCounter();
 	}
 
 	/**
@@ -137,6 +209,13 @@ public class WebFixture implements StoppableFixture, Fixture {
 	 * 'webdriver.firefox.bin' which should be set to the path of the used
 	 * browser.
 	 * 
+	 * If the {@link BrowserPool} is enabled, an already started browser is
+	 * leased from the pool. With a lazy launch, the browser is started in the
+	 * background and this method returns immediately.
+	 * With a Selenium grid (see {@link #setSeleniumGrid(String)}), the
+	 * session is opened through the grid. 'htmlunit' starts the headless
+	 * HtmlUnit browser.
+	 * 
 	 * @param browserName
 	 *            name of browser ('ie', 'chrome' or 'firefox')
 	 * @param browserPath
@@ -144,71 +223,188 @@ public class WebFixture implements StoppableFixture, Fixture {
 	 * @return true, if browser starts successful, otherwise false
 	 */
 	public void openBrowser(String browserName, String browserPath) {
-
-		String osName = System.getProperty("os.name");
-		LOGGER.debug("open browser IN PROCESS - operating System: " + osName + ", browserName: " + browserName);
-
+		StartupProfiler startupProfile = StartupProfiler.begin();
+		getSession().setStartupProfile(startupProfile);
 		try {
-
-			if ("firefox".equalsIgnoreCase(browserName)) {
-				openFirefox(osName, browserPath);
-			} else if ("ie".equalsIgnoreCase(browserName)) {
-				DesiredCapabilities cap = DesiredCapabilities.internetExplorer();
-				cap.setCapability(InternetExplorerDriver.INTRODUCE_FLAKINESS_BY_IGNORING_SECURITY_DOMAINS, "true");
-				webDriver = new InternetExplorerDriver(cap);
-			} else if ("chrome".equalsIgnoreCase(browserName)) {
-				System.setProperty("webdriver.chrome.driver", browserPath);
-				webDriver = new ChromeDriver();
+			long start = StartupProfiler.start();
+			DriverConfiguration configuration = getDriverConfiguration(browserName, browserPath);
+			StartupProfiler.recordPhase(StartupProfiler.RESOLVE, start);
+			openBrowser(configuration);
+		} finally {
+			if (getSession().getPendingLaunch() == null) {
+				startupProfile.end();
 			} else {
-				String logMessage = "browser '" + browserName + " not available";
-				LOGGER.error(logMessage);
-				throw new StopTestException(logMessage);
+				startupProfile.detach();
 			}
+		}
+	}
 
-		} catch (WebDriverException e) {
-			// here will be thrown an exception if installed browser was not
-			// found
-			LOGGER.error(e.getMessage(), e);
-			throw new StopTestException(e.getMessage());
+	/**
+	 * Helper method for openBrowser which opens a browser with the given
+	 * configuration.
+	 * 
+	 * @param configuration
+	 *            the configuration of the browser
+	 */
+	private void openBrowser(final DriverConfiguration configuration) {
+		WebSession session = getSession();
+		session.setDriverConfiguration(configuration);
+		session.setBrowserPoolKey(configuration.getPoolKey());
+		BrowserPool.DriverFactory factory = new BrowserPool.DriverFactory() {
+
+			@Override
+			public WebDriver create() {
+				return createWebDriver(configuration);
+			}
+		};
+		session.setFirstNavigation(true);
+		if (session.isLazyLaunch()) {
+			session.setPendingLaunch(BrowserLaunch.start(session.getBrowserPoolKey(), factory));
+			return;
 		}
+		long start = StartupProfiler.start();
+		session.setWebDriver(BrowserPool.getInstance().lease(session.getBrowserPoolKey(), factory));
+		StartupProfiler.recordPhase(StartupProfiler.LEASE, start);
+	}
 
+	/**
+	 * Opens the following browsers through a Selenium grid, which limits the
+	 * concurrent sessions and queues the requests above the limit (see
+	 * {@link SeleniumGrid}). The default is the system property
+	 * {@value SeleniumGrid#GRID_PROPERTY}. <br />
+	 * 
+	 * FitNesse usage..: |set selenium grid|arg1| <br />
+	 * FitNesse example: |set selenium grid|embedded| <br />
+	 * <br />
+	 * 
+	 * @param grid
+	 *            'embedded' for a grid inside this JVM, the URL of a running
+	 *            hub or an empty value to start the browsers directly
+	 * @return always true to show inside FitNesse a positive result
+	 */
+	public boolean setSeleniumGrid(String grid) {
+		getSession().setSeleniumGrid(grid);
+		return true;
 	}
 
 	/**
-	 * Helper method for openBrowser which handles the specifics to open
-	 * Firefox.
+	 * Sets the minimal length of values, which are inserted into fields by a
+	 * script instead of typing them key by key (see {@link FieldInsertion}).
+	 * The default is the system property
+	 * {@value FieldInsertion#SCRIPT_LENGTH_PROPERTY}. <br />
 	 * 
-	 * @param osName
-	 *            the name of the OS (should contain "Windows", "Mac OS" or
-	 *            "Linux")
-	 * @param browserPath
-	 *            path to the (portable) Firefox executable to be started
+	 * FitNesse usage..: |set insert script length|arg1| <br />
+	 * FitNesse example: |set insert script length|200| <br />
+	 * <br />
+	 * 
+	 * @param length
+	 *            the minimal length, 0 to type all values
+	 * @return always true to show inside FitNesse a positive result
 	 */
-	private void openFirefox(String osName, String browserPath) {
+	public boolean setInsertScriptLength(String length) {
+		getSession().setInsertScriptLength(Integer.parseInt(length.trim()));
+		return true;
+	}
 
-		try {
-			if (browserPath != null && !browserPath.equals("")) {
+	/**
+	 * Returns the duration of the phases of the last browser start of this
+	 * fixture. See {@link StartupProfiler} for the phases. <br />
+	 * 
+	 * FitNesse usage..: |show|read startup profile| <br />
+	 * <br />
+	 * 
+	 * @return the phases of the last browser start, empty if no browser was
+	 *         started
+	 */
+	public String readStartupProfile() {
+		StartupProfiler startupProfile = getSession().getStartupProfile();
+		if (startupProfile == null) {
+			return "";
+		}
+		return startupProfile.toString();
+	}
 
-				if (osName.contains(WINDOWS)) {
-					System.setProperty("webdriver.firefox.bin", browserPath);
-				} else if (osName.contains(LINUX)) {
-					System.setProperty("webdriver.firefox.bin", browserPath);
-					System.setProperty("webdriver.firefox.profile", "testing");
+	/**
+	 * Returns the aggregated duration of the phases of all browser starts of
+	 * the JVM (count, average and maximum per phase). <br />
+	 * 
+	 * FitNesse usage..: |show|read startup report| <br />
+	 * <br />
+	 * 
+	 * @return the report
+	 */
+	public String readStartupReport() {
+		return StartupProfiler.getReport();
+	}
 
-				} else if (osName.contains(MAC_OS)) {
-					System.setProperty("webdriver.firefox.bin", browserPath);
-				}
+	/**
+	 * Replaces the browser by a new one with the same configuration, if the
+	 * {@link BrowserHealthMonitor} reports it as degraded (slow commands, high
+	 * memory). Called between the tests.
+	 */
+	private void recycleBrowserIfDegraded() {
+		WebSession session = getSession();
+		WebDriver webDriver = session.getWebDriver();
+		if (webDriver == null || session.getDriverConfiguration() == null
+				|| !BrowserHealthMonitor.getInstance().isDegraded(webDriver)) {
+			return;
+		}
+		LOGGER.info("Browser session is degraded and replaced by a new one.");
+		BrowserPool.getInstance().discard(webDriver);
+		BrowserReaper.reap(webDriver);
+		session.setWebDriver(null);
+		session.clearCache();
+		openBrowser(session.getDriverConfiguration());
+	}
 
-				// check if given browser path exists
-				// and throw an exception if not exists
-				if (!(new File(browserPath)).exists()) {
-					String logMessage = "browserPath '" + browserPath + " does not exist";
-					LOGGER.error(logMessage);
-					throw new StopTestException(logMessage);
-				}
+	/**
+	 * Helper method for openBrowser which creates the configuration of the
+	 * browser. The path is the Firefox executable for Firefox (on Linux with
+	 * the Firefox profile 'testing') and the chromedriver executable for
+	 * Google Chrome.
+	 * 
+	 * @param browserName
+	 *            name of browser ('ie', 'chrome' or 'firefox')
+	 * @param browserPath
+	 *            path to the browser
+	 * @return the configuration of the browser
+	 */
+	private DriverConfiguration getDriverConfiguration(String browserName, String browserPath) {
+		DriverConfiguration configuration = DriverConfiguration.forBrowser(browserName, getCapabilityProfile())
+				.withGrid(getSession().getSeleniumGrid());
+		if (browserPath == null || browserPath.equals("")) {
+			return configuration;
+		}
+
+		if (DriverConfiguration.FIREFOX.equals(configuration.getBrowserName())) {
+			configuration = configuration.withBrowserPath(browserPath);
+			String osName = System.getProperty("os.name");
+			if (osName != null && osName.contains(LINUX)) {
+				configuration = configuration.withFirefoxProfile("testing");
 			}
+		} else if (DriverConfiguration.CHROME.equals(configuration.getBrowserName())) {
+			configuration = configuration.withDriverPath(browserPath);
+		}
+		return configuration;
+	}
+
+	/**
+	 * Helper method for openBrowser which starts a new browser.
+	 * 
+	 * @param configuration
+	 *            the configuration of the browser
+	 * @return the web driver of the started browser
+	 */
+	private WebDriver createWebDriver(DriverConfiguration configuration) {
+
+		LOGGER.debug("open browser IN PROCESS - operating System: " + System.getProperty("os.name")
+				+ ", browser: " + configuration);
 
-			webDriver = new FirefoxDriver();
+		try {
+			return configuration.createDriver();
+		} catch (StopTestException e) {
+			LOGGER.error(e.getMessage());
+			throw e;
 		} catch (WebDriverException e) {
 			// here will be thrown an exception if installed browser was not
 			// found
@@ -231,7 +427,15 @@ public class WebFixture implements StoppableFixture, Fixture {
 	 * @return always true to show inside FitNesse a positive result
 	 */
 	public boolean navigateToUrl(String url) {
+		long start = StartupProfiler.start();
+		WebDriver webDriver = getWebDriver();
 		webDriver.get(url);
+		BrowserPool.getInstance().navigated(webDriver, url);
+		WebSession session = getSession();
+		if (session.isFirstNavigation() && session.getStartupProfile() != null) {
+			session.getStartupProfile().addPhase(StartupProfiler.NAVIGATION, start);
+		}
+		session.setFirstNavigation(false);
 		return true;
 	}
 
@@ -393,10 +597,12 @@ public class WebFixture implements StoppableFixture, Fixture {
 	 */
 	public boolean assertElementNotFound(String elementListKey, String... replaceArgs) {
 		boolean result = false;
-		Integer waitCounterOriginalValue = waitCounter;
+		// The wait counter is changed in the session of this thread only.
+		WebSession session = getSession();
+		int waitCounterOriginalValue = session.getWaitCounter();
 
 		// If the target element cannot be found, don't wait too.
-		waitCounter = 2;
+		session.setWaitCounter(2);
 		try {
 			// If no exception is thrown, then the target element was found...
 			WebElement element = findWebelement(elementListKey, false, replaceArgs);
@@ -408,9 +614,10 @@ public class WebFixture implements StoppableFixture, Fixture {
 			// wanted. In this case the exception will be silently discarded and
 			// the result of this method is true.
 			result = true;
+		} finally {
+			// Restore the original timeout wait counter.
+			session.setWaitCounter(waitCounterOriginalValue);
 		}
-		// Restore the original timeout wait counter.
-		waitCounter = waitCounterOriginalValue;
 
 		return result;
 	}
@@ -445,7 +652,7 @@ public class WebFixture implements StoppableFixture, Fixture {
 			throw new StopTestException(message);
 		}
 
-		Actions action = new Actions(webDriver);
+		Actions action = new Actions(getWebDriver());
 		action.sendKeys(seleniumKey).build().perform();
 		result = true;
 
@@ -586,7 +793,8 @@ public class WebFixture implements StoppableFixture, Fixture {
 	/**
 	 * Inserts the given value into an input field and checks if input was
 	 * successful. The technical locator of the field gets identified by the
-	 * element list matching the given key. <br />
+	 * element list matching the given key. The value is read from the found
+	 * field for the check (see {@link FieldInsertion}). <br />
 	 * 
 	 * FitNesse usage..: |insert|arg1|into field;|arg2|[arg3, arg4, ...]| <br />
 	 * FitNesse example: |insert|Some Text|into field;|TextboxInRow{0}Col{1}|[5,
@@ -607,14 +815,15 @@ public class WebFixture implements StoppableFixture, Fixture {
 		WebElement element = findWebelement(elementListKey, replaceArgs);
 
 		if (element != null && element.isDisplayed()) {
-			element.click();
-			element.sendKeys(value);
 			String expectedValue = null;
 			if (element.getTagName().equalsIgnoreCase("select")) {
+				element.click();
+				element.sendKeys(value);
 				Select s = new Select(element);
 				expectedValue = s.getFirstSelectedOption().getText();
 			} else {
-				expectedValue = readAttributeFromField("value", elementListKey, replaceArgs);
+				expectedValue = FieldInsertion.insert(getWebDriver(), element, value, getSession()
+						.getInsertScriptLength()).getValue();
 			}
 
 			if (!assertIsEqualTo(value, expectedValue)) {
@@ -817,7 +1026,7 @@ public class WebFixture implements StoppableFixture, Fixture {
 		WebElement element = findWebelement(elementListKey, replaceArgs);
 
 		if (element != null && element.isDisplayed()) {
-			Actions action = new Actions(webDriver);
+			Actions action = new Actions(getWebDriver());
 			action.doubleClick(element).build().perform();
 			result = true;
 		}
@@ -843,13 +1052,13 @@ public class WebFixture implements StoppableFixture, Fixture {
 		boolean result = false;
 		int counter = 0;
 
-		while (counter < waitCounter) {
-			result = webDriver.getPageSource().contains(text);
+		while (counter < getWaitCounter()) {
+			result = getWebDriver().getPageSource().contains(text);
 			if (result) {
 				break;
 			}
 
-			waitTime(waitInMillis);
+			waitTime(getWaitInMillis());
 			counter++;
 		}
 
@@ -862,6 +1071,98 @@ public class WebFixture implements StoppableFixture, Fixture {
 		return result;
 	}
 
+	/**
+	 * Searches for a given text in the visible text of the page and returns
+	 * true if found. The text is matched according to the given mode, e.g. as
+	 * regular expression. If the text is not found immediately, this method
+	 * will retry for as long as this class would normally also wait for a
+	 * widget to found. While retrying, the text of the page is kept in the
+	 * browser and only transferred again, if it has changed.
+	 * 
+	 * FitNesse usage..: |wait for text|arg1|matching|arg2| <br />
+	 * FitNesse example: |wait for text|Login\s+successful|matching|regex| <br />
+	 * <br />
+	 * 
+	 * @param text
+	 *            the text or regular expression to be searched for
+	 * @param matchMode
+	 *            'contains', 'regex', 'whitespace', 'ignorecase' or
+	 *            'normalized' (see {@link TextMatchMode})
+	 * @return true if the <code>text</code> matches; throws a
+	 *         StopTestException otherwise.
+	 */
+	public boolean waitForTextMatching(String text, String matchMode) {
+		TextMatchMode mode = TextMatchMode.fromString(matchMode);
+		PageTextSnapshot snapshot = new PageTextSnapshot(getWebDriver());
+		boolean result = false;
+		int counter = 0;
+
+		while (counter < getWaitCounter()) {
+			if (snapshot.refresh()) {
+				result = TextMatcher.matches(snapshot.getText(), text, mode);
+				if (result) {
+					break;
+				}
+			}
+
+			waitTime(getWaitInMillis());
+			counter++;
+		}
+
+		if (!result) {
+			String message = "The specified text \"" + text + "\" could not be found (" + mode + ")!";
+			LOGGER.error(message);
+			throw new StopTestException(message);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Searches for a given text in the page and in all of its same-origin
+	 * frames (recursively) and returns true if found. The text is matched
+	 * according to the given mode. If the text is not found immediately, this
+	 * method will retry for as long as this class would normally also wait for
+	 * a widget to found. The path of the frame containing the text is logged.
+	 * 
+	 * FitNesse usage..: |wait for text|arg1|in frames matching|arg2| <br />
+	 * FitNesse example: |wait for text|Login successful|in frames
+	 * matching|normalized| <br />
+	 * <br />
+	 * 
+	 * @param text
+	 *            the text or regular expression to be searched for
+	 * @param matchMode
+	 *            'contains', 'regex', 'whitespace', 'ignorecase' or
+	 *            'normalized' (see {@link TextMatchMode})
+	 * @return true if the <code>text</code> is found; throws a
+	 *         StopTestException otherwise.
+	 */
+	public boolean waitForTextInFramesMatching(String text, String matchMode) {
+		TextMatchMode mode = TextMatchMode.fromString(matchMode);
+		String path = null;
+		int counter = 0;
+
+		while (counter < getWaitCounter()) {
+			path = FrameTextSearch.findFramePath(getWebDriver(), text, mode);
+			if (path != null) {
+				break;
+			}
+
+			waitTime(getWaitInMillis());
+			counter++;
+		}
+
+		if (path == null) {
+			String message = "The specified text \"" + text + "\" could not be found in any frame (" + mode + ")!";
+			LOGGER.error(message);
+			throw new StopTestException(message);
+		}
+
+		LOGGER.info("The specified text \"" + text + "\" was found in frame '" + path + "'.");
+		return true;
+	}
+
 	/**
 	 * Searches for a given text in the HTML source and returns true if found.
 	 * 
@@ -875,7 +1176,7 @@ public class WebFixture implements StoppableFixture, Fixture {
 	 *         otherwise
 	 */
 	public boolean textIsVisible(String text) {
-		boolean result = webDriver.getPageSource().contains(text);
+		boolean result = getWebDriver().getPageSource().contains(text);
 		if (!result) {
 			String message = "The specified text \"" + text + "\" could not be found!";
 			LOGGER.error(message);
@@ -915,7 +1216,7 @@ public class WebFixture implements StoppableFixture, Fixture {
 	 */
 	public boolean switchToFrame(String elementListKey) {
 		WebElement webElement = findWebelement(elementListKey);
-		webDriver.switchTo().frame(webElement);
+		getWebDriver().switchTo().frame(webElement);
 
 		return true;
 	}
@@ -934,7 +1235,7 @@ public class WebFixture implements StoppableFixture, Fixture {
 	 *         false otherwise
 	 */
 	public boolean textIsUnvisible(String text) {
-		boolean result = !webDriver.getPageSource().contains(text);
+		boolean result = !getWebDriver().getPageSource().contains(text);
 		if (!result) {
 			String message = "The specified text \"" + text + "\" could be found!";
 			LOGGER.error(message);
@@ -944,7 +1245,9 @@ public class WebFixture implements StoppableFixture, Fixture {
 	}
 
 	/**
-	 * Close the browser instance.
+	 * Close the browser instance. The browser is returned to the browser pool
+	 * or closed in the background by the {@link BrowserReaper}, so this method
+	 * returns immediately.
 	 * 
 	 * FitNesse usage..: |close browser| <br />
 	 * FitNesse example: |close browser| <br />
@@ -953,27 +1256,21 @@ public class WebFixture implements StoppableFixture, Fixture {
 	 * @return always true to show inside FitNesse a positive result
 	 */
 	public void closeBrowser() {
-		// checks if Browser is Chrome because Chromedriver does not function
-		// with Close-Method of WebDriver
+		WebSession session = getSession();
+		session.clearCache();
+		if (session.getPendingLaunch() != null) {
+			session.getPendingLaunch().close();
+			session.setPendingLaunch(null);
+			return;
+		}
+		WebDriver webDriver = session.getWebDriver();
 		if (webDriver == null) {
 			return;
 		}
-		if (webDriver instanceof ChromeDriver) {
-			webDriver.quit();
-		} else {
-			webDriver.close();
-			// necessary wait, at least for FF portable
-			waitTime(500);
-			// best effort
-			try {
-				webDriver.quit();
-				// CHECKSTYLE:OFF
-			} catch (Throwable t) { // disable checkstyle for empty block
-				// CHECKSTYLE:ON
-				// NFA - at least Firefox portable is down after close()
-			}
+		if (!BrowserPool.getInstance().release(session.getBrowserPoolKey(), webDriver)) {
+			BrowserReaper.reap(webDriver);
 		}
-		return;
+		session.setWebDriver(null);
 	}
 
 	/**
@@ -1001,7 +1298,7 @@ public class WebFixture implements StoppableFixture, Fixture {
 			if (LOGGER.isDebugEnabled()) {
 				LOGGER.debug("element found ready for Action (moveToElement)");
 			}
-			Actions actions = new Actions(webDriver);
+			Actions actions = new Actions(getWebDriver());
 			actions.moveToElement(element).build().perform();
 			result = true;
 		}
@@ -1027,7 +1324,7 @@ public class WebFixture implements StoppableFixture, Fixture {
 			if (LOGGER.isDebugEnabled()) {
 				LOGGER.debug("element found ready for Action (moveToElement)");
 			}
-			Actions actions = new Actions(webDriver);
+			Actions actions = new Actions(getWebDriver());
 			actions.moveToElement(element).build().perform();
 		}
 		click(menuEntryKey);
@@ -1137,13 +1434,13 @@ public class WebFixture implements StoppableFixture, Fixture {
 		int counter = 0;
 
 		while (elements == null) {
-			if (counter >= waitCounter) {
+			if (counter >= getWaitCounter()) {
 				break;
 			}
 
 			try {
 				if (context == null) {
-					elements = webDriver.findElements(by);
+					elements = getWebDriver().findElements(by);
 				} else {
 					elements = context.findElements(by);
 				}
@@ -1159,11 +1456,11 @@ public class WebFixture implements StoppableFixture, Fixture {
 			}
 
 			elements = null;
-			waitTime(waitInMillis);
+			waitTime(getWaitInMillis());
 			counter++;
 		}
 
-		if (result == null || !result.isDisplayed()) {
+		if (result == null) {
 			throw new TimeoutException("Timeout: no element was found");
 		}
 
@@ -1171,8 +1468,8 @@ public class WebFixture implements StoppableFixture, Fixture {
 	}
 
 	/**
-	 * Iterates over a list of web elements and returns the first that is
-	 * visible (as determined by selenium's {@link isDisplayed} method).
+	 * Returns the first visible web element of a list. The visibility of the
+	 * elements is checked in the browser at once (see {@link VisibleElements}).
 	 * 
 	 * @param elements
 	 *            the element list to search
@@ -1180,16 +1477,7 @@ public class WebFixture implements StoppableFixture, Fixture {
 	 *         list is empty or not web element is visible
 	 */
 	private WebElement getFirstDisplayed(List<WebElement> elements) {
-		WebElement result = null;
-		if (elements != null) {
-			for (WebElement element : elements) {
-				if (element.isDisplayed()) {
-					result = element;
-					break;
-				}
-			}
-		}
-		return result;
+		return VisibleElements.getFirst(getWebDriver(), elements);
 	}
 
 	/**
@@ -1215,7 +1503,7 @@ public class WebFixture implements StoppableFixture, Fixture {
 	protected String getLocatorFromElementList(String elementListKey) {
 
 		try {
-			return elementListService.getValue(elementListKey);
+			return getElementlist().getValue(elementListKey);
 		} catch (ElementKeyNotFoundException e) {
 			return defaultHandelKeyNotFoundException(elementListKey, e);
 		}
@@ -1357,9 +1645,9 @@ public class WebFixture implements StoppableFixture, Fixture {
 	 *            timeout in seconds
 	 */
 	public void setTimeout(String timeout) {
-		this.timeout = Integer.valueOf(timeout);
+		getSession().setTimeout(Integer.valueOf(timeout));
 		if (LOGGER.isTraceEnabled()) {
-			LOGGER.trace(">>>> Set timeout to: " + this.timeout + " seconds. <<<<<");
+			LOGGER.trace(">>>> Set timeout to: " + getSession().getTimeout() + " seconds. <<<<<");
 		}
 	}
 
@@ -1371,7 +1659,7 @@ public class WebFixture implements StoppableFixture, Fixture {
 	 * @return result True if value was found
 	 */
 	public boolean checkTextAndTearDown(String value) {
-		boolean result = webDriver.getPageSource().contains(value);
+		boolean result = getWebDriver().getPageSource().contains(value);
 		if (!result) {
 			String message = "The specified text \"" + value + "\" could not be found!";
 			result = true;
@@ -1382,21 +1670,38 @@ public class WebFixture implements StoppableFixture, Fixture {
 
 	@Override
 	public void tearDown() {
-		closeBrowser();
+		try {
+			closeBrowser();
+		} finally {
+			// the session of the thread ends with the test, pooled threads
+			// (e.g. of a test runner) must not keep it
+			sessions.remove();
+		}
+		try {
+			TestDurationHistory.getInstance().save();
+		} catch (StopTestException e) {
+			LOGGER.warn(e.getMessage());
+		}
 	}
 
 	public String getTestName() {
-		return null;
+		return getSession().getTestName();
 	}
 
 	public void postInvoke(Method arg0, Object arg1, Object... arg2)
 			throws InvocationTargetException, IllegalAccessException {
+		// records the wall time of the test in the TestDurationHistory
+		getSession().stepFinished();
 	}
 
 	public void preInvoke(Method arg0, Object arg1, Object... arg2)
 			throws InvocationTargetException, IllegalAccessException {
+		// the first step starts the wall time of the test
+		getSession().stepStarted();
 	}
 
 	public void setTestName(String arg0) {
+		getSession().setTestName(arg0);
+		recycleBrowserIfDegraded();
 	}
 }
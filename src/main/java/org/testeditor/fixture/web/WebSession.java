@@ -0,0 +1,373 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openqa.selenium.WebDriver;
+import org.testeditor.fixture.core.elementlist.ElementListService;
+
+/**
+ * Mutable state of a fixture for one browser session: the web driver, the
+ * timeouts, the element list and caches. The web fixtures keep one session
+ * per thread (see {@link #forThread()}), so several scenarios can run
+ * concurrently on separate threads with the same fixture instance without
+ * sharing mutable state. A session is confined to its thread and therefore
+ * not synchronized.
+ */
+public final class WebSession {
+
+	/** Default maximum wait time in seconds for each test step. */
+	public static final int DEFAULT_TIMEOUT = 10;
+	/** Default wait time in milliseconds between two element lookups. */
+	public static final int DEFAULT_WAIT_IN_MILLIS = 250;
+	/** Default maximum number of element lookups. */
+	public static final int DEFAULT_WAIT_COUNTER = 100;
+
+	private WebDriver webDriver;
+	private BrowserLaunch pendingLaunch;
+	private BrowserFanOut fanOut;
+	private boolean lazyLaunch = Boolean.getBoolean(BrowserLaunch.LAZY_PROPERTY);
+	private String seleniumGrid = System.getProperty(SeleniumGrid.GRID_PROPERTY);
+	private int insertScriptLength = Integer.getInteger(FieldInsertion.SCRIPT_LENGTH_PROPERTY, 0);
+	private DriverConfiguration driverConfiguration;
+	private String browserPoolKey;
+	private CapabilityProfile capabilityProfile;
+	private StartupProfiler startupProfile;
+	private boolean firstNavigation;
+	private ElementListService elementListService;
+	private int timeout = DEFAULT_TIMEOUT;
+	private int waitInMillis = DEFAULT_WAIT_IN_MILLIS;
+	private int waitCounter = DEFAULT_WAIT_COUNTER;
+	private String testName;
+	private long testStart;
+	private final Map<String, Object> cache = new HashMap<String, Object>();
+
+	/**
+	 * Creates a thread local, which holds a new session for each thread.
+	 *
+	 * @return the thread local sessions
+	 */
+	public static ThreadLocal<WebSession> forThread() {
+		return new ThreadLocal<WebSession>() {
+
+			@Override
+			protected WebSession initialValue() {
+				return new WebSession();
+			}
+		};
+	}
+
+	/**
+	 * @return the web driver of the started browser, {@code null} if no
+	 *         browser is started (or the launch is pending)
+	 */
+	public WebDriver getWebDriver() {
+		return webDriver;
+	}
+
+	/**
+	 * @param webDriver
+	 *            the web driver of the started browser or {@code null}
+	 */
+	public void setWebDriver(WebDriver webDriver) {
+		this.webDriver = webDriver;
+	}
+
+	/**
+	 * @return the browser launched in the background, {@code null} if no
+	 *         launch is pending
+	 */
+	public BrowserLaunch getPendingLaunch() {
+		return pendingLaunch;
+	}
+
+	/**
+	 * @param pendingLaunch
+	 *            the browser launched in the background or {@code null}
+	 */
+	public void setPendingLaunch(BrowserLaunch pendingLaunch) {
+		this.pendingLaunch = pendingLaunch;
+	}
+
+	/**
+	 * @return the browsers, which run the steps in parallel, or {@code null}
+	 */
+	public BrowserFanOut getFanOut() {
+		return fanOut;
+	}
+
+	/**
+	 * @param fanOut
+	 *            the browsers, which run the steps in parallel, or
+	 *            {@code null}
+	 */
+	public void setFanOut(BrowserFanOut fanOut) {
+		this.fanOut = fanOut;
+	}
+
+	/**
+	 * @return {@code true}, if browsers are launched in the background
+	 */
+	public boolean isLazyLaunch() {
+		return lazyLaunch;
+	}
+
+	/**
+	 * @param lazyLaunch
+	 *            {@code true} to launch browsers in the background
+	 */
+	public void setLazyLaunch(boolean lazyLaunch) {
+		this.lazyLaunch = lazyLaunch;
+	}
+
+	/**
+	 * @return the {@link SeleniumGrid} for new browsers, {@code null} to start
+	 *         them directly
+	 */
+	public String getSeleniumGrid() {
+		return seleniumGrid;
+	}
+
+	/**
+	 * @param seleniumGrid
+	 *            the {@link SeleniumGrid} for new browsers or {@code null}
+	 */
+	public void setSeleniumGrid(String seleniumGrid) {
+		this.seleniumGrid = seleniumGrid;
+	}
+
+	/**
+	 * @return the minimal length of values, which are inserted by a script
+	 *         (see {@link FieldInsertion}), 0 to type all values
+	 */
+	public int getInsertScriptLength() {
+		return insertScriptLength;
+	}
+
+	/**
+	 * @param insertScriptLength
+	 *            the minimal length of values, which are inserted by a script,
+	 *            0 to type all values
+	 */
+	public void setInsertScriptLength(int insertScriptLength) {
+		this.insertScriptLength = insertScriptLength;
+	}
+
+	/**
+	 * @return the configuration of the opened browser or {@code null}
+	 */
+	public DriverConfiguration getDriverConfiguration() {
+		return driverConfiguration;
+	}
+
+	/**
+	 * @param driverConfiguration
+	 *            the configuration of the opened browser
+	 */
+	public void setDriverConfiguration(DriverConfiguration driverConfiguration) {
+		this.driverConfiguration = driverConfiguration;
+	}
+
+	/**
+	 * @return the key of the browser in the {@link BrowserPool} or
+	 *         {@code null}
+	 */
+	public String getBrowserPoolKey() {
+		return browserPoolKey;
+	}
+
+	/**
+	 * @param browserPoolKey
+	 *            the key of the browser in the {@link BrowserPool}
+	 */
+	public void setBrowserPoolKey(String browserPoolKey) {
+		this.browserPoolKey = browserPoolKey;
+	}
+
+	/**
+	 * @return the explicitly set capability profile, {@code null} if not set
+	 */
+	public CapabilityProfile getCapabilityProfile() {
+		return capabilityProfile;
+	}
+
+	/**
+	 * @param capabilityProfile
+	 *            the capability profile for new browsers
+	 */
+	public void setCapabilityProfile(CapabilityProfile capabilityProfile) {
+		this.capabilityProfile = capabilityProfile;
+	}
+
+	/**
+	 * @return the phases of the last browser start or {@code null}
+	 */
+	public StartupProfiler getStartupProfile() {
+		return startupProfile;
+	}
+
+	/**
+	 * @param startupProfile
+	 *            the phases of the last browser start
+	 */
+	public void setStartupProfile(StartupProfiler startupProfile) {
+		this.startupProfile = startupProfile;
+	}
+
+	/**
+	 * @return {@code true}, if the browser has not navigated since its start
+	 */
+	public boolean isFirstNavigation() {
+		return firstNavigation;
+	}
+
+	/**
+	 * @param firstNavigation
+	 *            {@code true}, if the browser has not navigated since its
+	 *            start
+	 */
+	public void setFirstNavigation(boolean firstNavigation) {
+		this.firstNavigation = firstNavigation;
+	}
+
+	/**
+	 * @return the element list or {@code null}
+	 */
+	public ElementListService getElementListService() {
+		return elementListService;
+	}
+
+	/**
+	 * @param elementListService
+	 *            the element list
+	 */
+	public void setElementListService(ElementListService elementListService) {
+		this.elementListService = elementListService;
+	}
+
+	/**
+	 * @return the maximum wait time in seconds for each test step
+	 */
+	public int getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * @param timeout
+	 *            the maximum wait time in seconds for each test step
+	 */
+	public void setTimeout(int timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * @return the wait time in milliseconds between two element lookups
+	 */
+	public int getWaitInMillis() {
+		return waitInMillis;
+	}
+
+	/**
+	 * @param waitInMillis
+	 *            the wait time in milliseconds between two element lookups
+	 */
+	public void setWaitInMillis(int waitInMillis) {
+		this.waitInMillis = waitInMillis;
+	}
+
+	/**
+	 * @return the maximum number of element lookups
+	 */
+	public int getWaitCounter() {
+		return waitCounter;
+	}
+
+	/**
+	 * @param waitCounter
+	 *            the maximum number of element lookups
+	 */
+	public void setWaitCounter(int waitCounter) {
+		this.waitCounter = waitCounter;
+	}
+
+	/**
+	 * @return the name of the running test or {@code null}
+	 */
+	public String getTestName() {
+		return testName;
+	}
+
+	/**
+	 * Sets the name of the running test and resets its start time.
+	 *
+	 * @param testName
+	 *            the name of the running test
+	 */
+	public void setTestName(String testName) {
+		this.testName = testName;
+		this.testStart = 0;
+	}
+
+	/**
+	 * Called before each step: the first step starts the wall time of the
+	 * running test.
+	 */
+	public void stepStarted() {
+		if (testName != null && testStart == 0) {
+			testStart = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Called after each step: records the wall time of the running test from
+	 * its first step until now in the {@link TestDurationHistory}.
+	 */
+	public void stepFinished() {
+		if (testName != null && testStart != 0) {
+			TestDurationHistory.getInstance().record(testName, System.currentTimeMillis() - testStart);
+		}
+	}
+
+	/**
+	 * Returns a cached value of this session, e.g. a configuration read from
+	 * the browser.
+	 *
+	 * @param key
+	 *            the key of the value
+	 * @return the value or {@code null} if not cached
+	 */
+	public Object getCached(String key) {
+		return cache.get(key);
+	}
+
+	/**
+	 * Caches a value for this session. The cache is cleared, when the browser
+	 * is closed.
+	 *
+	 * @param key
+	 *            the key of the value
+	 * @param value
+	 *            the value
+	 */
+	public void putCached(String key, Object value) {
+		cache.put(key, value);
+	}
+
+	/**
+	 * Clears the cached values of this session.
+	 */
+	public void clearCache() {
+		cache.clear();
+	}
+}
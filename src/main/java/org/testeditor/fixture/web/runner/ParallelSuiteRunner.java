@@ -0,0 +1,529 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web.runner;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.testeditor.fixture.core.exceptions.ContinueTestException;
+import org.testeditor.fixture.core.exceptions.StopTestException;
+import org.testeditor.fixture.core.interaction.Fixture;
+import org.testeditor.fixture.core.interaction.StoppableFixture;
+import org.testeditor.fixture.web.BrowserPool;
+import org.testeditor.fixture.web.TestDurationHistory;
+
+/**
+ * Runs {@link ScenarioScript}s on several workers in parallel, e.g. with the
+ * {@code HtmlWebFixture} or the {@code RapWebFixture}. Each worker has its
+ * own fixture instance and thereby its own browser session. The tests are
+ * distributed to a queue per worker; a worker, whose queue is empty, steals
+ * tests from the end of the queues of the other workers, so no worker idles
+ * while tests are waiting. The results are reported to the
+ * {@link SuiteListener}s as soon as each test finishes.
+ * <p>
+ * With a {@link ShardPlanner}, the tests are distributed by the durations of
+ * the previous runs instead of round robin, longest first.
+ * <p>
+ * While the suite runs, the {@link BrowserPool} keeps at least one browser
+ * per worker, so {@code closeBrowser} and {@code openBrowser} between the
+ * tests of a worker reuse its browser.
+ */
+public final class ParallelSuiteRunner {
+
+	/** System property with the shard of this process, e.g. '0/4'. */
+	public static final String SHARD_PROPERTY = "testeditor.shard";
+
+	private static final Logger LOGGER = Logger.getLogger(ParallelSuiteRunner.class);
+
+	private static final String SET_UP = "SetUp";
+
+	private static final String TEAR_DOWN = "TearDown";
+
+	private static final List<String> SUITE_PAGES = Arrays.asList("SuiteSetUp", "SuiteTearDown");
+
+	private final int workers;
+
+	private final FixtureFactory factory;
+
+	private final List<SuiteListener> listeners = new CopyOnWriteArrayList<SuiteListener>();
+
+	/**
+	 * Creates the fixture of a worker.
+	 */
+	public interface FixtureFactory {
+
+		/**
+		 * @return a new fixture instance
+		 */
+		Object create();
+	}
+
+	/**
+	 * @param workers
+	 *            the number of parallel workers
+	 * @param factory
+	 *            creates the fixture of each worker
+	 */
+	public ParallelSuiteRunner(int workers, FixtureFactory factory) {
+		if (workers < 1) {
+			throw new IllegalArgumentException("At least one worker is needed.");
+		}
+		this.workers = workers;
+		this.factory = factory;
+	}
+
+	/**
+	 * @param listener
+	 *            receives the results of the tests
+	 */
+	public void addListener(SuiteListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * @return the number of parallel workers
+	 */
+	public int getWorkers() {
+		return workers;
+	}
+
+	/**
+	 * Runs the tests. They are distributed round robin to the workers.
+	 *
+	 * @param scripts
+	 *            the tests
+	 * @return the results in the order the tests finished
+	 */
+	public List<TestResult> run(List<ScenarioScript> scripts) {
+		List<List<ScenarioScript>> queues = new ArrayList<List<ScenarioScript>>();
+		for (int i = 0; i < workers; i++) {
+			queues.add(new ArrayList<ScenarioScript>());
+		}
+		for (int i = 0; i < scripts.size(); i++) {
+			queues.get(i % workers).add(scripts.get(i));
+		}
+		return execute(queues);
+	}
+
+	/**
+	 * Runs the tests. They are distributed to the workers by the durations of
+	 * the previous runs, so the workers finish at about the same time.
+	 *
+	 * @param scripts
+	 *            the tests
+	 * @param planner
+	 *            distributes the tests to the workers
+	 * @return the results in the order the tests finished
+	 */
+	public List<TestResult> run(List<ScenarioScript> scripts, ShardPlanner planner) {
+		return execute(planner.plan(scripts, workers));
+	}
+
+	/**
+	 * Runs the tests of the queues, one worker per queue.
+	 *
+	 * @param queues
+	 *            the tests of each worker
+	 * @return the results in the order the tests finished
+	 */
+	private List<TestResult> execute(List<List<ScenarioScript>> queues) {
+		final List<LinkedBlockingDeque<ScenarioScript>> deques = new ArrayList<LinkedBlockingDeque<ScenarioScript>>();
+		for (List<ScenarioScript> queue : queues) {
+			deques.add(new LinkedBlockingDeque<ScenarioScript>(queue));
+		}
+		final List<TestResult> results = Collections.synchronizedList(new ArrayList<TestResult>());
+
+		BrowserPool pool = BrowserPool.getInstance();
+		int poolSize = pool.getSize();
+		pool.setSize(Math.max(poolSize, workers));
+		ExecutorService executor = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "suite-worker-" + count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int i = 0; i < workers; i++) {
+				final int worker = i;
+				futures.add(executor.submit(new Runnable() {
+
+					@Override
+					public void run() {
+						runWorker(worker, deques, results);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new StopTestException("Interrupted while running the suite.", e);
+		} catch (ExecutionException e) {
+			throw new StopTestException("Worker failed: " + e.getCause().getMessage(), e.getCause());
+		} finally {
+			executor.shutdownNow();
+			pool.setSize(poolSize);
+		}
+		return new ArrayList<TestResult>(results);
+	}
+
+	/**
+	 * Runs the tests of the worker and steals tests of the other workers,
+	 * until all queues are empty.
+	 *
+	 * @param worker
+	 *            the index of the worker
+	 * @param deques
+	 *            the queues of all workers
+	 * @param results
+	 *            the results of the finished tests
+	 */
+	private void runWorker(int worker, List<LinkedBlockingDeque<ScenarioScript>> deques, List<TestResult> results) {
+		Object fixture = factory.create();
+		try {
+			ScenarioScript script = next(worker, deques);
+			while (script != null) {
+				TestResult result = runTest(worker, fixture, script);
+				results.add(result);
+				for (SuiteListener listener : listeners) {
+					listener.testFinished(result);
+				}
+				script = next(worker, deques);
+			}
+		} finally {
+			if (fixture instanceof StoppableFixture) {
+				((StoppableFixture) fixture).tearDown();
+			}
+		}
+	}
+
+	/**
+	 * @param worker
+	 *            the index of the worker
+	 * @param deques
+	 *            the queues of all workers
+	 * @return the next test of the own queue, otherwise the last test of
+	 *         another queue, {@code null} if all queues are empty
+	 */
+	private ScenarioScript next(int worker, List<LinkedBlockingDeque<ScenarioScript>> deques) {
+		ScenarioScript script = deques.get(worker).pollFirst();
+		for (int i = 1; script == null && i < deques.size(); i++) {
+			script = deques.get((worker + i) % deques.size()).pollLast();
+		}
+		return script;
+	}
+
+	/**
+	 * Runs the steps of the test and afterwards its tear down steps, like
+	 * FitNesse even if the test is aborted. A test is aborted at the first
+	 * failed step, except for a {@link ContinueTestException}. The browser of
+	 * an aborted test is closed.
+	 *
+	 * @param worker
+	 *            the index of the worker
+	 * @param fixture
+	 *            the fixture of the worker
+	 * @param script
+	 *            the test
+	 * @return the result of the test
+	 */
+	private TestResult runTest(int worker, Object fixture, ScenarioScript script) {
+		for (SuiteListener listener : listeners) {
+			listener.testStarted(script.getName(), worker);
+		}
+		long start = System.currentTimeMillis();
+		if (fixture instanceof Fixture) {
+			((Fixture) fixture).setTestName(script.getName());
+		}
+		List<String> failures = new ArrayList<String>();
+		boolean aborted = true;
+		try {
+			aborted = runSteps(fixture, script.getSteps(), failures);
+		} finally {
+			aborted |= runSteps(fixture, script.getTearDownSteps(), failures);
+			if (aborted && fixture instanceof StoppableFixture) {
+				((StoppableFixture) fixture).tearDown();
+			}
+		}
+		return new TestResult(script.getName(), worker, System.currentTimeMillis() - start, failures);
+	}
+
+	/**
+	 * Runs the steps until the first step, which aborts the test.
+	 *
+	 * @param fixture
+	 *            the fixture of the worker
+	 * @param steps
+	 *            the steps
+	 * @param failures
+	 *            the failures of the test
+	 * @return {@code true} if a step aborted the test
+	 */
+	private boolean runSteps(Object fixture, List<ScriptStep> steps, List<String> failures) {
+		for (ScriptStep step : steps) {
+			String failure;
+			boolean abort = true;
+			try {
+				failure = step.invoke(fixture);
+				abort = false;
+			} catch (InvocationTargetException e) {
+				failure = String.valueOf(e.getCause());
+				abort = !(e.getCause() instanceof ContinueTestException);
+				// CHECKSTYLE:OFF
+			} catch (Exception e) {
+				// CHECKSTYLE:ON
+				failure = String.valueOf(e);
+			}
+			if (failure != null) {
+				failures.add(step + " " + failure);
+			}
+			if (abort) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Runs the scripts of the given files and directories (all 'content.txt'
+	 * and '*.txt' files, see {@link #collectScripts(List)}) and logs the
+	 * results. The process exits with 0, if all tests passed, otherwise with
+	 * 1 (2 for wrong arguments).
+	 * <p>
+	 * Usage: {@code ParallelSuiteRunner <fixture class> <workers> <file or
+	 * directory>...}
+	 * <p>
+	 * The tests are distributed by the durations in the file of the system
+	 * property {@value TestDurationHistory#FILE_PROPERTY}. To split the suite
+	 * across processes, the system property {@value #SHARD_PROPERTY} selects
+	 * the shard of this process, e.g. '0/4' for the first of four.
+	 *
+	 * @param args
+	 *            the fixture class, the number of workers and the scripts
+	 * @throws ReflectiveOperationException
+	 *             if the fixture class could not be instantiated
+	 */
+	public static void main(String[] args) throws ReflectiveOperationException {
+		if (args.length < 3) {
+			LOGGER.error("Usage: ParallelSuiteRunner <fixture class> <workers> <file or directory>...");
+			System.exit(2);
+		}
+		final Class<?> fixtureClass = Class.forName(args[0]);
+		List<File> files = new ArrayList<File>();
+		for (int i = 2; i < args.length; i++) {
+			files.add(new File(args[i]));
+		}
+		List<ScenarioScript> scripts = collectScripts(files);
+		ShardPlanner planner = new ShardPlanner(TestDurationHistory.getInstance());
+		String shard = System.getProperty(SHARD_PROPERTY);
+		if (shard != null) {
+			String[] indexAndCount = shard.split("/");
+			scripts = planner.plan(scripts, Integer.parseInt(indexAndCount[1].trim())).get(
+					Integer.parseInt(indexAndCount[0].trim()));
+		}
+
+		ParallelSuiteRunner runner = new ParallelSuiteRunner(Integer.parseInt(args[1]), new FixtureFactory() {
+
+			@Override
+			public Object create() {
+				try {
+					return fixtureClass.newInstance();
+				} catch (ReflectiveOperationException e) {
+					throw new StopTestException("Fixture could not be created.", e);
+				}
+			}
+		});
+		runner.addListener(new SuiteListener() {
+
+			@Override
+			public void testStarted(String name, int worker) {
+				LOGGER.info("Started " + name + " (worker " + worker + ")");
+			}
+
+			@Override
+			public void testFinished(TestResult result) {
+				LOGGER.info(result);
+			}
+		});
+		long start = System.currentTimeMillis();
+		int failed = 0;
+		for (TestResult result : runner.run(scripts, planner)) {
+			if (!result.isPassed()) {
+				failed++;
+			}
+		}
+		LOGGER.info(scripts.size() + " tests, " + failed + " failed in " + (System.currentTimeMillis() - start)
+				+ " ms");
+		if (failed > 0) {
+			System.exit(1);
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * Collects the tests of the given files and directories like FitNesse:
+	 * the pages 'SetUp' and 'TearDown' are no tests, but their steps run
+	 * before and after each test below the directory of the page (the nearest
+	 * one is used). The pages 'SuiteSetUp' and 'SuiteTearDown' are skipped,
+	 * because each worker has its own browser session. Pages without script
+	 * table (e.g. suite pages) are no tests either. The tests are named by
+	 * their page path from the given directory, e.g. 'MySuite.Admin.Users'.
+	 *
+	 * @param files
+	 *            scripts or directories with scripts
+	 * @return the tests
+	 */
+	static List<ScenarioScript> collectScripts(List<File> files) {
+		List<ScenarioScript> scripts = new ArrayList<ScenarioScript>();
+		List<ScriptStep> none = Collections.emptyList();
+		for (File file : files) {
+			collectScripts(file, null, none, none, scripts);
+		}
+		return scripts;
+	}
+
+	/**
+	 * @param file
+	 *            a script or a directory with scripts
+	 * @param parent
+	 *            the page path of the directory of the file or {@code null}
+	 *            for a given file
+	 * @param setUp
+	 *            the steps of the inherited 'SetUp' page
+	 * @param tearDown
+	 *            the steps of the inherited 'TearDown' page
+	 * @param scripts
+	 *            the collected scripts
+	 */
+	private static void collectScripts(File file, String parent, List<ScriptStep> setUp,
+			List<ScriptStep> tearDown, List<ScenarioScript> scripts) {
+		if (file.isDirectory()) {
+			String path = getPagePath(parent, file.getName());
+			File[] children = file.listFiles();
+			if (children == null) {
+				return;
+			}
+			Arrays.sort(children);
+			List<ScriptStep> childSetUp = findPage(children, SET_UP, setUp);
+			List<ScriptStep> childTearDown = findPage(children, TEAR_DOWN, tearDown);
+			for (File child : children) {
+				String name = getChildName(child);
+				if (SUITE_PAGES.contains(name)) {
+					LOGGER.warn("Page '" + child + "' is skipped, suite pages are not run in parallel.");
+				} else if (!SET_UP.equals(name) && !TEAR_DOWN.equals(name)) {
+					collectScripts(child, path, childSetUp, childTearDown, scripts);
+				}
+			}
+		} else if (file.getName().endsWith(".txt")) {
+			ScenarioScript script = ScenarioScript.load(file);
+			if (!script.getSteps().isEmpty()) {
+				List<ScriptStep> steps = new ArrayList<ScriptStep>(setUp);
+				steps.addAll(script.getSteps());
+				scripts.add(new ScenarioScript(getTestName(file, parent, script), steps, tearDown));
+			}
+		}
+	}
+
+	/**
+	 * @param file
+	 *            the file of a test
+	 * @param parent
+	 *            the page path of the directory of the file or {@code null}
+	 * @param script
+	 *            the script of the file
+	 * @return the page path of the test, a 'content.txt' is the page of its
+	 *         directory
+	 */
+	private static String getTestName(File file, String parent, ScenarioScript script) {
+		if (parent == null) {
+			return script.getName();
+		}
+		if ("content.txt".equals(file.getName())) {
+			return parent;
+		}
+		return getPagePath(parent, script.getName());
+	}
+
+	/**
+	 * @param parent
+	 *            the page path of the parent or {@code null}
+	 * @param name
+	 *            the name of the page
+	 * @return the page path, e.g. 'MySuite.Admin'
+	 */
+	private static String getPagePath(String parent, String name) {
+		if (parent == null) {
+			return name;
+		}
+		return parent + "." + name;
+	}
+
+	/**
+	 * @param children
+	 *            the files of a directory
+	 * @param name
+	 *            the name of the page, e.g. 'SetUp'
+	 * @param inherited
+	 *            the steps of the page of the parent directory
+	 * @return the steps of the page in the directory ('SetUp/content.txt' or
+	 *         'SetUp.txt'), otherwise the inherited steps
+	 */
+	private static List<ScriptStep> findPage(File[] children, String name, List<ScriptStep> inherited) {
+		for (File child : children) {
+			if (!name.equals(getChildName(child))) {
+				continue;
+			}
+			File page = child;
+			if (child.isDirectory()) {
+				page = new File(child, "content.txt");
+			}
+			if (page.isFile()) {
+				return ScenarioScript.load(page).getSteps();
+			}
+		}
+		return inherited;
+	}
+
+	/**
+	 * @param child
+	 *            a file of a directory
+	 * @return the name of the page in the directory, i.e. the name of the
+	 *         directory or of the file without '.txt'
+	 */
+	private static String getChildName(File child) {
+		String name = child.getName();
+		if (!child.isDirectory() && name.endsWith(".txt")) {
+			return name.substring(0, name.length() - ".txt".length());
+		}
+		return name;
+	}
+}
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web.runner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.testeditor.fixture.core.exceptions.StopTestException;
+
+/**
+ * A test as FitNesse script table, e.g. the content.txt of a test page:
+ *
+ * <pre>
+ * !|script|HtmlWebFixture|
+ * |open browser|firefox|
+ * |navigate to url|http://localhost:8080/|
+ * |check|read value of element|Name|Peter|
+ * |close browser|
+ * </pre>
+ *
+ * Only the rows of script tables are read; a table ends at the first line,
+ * which is no row. The first row ({@code script}), other tables (e.g.
+ * {@code import}, {@code scenario} or {@code comment}) and all other lines are
+ * ignored.
+ */
+public final class ScenarioScript {
+
+	private final String name;
+
+	private final List<ScriptStep> steps;
+
+	private final List<ScriptStep> tearDownSteps;
+
+	/**
+	 * @param name
+	 *            the name of the test
+	 * @param steps
+	 *            the steps of the test
+	 */
+	public ScenarioScript(String name, List<ScriptStep> steps) {
+		this(name, steps, Collections.<ScriptStep> emptyList());
+	}
+
+	/**
+	 * @param name
+	 *            the name of the test
+	 * @param steps
+	 *            the steps of the test
+	 * @param tearDownSteps
+	 *            the steps, which run after the test, even if it is aborted
+	 *            (e.g. of the 'TearDown' page)
+	 */
+	public ScenarioScript(String name, List<ScriptStep> steps, List<ScriptStep> tearDownSteps) {
+		this.name = name;
+		this.steps = Collections.unmodifiableList(new ArrayList<ScriptStep>(steps));
+		this.tearDownSteps = Collections.unmodifiableList(new ArrayList<ScriptStep>(tearDownSteps));
+	}
+
+	/**
+	 * Parses the rows of the script tables.
+	 *
+	 * @param name
+	 *            the name of the test
+	 * @param content
+	 *            the page with the script tables
+	 * @return the script
+	 */
+	public static ScenarioScript parse(String name, String content) {
+		List<ScriptStep> steps = new ArrayList<ScriptStep>();
+		boolean inTable = false;
+		boolean script = false;
+		for (String line : content.split("\\r?\\n")) {
+			List<String> cells = toCells(line);
+			if (cells == null) {
+				inTable = false;
+			} else if (!inTable) {
+				inTable = true;
+				script = "script".equalsIgnoreCase(cells.get(0).trim());
+			} else if (script) {
+				steps.add(new ScriptStep(cells));
+			}
+		}
+		return new ScenarioScript(name, steps);
+	}
+
+	/**
+	 * @param line
+	 *            a line of the page
+	 * @return the cells of the table row or {@code null}, if the line is no
+	 *         row (the first row of a table may start with '!|', '-|' or
+	 *         '-!|')
+	 */
+	private static List<String> toCells(String line) {
+		String row = line.trim();
+		if (row.startsWith("-|") || row.startsWith("-!|")) {
+			row = row.substring(1);
+		}
+		if (row.startsWith("!|")) {
+			row = row.substring(1);
+		}
+		if (!row.startsWith("|") || row.length() < 2) {
+			return null;
+		}
+		if (row.endsWith("|")) {
+			row = row.substring(0, row.length() - 1);
+		}
+		return new ArrayList<String>(Arrays.asList(row.substring(1).split("\\|", -1)));
+	}
+
+	/**
+	 * Reads the script from a file. The name of the test is the name of the
+	 * file, for a FitNesse 'content.txt' the name of the directory.
+	 *
+	 * @param file
+	 *            the file
+	 * @return the script
+	 * @throws StopTestException
+	 *             if the file could not be read
+	 */
+	public static ScenarioScript load(File file) throws StopTestException {
+		String name = file.getName();
+		if ("content.txt".equals(name) && file.getAbsoluteFile().getParentFile() != null) {
+			name = file.getAbsoluteFile().getParentFile().getName();
+		} else if (name.lastIndexOf('.') > 0) {
+			name = name.substring(0, name.lastIndexOf('.'));
+		}
+		try {
+			return parse(name, new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			throw new StopTestException("Script '" + file + "' could not be read.", e);
+		}
+	}
+
+	/**
+	 * @return the name of the test
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the steps of the test
+	 */
+	public List<ScriptStep> getSteps() {
+		return steps;
+	}
+
+	/**
+	 * @return the steps, which run after the test, even if it is aborted
+	 */
+	public List<ScriptStep> getTearDownSteps() {
+		return tearDownSteps;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,260 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web.runner;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.testeditor.fixture.core.interaction.Fixture;
+
+/**
+ * One row of a FitNesse script table, e.g. {@code |click|Login|} or
+ * {@code |check|read value of element|Name|Peter|}. As in FitNesse, the odd
+ * cells form the name of the fixture method and the even cells are the
+ * arguments; the cells are trimmed. The first cell may be one of the keywords
+ * {@code check}, {@code check not}, {@code ensure}, {@code reject},
+ * {@code show} and {@code note}.
+ */
+public final class ScriptStep {
+
+	private static final String CHECK = "check";
+	private static final String CHECK_NOT = "check not";
+	private static final String ENSURE = "ensure";
+	private static final String REJECT = "reject";
+	private static final String SHOW = "show";
+	private static final String NOTE = "note";
+
+	private static final List<String> KEYWORDS = Arrays.asList(CHECK, CHECK_NOT, ENSURE, REJECT, SHOW, NOTE);
+
+	private final List<String> cells;
+
+	private final String keyword;
+
+	private final String methodName;
+
+	private final String[] arguments;
+
+	private final String expected;
+
+	/**
+	 * @param cells
+	 *            the cells of the row
+	 */
+	public ScriptStep(List<String> cells) {
+		this.cells = Collections.unmodifiableList(new ArrayList<String>(cells));
+		List<String> call = new ArrayList<String>(cells);
+		String first = call.get(0).trim().toLowerCase();
+		if (KEYWORDS.contains(first)) {
+			keyword = first;
+			call.remove(0);
+		} else {
+			keyword = null;
+		}
+		if (CHECK.equals(keyword) || CHECK_NOT.equals(keyword)) {
+			expected = call.remove(call.size() - 1).trim();
+		} else {
+			expected = null;
+		}
+
+		StringBuilder name = new StringBuilder();
+		List<String> args = new ArrayList<String>();
+		for (int i = 0; i < call.size(); i++) {
+			if (i % 2 == 0) {
+				name.append(' ').append(call.get(i));
+			} else {
+				args.add(call.get(i).trim());
+			}
+		}
+		methodName = toMethodName(name.toString());
+		arguments = args.toArray(new String[args.size()]);
+	}
+
+	/**
+	 * @return the name of the fixture method, e.g. {@code readValueOfElement}
+	 */
+	public String getMethodName() {
+		return methodName;
+	}
+
+	/**
+	 * @return the arguments of the fixture method
+	 */
+	public String[] getArguments() {
+		return arguments.clone();
+	}
+
+	/**
+	 * Invokes the step on the fixture. The {@link Fixture} hooks
+	 * {@code preInvoke} and {@code postInvoke} are called around the
+	 * invocation, as the test editor does; {@code postInvoke} also if the
+	 * fixture method fails.
+	 *
+	 * @param fixture
+	 *            the fixture
+	 * @return {@code null} if the step passed, otherwise the failure message
+	 * @throws InvocationTargetException
+	 *             if the fixture method threw an exception
+	 * @throws IllegalAccessException
+	 *             if the fixture method is not accessible
+	 * @throws NoSuchMethodException
+	 *             if the fixture has no such method
+	 */
+	public String invoke(Object fixture) throws InvocationTargetException, IllegalAccessException,
+			NoSuchMethodException {
+		if (NOTE.equals(keyword) || methodName.isEmpty()) {
+			return null;
+		}
+		Method method = findMethod(fixture.getClass());
+		Object[] args = convertArguments(method);
+		if (fixture instanceof Fixture) {
+			((Fixture) fixture).preInvoke(method, fixture, args);
+		}
+		Object result;
+		try {
+			result = method.invoke(fixture, args);
+		} finally {
+			if (fixture instanceof Fixture) {
+				((Fixture) fixture).postInvoke(method, fixture, args);
+			}
+		}
+		return evaluate(result);
+	}
+
+	/**
+	 * @param result
+	 *            the result of the fixture method
+	 * @return {@code null} if the result is as expected, otherwise the failure
+	 *         message
+	 */
+	private String evaluate(Object result) {
+		if (CHECK.equals(keyword) && !String.valueOf(result).equals(expected)) {
+			return "expected '" + expected + "' but was '" + result + "'";
+		}
+		if (CHECK_NOT.equals(keyword) && String.valueOf(result).equals(expected)) {
+			return "expected not '" + expected + "'";
+		}
+		if (REJECT.equals(keyword) && !Boolean.FALSE.equals(result)) {
+			return "expected false but was '" + result + "'";
+		}
+		if ((keyword == null || ENSURE.equals(keyword)) && Boolean.FALSE.equals(result)) {
+			return "returned false";
+		}
+		return null;
+	}
+
+	/**
+	 * Finds the public method with the name and number of arguments of this
+	 * step. Methods with a fixed number of parameters are preferred to methods
+	 * with variable arguments.
+	 *
+	 * @param type
+	 *            the class of the fixture
+	 * @return the method
+	 * @throws NoSuchMethodException
+	 *             if there is no such method
+	 */
+	private Method findMethod(Class<?> type) throws NoSuchMethodException {
+		Method varArgs = null;
+		for (Method method : type.getMethods()) {
+			if (!method.getName().equals(methodName)) {
+				continue;
+			}
+			int count = method.getParameterTypes().length;
+			if (!method.isVarArgs() && count == arguments.length) {
+				return method;
+			}
+			if (method.isVarArgs() && arguments.length >= count - 1) {
+				varArgs = method;
+			}
+		}
+		if (varArgs == null) {
+			throw new NoSuchMethodException(type.getSimpleName() + "." + methodName + " with " + arguments.length
+					+ " argument(s)");
+		}
+		return varArgs;
+	}
+
+	/**
+	 * @param method
+	 *            the method to invoke
+	 * @return the arguments converted to the parameter types of the method
+	 */
+	private Object[] convertArguments(Method method) {
+		Class<?>[] types = method.getParameterTypes();
+		Object[] args = new Object[types.length];
+		for (int i = 0; i < types.length; i++) {
+			if (method.isVarArgs() && i == types.length - 1) {
+				args[i] = Arrays.copyOfRange(arguments, i, arguments.length);
+			} else {
+				args[i] = convert(arguments[i], types[i]);
+			}
+		}
+		return args;
+	}
+
+	/**
+	 * @param value
+	 *            the cell value
+	 * @param type
+	 *            the parameter type
+	 * @return the converted value
+	 */
+	private static Object convert(String value, Class<?> type) {
+		if (type == Integer.class || type == int.class) {
+			return Integer.valueOf(value.trim());
+		}
+		if (type == Long.class || type == long.class) {
+			return Long.valueOf(value.trim());
+		}
+		if (type == Boolean.class || type == boolean.class) {
+			return Boolean.valueOf(value.trim());
+		}
+		return value;
+	}
+
+	/**
+	 * Converts the words of the method name to camel case, as FitNesse does,
+	 * e.g. 'read value of element' to 'readValueOfElement'.
+	 *
+	 * @param words
+	 *            the words of the name
+	 * @return the method name
+	 */
+	static String toMethodName(String words) {
+		StringBuilder name = new StringBuilder();
+		for (String word : words.trim().split("\\s+")) {
+			if (word.isEmpty()) {
+				continue;
+			}
+			if (name.length() == 0) {
+				name.append(Character.toLowerCase(word.charAt(0)));
+			} else {
+				name.append(Character.toUpperCase(word.charAt(0)));
+			}
+			name.append(word.substring(1));
+		}
+		return name.toString();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder("|");
+		for (String cell : cells) {
+			result.append(cell).append('|');
+		}
+		return result.toString();
+	}
+}
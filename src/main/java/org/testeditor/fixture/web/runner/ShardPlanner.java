@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web.runner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.testeditor.fixture.web.TestDurationHistory;
+
+/**
+ * Distributes tests to shards (parallel workers or processes) by the
+ * durations of the previous runs: the tests are assigned longest first, each
+ * to the shard with the least expected run time so far (longest processing
+ * time first). Each shard runs its tests longest first, so short tests are
+ * left at the end, where they fill the gaps between the shards.
+ * <p>
+ * Tests without a recorded duration are expected to take the mean duration
+ * of the known tests. The name of a test is its {@code toString()}.
+ */
+public final class ShardPlanner {
+
+	private final Map<String, Long> durations;
+
+	private final long defaultDuration;
+
+	/**
+	 * @param history
+	 *            the durations of the previous runs
+	 */
+	public ShardPlanner(TestDurationHistory history) {
+		this.durations = history.getDurations();
+		long total = 0;
+		for (Long duration : durations.values()) {
+			total += duration;
+		}
+		if (durations.isEmpty()) {
+			defaultDuration = 1;
+		} else {
+			defaultDuration = Math.max(1, total / durations.size());
+		}
+	}
+
+	/**
+	 * @param test
+	 *            the test
+	 * @return the expected duration of the test in milliseconds
+	 */
+	public long estimate(Object test) {
+		Long duration = durations.get(String.valueOf(test));
+		if (duration == null) {
+			return defaultDuration;
+		}
+		return duration;
+	}
+
+	/**
+	 * Distributes the tests to the shards.
+	 *
+	 * @param tests
+	 *            the tests
+	 * @param shards
+	 *            the number of shards
+	 * @param <T>
+	 *            the type of the tests
+	 * @return the tests of each shard, longest first
+	 */
+	public <T> List<List<T>> plan(Collection<T> tests, int shards) {
+		List<T> sorted = new ArrayList<T>(tests);
+		Collections.sort(sorted, new Comparator<T>() {
+
+			@Override
+			public int compare(T left, T right) {
+				return Long.compare(estimate(right), estimate(left));
+			}
+		});
+
+		List<List<T>> plan = new ArrayList<List<T>>();
+		long[] loads = new long[shards];
+		for (int i = 0; i < shards; i++) {
+			plan.add(new ArrayList<T>());
+		}
+		for (T test : sorted) {
+			int shard = 0;
+			for (int i = 1; i < shards; i++) {
+				if (loads[i] < loads[shard]) {
+					shard = i;
+				}
+			}
+			plan.get(shard).add(test);
+			loads[shard] += estimate(test);
+		}
+		return plan;
+	}
+
+	/**
+	 * @param tests
+	 *            the tests of a shard
+	 * @return the expected run time of the shard in milliseconds
+	 */
+	public long estimateShard(Collection<?> tests) {
+		long total = 0;
+		for (Object test : tests) {
+			total += estimate(test);
+		}
+		return total;
+	}
+}
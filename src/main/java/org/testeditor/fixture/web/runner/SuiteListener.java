@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web.runner;
+
+/**
+ * Receives the results of the {@link ParallelSuiteRunner} as soon as each test
+ * finishes. The methods are called from the worker threads.
+ */
+public interface SuiteListener {
+
+	/**
+	 * @param name
+	 *            the name of the started test
+	 * @param worker
+	 *            the index of the worker, which runs the test
+	 */
+	void testStarted(String name, int worker);
+
+	/**
+	 * @param result
+	 *            the result of the finished test
+	 */
+	void testFinished(TestResult result);
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web.runner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of one test run by the {@link ParallelSuiteRunner}.
+ */
+public final class TestResult {
+
+	private final String name;
+
+	private final int worker;
+
+	private final long durationMillis;
+
+	private final List<String> failures;
+
+	/**
+	 * @param name
+	 *            the name of the test
+	 * @param worker
+	 *            the index of the worker, which ran the test
+	 * @param durationMillis
+	 *            the wall time of the test in milliseconds
+	 * @param failures
+	 *            the failed steps, empty if the test passed
+	 */
+	public TestResult(String name, int worker, long durationMillis, List<String> failures) {
+		this.name = name;
+		this.worker = worker;
+		this.durationMillis = durationMillis;
+		this.failures = Collections.unmodifiableList(new ArrayList<String>(failures));
+	}
+
+	/**
+	 * @return the name of the test
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the index of the worker, which ran the test
+	 */
+	public int getWorker() {
+		return worker;
+	}
+
+	/**
+	 * @return the wall time of the test in milliseconds
+	 */
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+
+	/**
+	 * @return {@code true} if no step failed
+	 */
+	public boolean isPassed() {
+		return failures.isEmpty();
+	}
+
+	/**
+	 * @return the failed steps with their messages
+	 */
+	public List<String> getFailures() {
+		return failures;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder(name);
+		if (isPassed()) {
+			result.append(" passed");
+		} else {
+			result.append(" failed");
+		}
+		result.append(" in ").append(durationMillis).append(" ms (worker ").append(worker).append(')');
+		for (String failure : failures) {
+			result.append("\n  ").append(failure);
+		}
+		return result.toString();
+	}
+}
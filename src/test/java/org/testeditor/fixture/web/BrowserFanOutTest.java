@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+import org.testeditor.fixture.web.runner.ScriptStep;
+
+/**
+ * Tests for {@code BrowserFanOut}.
+ *
+ */
+public class BrowserFanOutTest {
+
+	private static final long LAUNCH_MILLIS = 500;
+
+	private static final String INDEX = new File("src/test/resources/WebApplication/index.html").toURI().toString();
+
+	/**
+	 * The browsers are opened in parallel and run each step. A failure in a
+	 * mirror (an exception or {@code false}) is reported, but does not fail
+	 * the step.
+	 *
+	 * @throws Exception
+	 *             if a step fails in the first browser
+	 */
+	@Test
+	public void testStepsRunInAllBrowsers() throws Exception {
+		FanOutFixture fixture = new FanOutFixture();
+		fixture.setElementlist("src/test/resources/ElementList.conf");
+		long start = System.currentTimeMillis();
+		fixture.openBrowsers("firefox, chrome, htmlunit, chrome");
+		// the three slow browsers start in parallel, not one after the other
+		assertTrue(System.currentTimeMillis() - start < 3 * LAUNCH_MILLIS);
+		try {
+			assertNull(step("navigate to url", INDEX).invoke(fixture));
+			assertNull(step("check", "read title", "Demo TestEditor").invoke(fixture));
+			assertNull(step("fail in", "chrome").invoke(fixture));
+			assertNull(step("check in", "htmlunit").invoke(fixture));
+		} finally {
+			fixture.closeBrowser();
+		}
+
+		BrowserFanOut fanOut = fixture.getSession().getFanOut();
+		assertEquals(Arrays.asList("firefox", "chrome", "htmlunit"), fanOut.getBrowsers());
+		assertEquals(0, fanOut.getFailed("firefox"));
+		assertEquals(1, fanOut.getFailed("chrome"));
+		assertEquals(1, fanOut.getFailed("htmlunit"));
+		String report = fixture.readFanOutReport();
+		assertTrue(report, report.matches("firefox: 6 steps, 0 failed, \\d+ ms \\(\\+\\d+ ms\\)\n"
+				+ "chrome: 6 steps, 1 failed, \\d+ ms \\(\\+\\d+ ms\\), first failure: failIn failed: chrome\n"
+				+ "htmlunit: 6 steps, 1 failed, \\d+ ms \\(\\+\\d+ ms\\), "
+				+ "first failure: checkIn failed: returned false"));
+		assertTrue(fanOut.isClosed());
+	}
+
+	/**
+	 * @param cells
+	 *            the cells of the row
+	 * @return the step
+	 */
+	private static ScriptStep step(String... cells) {
+		return new ScriptStep(Arrays.asList(cells));
+	}
+
+	/**
+	 * Starts HtmlUnit for each browser name, Firefox and Chrome slowly.
+	 */
+	public static final class FanOutFixture extends HtmlWebFixture {
+
+		@Override
+		protected WebDriver createWebDriver(DriverConfiguration configuration) {
+			if (!DriverConfiguration.HTMLUNIT.equals(configuration.getBrowserName())) {
+				try {
+					Thread.sleep(LAUNCH_MILLIS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return new HtmlUnitDriver(true);
+		}
+
+		/**
+		 * @return the title of the current page
+		 */
+		public String readTitle() {
+			return getWebDriver().getTitle();
+		}
+
+		/**
+		 * @param browser
+		 *            the browser, in which the step fails
+		 * @return {@code true}
+		 */
+		public boolean failIn(String browser) {
+			if (browser.equals(getSession().getDriverConfiguration().getBrowserName())) {
+				throw new IllegalStateException(browser);
+			}
+			return true;
+		}
+
+		/**
+		 * @param browser
+		 *            the browser, in which the check fails
+		 * @return {@code false} in the given browser, {@code true} otherwise
+		 */
+		public boolean checkIn(String browser) {
+			return !browser.equals(getSession().getDriverConfiguration().getBrowserName());
+		}
+	}
+}
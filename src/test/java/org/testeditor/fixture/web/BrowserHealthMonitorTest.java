@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+/**
+ * Tests for {@code BrowserHealthMonitor}.
+ *
+ */
+public class BrowserHealthMonitorTest {
+
+	/**
+	 * Without limits, browsers are never degraded.
+	 */
+	@Test
+	public void testDisabled() {
+		WebDriver driver = new SlowDriver(200);
+		try {
+			assertFalse(new BrowserHealthMonitor(0, 0).isDegraded(driver));
+		} finally {
+			driver.quit();
+		}
+	}
+
+	/**
+	 * A browser with slow commands is degraded.
+	 */
+	@Test
+	public void testLatency() {
+		BrowserHealthMonitor monitor = new BrowserHealthMonitor(100, 0);
+		WebDriver fast = new SlowDriver(0);
+		WebDriver slow = new SlowDriver(300);
+		try {
+			assertFalse(monitor.isDegraded(fast));
+			assertTrue(monitor.isDegraded(slow));
+		} finally {
+			fast.quit();
+			slow.quit();
+		}
+	}
+
+	/**
+	 * The memory of the processes carrying the marker of the launch is
+	 * monitored, processes of other launches at the same time are not counted.
+	 *
+	 * @throws IOException
+	 *             if the process could not be started
+	 */
+	@Test
+	public void testRss() throws IOException {
+		assumeTrue(new File("/proc/self/status").exists());
+		BrowserHealthMonitor monitor = new BrowserHealthMonitor(0, 100000);
+		WebDriver driver = new SlowDriver(0);
+		WebDriver other = new SlowDriver(0);
+		Process process = null;
+		try {
+			String marker = monitor.beginLaunch();
+			String otherMarker = monitor.beginLaunch();
+			ProcessBuilder builder = new ProcessBuilder("sleep", "30");
+			builder.environment().put(BrowserHealthMonitor.MARKER_VARIABLE, marker);
+			process = builder.start();
+			monitor.endLaunch(driver, marker);
+			monitor.endLaunch(other, otherMarker);
+
+			assertTrue(monitor.getRss(driver) > 0);
+			assertEquals(0, monitor.getRss(other));
+			assertFalse(monitor.isDegraded(driver));
+			monitor.setMaxRss(0);
+			monitor.setMaxLatency(0);
+			assertFalse(monitor.isDegraded(driver));
+		} finally {
+			if (process != null) {
+				process.destroy();
+			}
+			driver.quit();
+			other.quit();
+		}
+	}
+
+	/**
+	 * Web driver with a configurable latency.
+	 */
+	private static final class SlowDriver extends HtmlUnitDriver {
+
+		private final long latency;
+
+		/**
+		 * @param latency
+		 *            the latency of {@code getWindowHandle} in milliseconds
+		 */
+		private SlowDriver(long latency) {
+			this.latency = latency;
+		}
+
+		@Override
+		public String getWindowHandle() {
+			try {
+				Thread.sleep(latency);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return super.getWindowHandle();
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+import org.testeditor.fixture.core.exceptions.StopTestException;
+
+/**
+ * Tests for {@code BrowserLaunch}.
+ *
+ */
+public class BrowserLaunchTest {
+
+	private static final long LAUNCH_MILLIS = 500;
+
+	/**
+	 * The launch returns immediately, join waits for the browser.
+	 */
+	@Test
+	public void testJoin() {
+		StartupProfiler profile = StartupProfiler.begin();
+		long start = System.currentTimeMillis();
+		BrowserLaunch launch = BrowserLaunch.start("lazy", new SlowFactory());
+		assertTrue(System.currentTimeMillis() - start < LAUNCH_MILLIS);
+		assertFalse(launch.isDone());
+		profile.end();
+
+		WebDriver driver = launch.join();
+		try {
+			assertNotNull(driver);
+			assertTrue(profile.getPhase(StartupProfiler.LEASE) >= LAUNCH_MILLIS);
+			assertNotNull(profile.getPhase(StartupProfiler.JOIN));
+		} finally {
+			driver.quit();
+		}
+	}
+
+	/**
+	 * A failed launch is reported as {@code StopTestException} on join.
+	 */
+	@Test
+	public void testJoinFailedLaunch() {
+		BrowserLaunch launch = BrowserLaunch.start("failing", new BrowserPool.DriverFactory() {
+
+			@Override
+			public WebDriver create() {
+				throw new WebDriverException("no browser");
+			}
+		});
+		try {
+			launch.join();
+		} catch (StopTestException e) {
+			assertTrue(e.getMessage().contains("no browser"));
+			return;
+		}
+		throw new AssertionError("StopTestException expected");
+	}
+
+	/**
+	 * With a lazy launch, openBrowser returns before the browser is started
+	 * and the first navigation waits for it.
+	 */
+	@Test
+	public void testLazyOpenBrowser() {
+		HtmlWebFixture fixture = new HtmlWebFixture() {
+
+			@Override
+			protected WebDriver createWebDriver(DriverConfiguration configuration) {
+				return new SlowFactory().create();
+			}
+		};
+		fixture.setLazyBrowserLaunch("true");
+
+		long start = System.currentTimeMillis();
+		fixture.openBrowser("firefox");
+		assertTrue(System.currentTimeMillis() - start < LAUNCH_MILLIS);
+		try {
+			fixture.setElementlist("src/test/resources/ElementList.conf");
+			fixture.navigateToUrl(new File("src/test/resources/WebApplication/index.html").toURI().toString());
+			assertEquals("Demo TestEditor", fixture.getWebDriver().getTitle());
+
+			String profile = fixture.readStartupProfile();
+			assertTrue(profile, profile.matches("resolve=\\d+ ms, lease=\\d+ ms, join=\\d+ ms, navigation=\\d+ ms"));
+		} finally {
+			fixture.closeBrowser();
+		}
+	}
+
+	/**
+	 * Starts a browser slowly.
+	 */
+	private static final class SlowFactory implements BrowserPool.DriverFactory {
+
+		@Override
+		public WebDriver create() {
+			try {
+				Thread.sleep(LAUNCH_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return new HtmlUnitDriver(true);
+		}
+	}
+}
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+/**
+ * Tests for {@code BrowserPool}.
+ *
+ */
+public class BrowserPoolTest {
+
+	private static final String KEY = "htmlunit";
+	private static final String WEB_INDEX_PAGE = new File("src/test/resources/WebApplication/index.html").toURI()
+			.toString();
+
+	private final AtomicInteger started = new AtomicInteger();
+	private final BrowserPool.DriverFactory factory = new BrowserPool.DriverFactory() {
+
+		@Override
+		public WebDriver create() {
+			started.incrementAndGet();
+			return new HtmlUnitDriver(true);
+		}
+	};
+	private BrowserPool pool;
+
+	/**
+	 * Closes all browsers of the pool.
+	 */
+	@After
+	public void tearDown() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * A disabled pool starts a new browser for each lease, does not take the
+	 * browsers back and does not track their navigation.
+	 */
+	@Test
+	public void testDisabledPool() {
+		pool = new BrowserPool(0);
+
+		WebDriver driver = pool.lease(KEY, factory);
+		assertNotSame(driver, pool.lease(KEY, factory));
+		assertEquals(2, started.get());
+
+		assertFalse(pool.release(KEY, driver));
+		driver.quit();
+
+		WebDriver unpooled = new HtmlUnitDriver(true) {
+
+			@Override
+			public String getCurrentUrl() {
+				throw new AssertionError("The current page of a browser outside of the pool is read.");
+			}
+		};
+		pool.navigated(unpooled, WEB_INDEX_PAGE);
+		unpooled.quit();
+	}
+
+	/**
+	 * A returned browser is reset in the background and leased again.
+	 */
+	@Test
+	public void testReturnedBrowserIsReused() {
+		pool = new BrowserPool(1);
+
+		WebDriver driver = pool.lease(KEY, factory);
+		driver.get(WEB_INDEX_PAGE);
+		assertTrue(pool.release(KEY, driver));
+		pool.awaitReturns(KEY);
+		assertEquals("about:blank", driver.getCurrentUrl());
+		assertEquals(1, pool.getIdleCount(KEY));
+
+		assertSame(driver, pool.lease(KEY, factory));
+		assertFalse(pool.release("unknown", new HtmlUnitDriver()));
+	}
+
+	/**
+	 * The cookies and storage of all visited origins are cleared, when a
+	 * browser is returned.
+	 */
+	@Test
+	public void testVisitedOriginsAreCleared() {
+		pool = new BrowserPool(1);
+		final List<String> urls = new ArrayList<String>();
+		BrowserPool.DriverFactory recording = new BrowserPool.DriverFactory() {
+
+			@Override
+			public WebDriver create() {
+				return new HtmlUnitDriver(true) {
+
+					@Override
+					public void get(String url) {
+						urls.add(url);
+						if (!url.startsWith("http")) {
+							super.get(url);
+						}
+					}
+				};
+			}
+		};
+
+		WebDriver driver = pool.lease(KEY, recording);
+		driver.get(WEB_INDEX_PAGE);
+		urls.clear();
+		pool.navigated(driver, "http://Example.org:8080/app/login?user=test");
+		pool.visited(driver, "https://example.org/start");
+		pool.visited(driver, "http://example.org:8080/app/logout");
+		pool.visited(driver, WEB_INDEX_PAGE);
+		assertTrue(pool.release(KEY, driver));
+		pool.awaitReturns(KEY);
+
+		assertEquals("[http://example.org:8080/, https://example.org/, about:blank]",
+				urls.toString());
+		assertEquals("http://example.org/", BrowserPool.getOrigin("http://example.org"));
+	}
+
+	/**
+	 * The pool is filled in the background.
+	 *
+	 * @throws InterruptedException
+	 *             if the test is interrupted
+	 */
+	@Test
+	public void testWarmUp() throws InterruptedException {
+		pool = new BrowserPool(2);
+
+		pool.warmUp(KEY, factory);
+		for (int i = 0; i < 100 && pool.getIdleCount(KEY) < 2; i++) {
+			Thread.sleep(50);
+		}
+		assertEquals(2, pool.getIdleCount(KEY));
+
+		pool.lease(KEY, factory);
+		pool.setSize(0);
+		assertEquals(0, pool.getIdleCount(KEY));
+	}
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.internal.Killable;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+
+/**
+ * Tests for {@code BrowserReaper}.
+ *
+ */
+public class BrowserReaperTest {
+
+	/**
+	 * The browser is closed in the background, the caller does not wait.
+	 */
+	@Test
+	public void testReapReturnsImmediately() {
+		final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+		WebDriver driver = (WebDriver) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { WebDriver.class }, new InvocationHandler() {
+
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if ("close".equals(method.getName())) {
+							Thread.sleep(1000);
+						}
+						calls.add(method.getName());
+						return null;
+					}
+				});
+
+		long start = System.currentTimeMillis();
+		BrowserReaper.reap(driver);
+		assertTrue(System.currentTimeMillis() - start < 500);
+
+		assertTrue(BrowserReaper.awaitPending(BrowserReaper.getTimeout(), TimeUnit.SECONDS));
+		assertEquals("[close, quit]", calls.toString());
+	}
+
+	/**
+	 * The browser is quit, even if closing fails, and killed, if quitting
+	 * fails.
+	 */
+	@Test
+	public void testFailingBrowserIsKilled() {
+		assertEquals("[close, quit]", reapFailing("close"));
+		assertEquals("[close, quit, kill]", reapFailing("close", "quit"));
+	}
+
+	/**
+	 * @param failing
+	 *            the names of the methods, which fail
+	 * @return the names of the called methods
+	 */
+	private String reapFailing(final String... failing) {
+		final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+		WebDriver driver = (WebDriver) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {
+				WebDriver.class, Killable.class }, new InvocationHandler() {
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				calls.add(method.getName());
+				if (Arrays.asList(failing).contains(method.getName())) {
+					throw new UnreachableBrowserException("unreachable");
+				}
+				return null;
+			}
+		});
+
+		BrowserReaper.reap(driver);
+		assertTrue(BrowserReaper.awaitPending(BrowserReaper.getTimeout(), TimeUnit.SECONDS));
+		return calls.toString();
+	}
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.testeditor.fixture.core.elementlist.ElementListService;
+import org.testeditor.fixture.core.exceptions.StopTestException;
+
+/**
+ * Tests for {@code CapabilityProfile}.
+ *
+ */
+public class CapabilityProfileTest {
+
+	private static final String PROFILE = "src/test/resources/capability-profile.properties";
+	private static final String ELEMENT_LIST_WEB = "src/test/resources/WebApplication/ElementList.conf";
+
+	/**
+	 * All values are read from the properties file.
+	 */
+	@Test
+	public void testLoad() {
+		CapabilityProfile profile = CapabilityProfile.load(PROFILE);
+
+		assertTrue(profile.isHeadless());
+		assertEquals(new Dimension(1280, 1024), profile.getWindowSize());
+		assertTrue(profile.isExtensionsDisabled());
+		assertEquals("eager", profile.getPageLoadStrategy());
+		assertFalse(profile.isDefault());
+	}
+
+	/**
+	 * Missing keys keep the browser defaults.
+	 */
+	@Test
+	public void testMissingKeys() {
+		assertTrue(CapabilityProfile.fromProperties(new Properties()).isDefault());
+		assertTrue(CapabilityProfile.fromElementList(ElementListService.instanceFor(ELEMENT_LIST_WEB)).isDefault());
+		assertNull(CapabilityProfile.DEFAULT.toChromeCapabilities().getCapability(ChromeOptions.CAPABILITY));
+	}
+
+	/**
+	 * The Chrome arguments and the page load strategy are set.
+	 *
+	 * @throws Exception
+	 *             if the options could not be converted to JSON
+	 */
+	@Test
+	public void testChromeCapabilities() throws Exception {
+		DesiredCapabilities capabilities = CapabilityProfile.load(PROFILE).toChromeCapabilities();
+		String options = ((ChromeOptions) capabilities.getCapability(ChromeOptions.CAPABILITY)).toJson().toString();
+
+		assertTrue(options.contains("--headless"));
+		assertTrue(options.contains("--window-size=1280,1024"));
+		assertTrue(options.contains("--disable-extensions"));
+		assertEquals("eager", capabilities.getCapability("pageLoadStrategy"));
+	}
+
+	/**
+	 * Firefox has no headless mode in the versions of this Selenium version.
+	 */
+	@Test(expected = StopTestException.class)
+	public void testFirefoxHeadlessIsRejected() {
+		CapabilityProfile.load(PROFILE).toFirefoxCapabilities(null, null);
+	}
+
+	/**
+	 * Invalid values stop the test.
+	 */
+	@Test
+	public void testInvalidValues() {
+		Properties properties = new Properties();
+		properties.setProperty(CapabilityProfile.WINDOW_SIZE, "1280");
+		try {
+			CapabilityProfile.fromProperties(properties);
+			Assert.fail();
+		} catch (StopTestException e) {
+			assertTrue(true);
+		}
+
+		properties.clear();
+		properties.setProperty(CapabilityProfile.PAGE_LOAD_STRATEGY, "fast");
+		try {
+			CapabilityProfile.fromProperties(properties);
+			Assert.fail();
+		} catch (StopTestException e) {
+			assertTrue(true);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Properties;
+
+import org.junit.Test;
+import org.testeditor.fixture.core.exceptions.StopTestException;
+
+/**
+ * Tests for {@code DriverConfiguration}.
+ *
+ */
+public class DriverConfigurationTest {
+
+	/**
+	 * The configuration is immutable, changes create copies.
+	 */
+	@Test
+	public void testWithCreatesCopies() {
+		DriverConfiguration chrome = DriverConfiguration.forBrowser(" Chrome ", CapabilityProfile.DEFAULT);
+		DriverConfiguration other = chrome.withDriverPath("/opt/chromedriver");
+
+		assertEquals("chrome", chrome.getBrowserName());
+		assertEquals("/opt/chromedriver", other.getDriverPath());
+		assertEquals(chrome, chrome.withDriverPath(chrome.getDriverPath()));
+		assertFalse(chrome.getPoolKey().equals(other.getPoolKey()));
+		assertNull(other.withDriverPath(" ").getDriverPath());
+	}
+
+	/**
+	 * Starting a browser does not change any system property.
+	 */
+	@Test
+	public void testCreateDriverDoesNotChangeSystemProperties() {
+		Properties before = (Properties) System.getProperties().clone();
+		try {
+			DriverConfiguration.forBrowser("firefox", CapabilityProfile.DEFAULT).withBrowserPath("/does/not/exist")
+					.withFirefoxProfile("testing").createDriver();
+			fail("StopTestException expected");
+		} catch (StopTestException e) {
+			assertEquals(before, System.getProperties());
+		}
+	}
+
+	/**
+	 * Unknown browsers stop the test.
+	 */
+	@Test(expected = StopTestException.class)
+	public void testUnknownBrowser() {
+		DriverConfiguration.forBrowser("opera", CapabilityProfile.DEFAULT).createDriver();
+	}
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.testeditor.fixture.core.exceptions.StopTestException;
+
+/**
+ * Tests the {@link EclipseRapFixture} on a page with RAP like widgets.
+ *
+ */
+@SuppressWarnings("deprecation")
+public class EclipseRapFixtureTest {
+
+	private static final String ELEMENT_LIST_WEB = "src/test/resources/WebApplication/ElementList.conf";
+	private static final String WEB_RAP_PAGE = new File("src/test/resources/WebApplication/rap.html").toURI()
+			.toString();
+
+	private EclipseRapFixture fixture;
+
+	/**
+	 * Opens the page with the widgets.
+	 */
+	@Before
+	public void setUp() {
+		fixture = new EclipseRapFixture();
+		fixture.openBrowser(DriverConfiguration.HTMLUNIT, "");
+		fixture.setElementlist(ELEMENT_LIST_WEB);
+		fixture.navigateToUrl(WEB_RAP_PAGE);
+	}
+
+	/**
+	 * Closes the browser.
+	 */
+	@After
+	public void tearDown() {
+		fixture.closeBrowser();
+	}
+
+	/**
+	 * A typed value is checked, when the field shows it again after the
+	 * second click.
+	 */
+	@Test
+	public void testInsertTypedValue() {
+		fixture.insertIntoField("Peter", "rap_text");
+		assertEquals("Peter", fixture.readAttributeFromField("value", "rap_text"));
+	}
+
+	/**
+	 * A long value is set by a script and checked.
+	 */
+	@Test
+	public void testInsertScriptedValue() {
+		fixture.setInsertScriptLength("10");
+		fixture.insertIntoField("A long comment for the text area", "rap_textarea");
+		assertEquals("A long comment for the text area", fixture.readAttributeFromField("value", "rap_textarea"));
+	}
+
+	/**
+	 * The value is typed into other elements and they are clicked twice,
+	 * their value is not checked.
+	 */
+	@Test
+	public void testInsertIntoDiv() {
+		fixture.insertIntoField("Peter", "rap_div");
+		assertEquals("2", fixture.readAttributeFromField("title", "rap_div"));
+	}
+
+	/**
+	 * A field, which does not show the value, stops the test after the wait
+	 * time.
+	 */
+	@Test(expected = StopTestException.class)
+	public void testInsertIntoTooShortFieldFails() {
+		fixture.setWaitCounter(2);
+		fixture.insertIntoField("Peter", "rap_short");
+	}
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Test;
+import org.openqa.selenium.firefox.FirefoxProfile;
+import org.openqa.selenium.io.FileHandler;
+
+/**
+ * Tests for {@code FirefoxProfileTemplates}.
+ *
+ */
+public class FirefoxProfileTemplatesTest {
+
+	/**
+	 * The template is prepared once and contains the preferences.
+	 */
+	@Test
+	public void testTemplateIsPreparedOnce() {
+		File template = FirefoxProfileTemplates.getTemplate(null);
+
+		assertSame(template, FirefoxProfileTemplates.getTemplate(null));
+		assertTrue(new File(template, "user.js").isFile());
+	}
+
+	/**
+	 * Session profiles are copies of the template with their own preferences.
+	 *
+	 * @throws IOException
+	 *             if the files could not be compared
+	 */
+	@Test
+	public void testSessionProfilesAreCopies() throws IOException {
+		File template = FirefoxProfileTemplates.getTemplate(null);
+		File first = FirefoxProfileTemplates.newProfile(null).layoutOnDisk();
+		File second = FirefoxProfileTemplates.newProfile(null).layoutOnDisk();
+		try {
+			assertTrue(new File(first, "user.js").isFile());
+			assertFalse(Files.isSameFile(new File(first, "user.js").toPath(), new File(template, "user.js").toPath()));
+			assertFalse(Files.isSameFile(new File(first, "user.js").toPath(), new File(second, "user.js").toPath()));
+		} finally {
+			FileHandler.delete(first);
+			FileHandler.delete(second);
+		}
+	}
+
+	/**
+	 * The serialized form is reused for profiles with the same preferences.
+	 *
+	 * @throws IOException
+	 *             if the profile could not be serialized
+	 */
+	@Test
+	public void testSerializedFormIsCached() throws IOException {
+		FirefoxProfile first = FirefoxProfileTemplates.newProfile(null);
+		FirefoxProfile second = FirefoxProfileTemplates.newProfile(null);
+		FirefoxProfile other = FirefoxProfileTemplates.newProfile(null);
+		other.setPreference("browser.download.folderList", 2);
+
+		assertSame(first.toJson(), second.toJson());
+		assertNotSame(first.toJson(), other.toJson());
+	}
+}
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.Keys;
+import org.testeditor.fixture.core.exceptions.ContinueTestException;
+import org.testeditor.fixture.core.exceptions.StopTestException;
+
+/**
+ * Tests the {@link RapWebFixture} on a page with RAP like widgets.
+ *
+ */
+public class RapWebFixtureTest {
+
+	private static final String ELEMENT_LIST_WEB = "src/test/resources/WebApplication/ElementList.conf";
+	private static final String WEB_RAP_PAGE = new File("src/test/resources/WebApplication/rap.html").toURI()
+			.toString();
+
+	private RapWebFixture fixture;
+
+	/**
+	 * Opens the page with the widgets.
+	 */
+	@Before
+	public void setUp() {
+		fixture = new RapWebFixture();
+		fixture.openBrowser(DriverConfiguration.HTMLUNIT);
+		fixture.setElementlist(ELEMENT_LIST_WEB);
+		fixture.navigateToUrl(WEB_RAP_PAGE);
+	}
+
+	/**
+	 * Closes the browser.
+	 */
+	@After
+	public void tearDown() {
+		fixture.closeBrowser();
+	}
+
+	/**
+	 * The date is read from the day, month and year fields.
+	 */
+	@Test
+	public void testReadDateField() {
+		assertEquals("10.05.2014", fixture.readDateField("date_dom"));
+		assertTrue(fixture.checkTextIsPresentOnDateField("1.1.2000", "date_model"));
+	}
+
+	/**
+	 * The date is set through the client side widget, also with the
+	 * deprecated variant with a date format.
+	 */
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testInsertIntoDateFieldWithWidget() {
+		assertTrue(fixture.insertIntoDateField("24", "12", "2015", "date_model"));
+		assertEquals("24.12.2015", fixture.readDateField("date_model"));
+		assertEquals(1L, fixture.executeScript("return widgets.w12.changes;"));
+
+		assertTrue(fixture.deprecatedInsertIntoDateField("03.04.2016", "date_model"));
+		assertEquals("3.4.2016", fixture.readDateField("date_model"));
+	}
+
+	/**
+	 * The date does not roll over, while day, month and year are set one
+	 * after the other.
+	 */
+	@Test
+	public void testInsertIntoDateFieldDoesNotRollOver() {
+		assertTrue(fixture.insertIntoDateField("31", "1", "2015", "date_model"));
+		assertTrue(fixture.insertIntoDateField("15", "2", "2015", "date_model"));
+		assertEquals("15.2.2015", fixture.readDateField("date_model"));
+	}
+
+	/**
+	 * The date is checked against the model of the widget, so fields with
+	 * month names do not matter.
+	 */
+	@Test
+	public void testInsertIntoDateFieldWithMonthNames() {
+		assertTrue(fixture.insertIntoDateField("15", "2", "2015", "date_names"));
+		assertEquals("15.Feb.2015", fixture.readDateField("date_names"));
+	}
+
+	/**
+	 * An invalid date, which the widget rolls over, stops the test.
+	 */
+	@Test(expected = StopTestException.class)
+	public void testInsertInvalidDateFails() {
+		fixture.insertIntoDateField("31", "2", "2015", "date_model");
+	}
+
+	/**
+	 * The entries are read from the client side widget and the selection
+	 * jumps to the entry with one sequence of arrow keys.
+	 */
+	@Test
+	public void testSelectOptionJumpsToEntry() {
+		assertTrue(fixture.selectOption("Eintrag 299", "combo"));
+		assertEquals("Eintrag 299", fixture.executeScript("return window.w30._list.getSelectedItem().label;"));
+		assertEquals(300L, fixture.executeScript("return window.w30.keys;"));
+
+		assertTrue(fixture.selectOption("Tom & Jerry", "combo"));
+		assertEquals("Tom & Jerry", fixture.executeScript("return document.getElementById('w30').firstChild.value;"));
+		assertEquals(449L, fixture.executeScript("return window.w30.keys;"));
+
+		assertFalse(fixture.selectOption("Eintrag 300", "combo"));
+		assertEquals(449L, fixture.executeScript("return window.w30.keys;"));
+	}
+
+	/**
+	 * Without client side widget, the entry is searched key by key.
+	 */
+	@Test
+	public void testSelectOptionWithoutWidget() {
+		assertTrue(fixture.selectOption("Blau", "combo_plain"));
+		assertEquals(2L, fixture.executeScript("return window.combo_plain.index;"));
+		assertFalse(fixture.selectOption("Gruen", "combo_plain"));
+	}
+
+	/**
+	 * The arrow keys move the selection from the selected to the target entry.
+	 */
+	@Test
+	public void testComboMoves() {
+		assertEquals(Keys.DOWN.toString() + Keys.DOWN, RapCombo.getMoves(-1, 1));
+		assertEquals(Keys.UP.toString() + Keys.UP, RapCombo.getMoves(5, 3));
+		assertEquals("", RapCombo.getMoves(4, 4));
+	}
+
+	/**
+	 * The state is read from the background images, the image names are read
+	 * from the element list once.
+	 */
+	@Test
+	public void testCheckIsSelected() {
+		assertTrue(fixture.checkIsSelected("check_on"));
+		Object images = fixture.getSession().getCached("RapWebFixture.checkImages");
+		assertTrue(images instanceof RapCheckImages);
+
+		assertTrue(fixture.checkIsNotSelected("check_off"));
+		assertTrue(fixture.checkIsSelected("radio_on"));
+		assertSame(images, fixture.getSession().getCached("RapWebFixture.checkImages"));
+	}
+
+	/**
+	 * Without a configured image, the state is unknown.
+	 */
+	@Test(expected = ContinueTestException.class)
+	public void testCheckIsSelectedUnknown() {
+		fixture.checkIsSelected("check_unknown");
+	}
+
+	/**
+	 * An element without day, month and year fields stops the test.
+	 */
+	@Test(expected = StopTestException.class)
+	public void testNoDateField() {
+		fixture.readDateField("no_date");
+	}
+}
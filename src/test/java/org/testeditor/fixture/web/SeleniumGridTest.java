@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.testeditor.fixture.core.exceptions.StopTestException;
+
+/**
+ * Tests for {@code SeleniumGrid}.
+ *
+ */
+public class SeleniumGridTest {
+
+	private static final String INDEX = new File("src/test/resources/WebApplication/index.html").toURI().toString();
+
+	/**
+	 * Stops the embedded grid.
+	 */
+	@AfterClass
+	public static void stopGrid() {
+		SeleniumGrid.stopEmbedded();
+		System.clearProperty(SeleniumGrid.MAX_SESSIONS_PROPERTY);
+	}
+
+	/**
+	 * The path of the hub is optional.
+	 */
+	@Test
+	public void testUrl() {
+		assertEquals("http://localhost:4444/wd/hub", SeleniumGrid.getUrl("http://localhost:4444").toString());
+		assertEquals("http://localhost:4444/wd/hub", SeleniumGrid.getUrl(" http://localhost:4444/wd/hub/ ")
+				.toString());
+		assertFalse(DriverConfiguration.forBrowser("chrome", CapabilityProfile.DEFAULT).getPoolKey()
+				.equals(DriverConfiguration.forBrowser("chrome", CapabilityProfile.DEFAULT).withGrid("embedded")
+						.getPoolKey()));
+	}
+
+	/**
+	 * An invalid URL stops the test.
+	 */
+	@Test(expected = StopTestException.class)
+	public void testInvalidUrl() {
+		SeleniumGrid.getUrl("no grid");
+	}
+
+	/**
+	 * The fixtures open their sessions through the embedded grid. The node
+	 * has one session, so the second fixture waits until the first one closes
+	 * its browser.
+	 *
+	 * @throws Exception
+	 *             if the second fixture fails
+	 */
+	@Test
+	public void testEmbeddedGridQueuesSessions() throws Exception {
+		System.setProperty(SeleniumGrid.MAX_SESSIONS_PROPERTY, "1");
+		final HtmlWebFixture first = new HtmlWebFixture();
+		first.setSeleniumGrid("embedded");
+		first.openBrowser("htmlunit");
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			first.setElementlist("src/test/resources/ElementList.conf");
+			first.navigateToUrl(INDEX);
+			assertTrue(first.getWebDriver() instanceof RemoteWebDriver);
+			assertEquals("Demo TestEditor", first.getWebDriver().getTitle());
+
+			Future<String> second = executor.submit(new Callable<String>() {
+
+				@Override
+				public String call() {
+					first.setSeleniumGrid("embedded");
+					first.openBrowser("htmlunit");
+					try {
+						first.navigateToUrl(INDEX);
+						return first.getWebDriver().getTitle();
+					} finally {
+						first.closeBrowser();
+					}
+				}
+			});
+			waitForStatus("sessions=1, queued=1");
+			first.closeBrowser();
+
+			assertEquals("Demo TestEditor", second.get());
+			waitForStatus("sessions=0, queued=0");
+		} finally {
+			executor.shutdownNow();
+			first.closeBrowser();
+		}
+	}
+
+	/**
+	 * @param expected
+	 *            the expected status of the embedded grid
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	private static void waitForStatus(String expected) throws InterruptedException {
+		for (int i = 0; i < 100 && !expected.equals(SeleniumGrid.getStatus()); i++) {
+			Thread.sleep(100);
+		}
+		assertEquals(expected, SeleniumGrid.getStatus());
+	}
+}
@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.testeditor.fixture.core.exceptions.StopTestException;
+
+/**
+ * Tests for {@code SessionSnapshot} and {@code SessionSnapshotStore}.
+ *
+ */
+public class SessionSnapshotTest {
+
+	private File folder;
+
+	/**
+	 * Creates an empty directory for the snapshot files.
+	 *
+	 * @throws IOException
+	 *             if the directory could not be created
+	 */
+	@Before
+	public void setUp() throws IOException {
+		folder = File.createTempFile("snapshots", "");
+		assertTrue(folder.delete() && folder.mkdir());
+	}
+
+	/**
+	 * Resets the store and deletes the snapshot files.
+	 */
+	@After
+	public void tearDown() {
+		SessionSnapshotStore.setDirectory(null);
+		SessionSnapshotStore.clear();
+		for (File file : folder.listFiles()) {
+			assertTrue(file.delete());
+		}
+		assertTrue(folder.delete());
+	}
+
+	/**
+	 * A snapshot written to a file is read back unchanged.
+	 */
+	@Test
+	public void testStoreAndLoad() {
+		File file = new File(folder, "login.snapshot");
+		SessionSnapshot snapshot = createSnapshot();
+
+		snapshot.store(file);
+		SessionSnapshot loaded = SessionSnapshot.load(file);
+
+		assertEquals(snapshot.getUrl(), loaded.getUrl());
+		assertEquals(snapshot.getCookies(), loaded.getCookies());
+		assertEquals(snapshot.getCookies().get(0).getExpiry(), loaded.getCookies().get(0).getExpiry());
+		assertNull(loaded.getCookies().get(1).getExpiry());
+		assertEquals(snapshot.getLocalStorage(), loaded.getLocalStorage());
+		assertEquals(snapshot.getSessionStorage(), loaded.getSessionStorage());
+	}
+
+	/**
+	 * Snapshots are read from the directory, if they are not in memory.
+	 */
+	@Test
+	public void testStoreDirectory() {
+		SessionSnapshotStore.setDirectory(folder.getPath());
+		SessionSnapshotStore.put("login", createSnapshot());
+		SessionSnapshotStore.clear();
+
+		assertEquals("http://localhost/app/", SessionSnapshotStore.get("login").getUrl());
+		assertNull(SessionSnapshotStore.get("unknown"));
+	}
+
+	/**
+	 * Names, which leave the directory of the snapshot files, are rejected.
+	 */
+	@Test(expected = StopTestException.class)
+	public void testNameWithPathIsRejected() {
+		SessionSnapshotStore.setDirectory(folder.getPath());
+		SessionSnapshotStore.put("../login", createSnapshot());
+	}
+
+	/**
+	 * Cookies, whose domain is not accepted by the browser, are restored for
+	 * the host of the page, if they belong to it, otherwise they are skipped.
+	 */
+	@Test
+	public void testRestoreCookiesOfOtherDomains() {
+		final List<Cookie> added = new ArrayList<Cookie>();
+		final WebDriver.Options options = (WebDriver.Options) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { WebDriver.Options.class }, new InvocationHandler() {
+
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("addCookie")) {
+							if (((Cookie) args[0]).getDomain() != null) {
+								throw new WebDriverException("invalid domain");
+							}
+							added.add((Cookie) args[0]);
+						}
+						return null;
+					}
+				});
+		WebDriver driver = (WebDriver) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {
+				WebDriver.class, JavascriptExecutor.class }, new InvocationHandler() {
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("manage")) {
+					return options;
+				}
+				return null;
+			}
+		});
+		Cookie host = new Cookie("host", "1", ".app.localhost", "/", null);
+		Cookie other = new Cookie("other", "2", "example.org", "/", null);
+		SessionSnapshot snapshot = new SessionSnapshot("http://www.app.localhost/app/", Arrays.asList(host, other),
+				Collections.<String, String> emptyMap(), Collections.<String, String> emptyMap());
+
+		snapshot.restore(driver);
+
+		assertEquals(Arrays.asList(new Cookie("host", "1", null, "/", null)), added);
+	}
+
+	/**
+	 * @return a snapshot with cookies and storage entries
+	 */
+	private SessionSnapshot createSnapshot() {
+		Map<String, String> local = new LinkedHashMap<String, String>();
+		local.put("token", "a=b;c");
+		local.put("user", "Müller");
+		Cookie session = new Cookie("JSESSIONID", "4711", "localhost", "/app", new Date(1400000000000L), true);
+		Cookie remember = new Cookie("remember", "yes", "/");
+		return new SessionSnapshot("http://localhost/app/", Arrays.asList(session, remember), local,
+				Collections.singletonMap("tab", "2"));
+	}
+}
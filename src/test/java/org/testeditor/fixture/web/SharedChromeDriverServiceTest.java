@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+import org.testeditor.fixture.core.exceptions.StopTestException;
+
+/**
+ * Tests for {@code SharedChromeDriverService}.
+ *
+ */
+public class SharedChromeDriverServiceTest {
+
+	/**
+	 * Other browsers are not detected as Chrome.
+	 */
+	@Test
+	public void testIsChrome() {
+		HtmlUnitDriver driver = new HtmlUnitDriver();
+		assertFalse(SharedChromeDriverService.isChrome(driver));
+		assertFalse(SharedChromeDriverService.isChrome(null));
+		driver.quit();
+	}
+
+	/**
+	 * A missing chromedriver executable stops the test.
+	 */
+	@Test(expected = StopTestException.class)
+	public void testMissingExecutableStopsTest() {
+		SharedChromeDriverService.getService("src/test/resources/not-existing-chromedriver");
+	}
+}
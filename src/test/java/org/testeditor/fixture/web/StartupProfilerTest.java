@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+/**
+ * Tests for {@code StartupProfiler}.
+ *
+ */
+public class StartupProfilerTest {
+
+	/**
+	 * Phases are recorded for the current start of the thread only.
+	 */
+	@Test
+	public void testRecordPhases() {
+		StartupProfiler.resetReport();
+		StartupProfiler profile = StartupProfiler.begin();
+		StartupProfiler.recordPhase(StartupProfiler.SESSION, StartupProfiler.start() - 5000000);
+		StartupProfiler.recordPhase(StartupProfiler.SESSION, StartupProfiler.start() - 5000000);
+		profile.end();
+		StartupProfiler.recordPhase(StartupProfiler.SERVICE, StartupProfiler.start());
+
+		assertTrue(profile.getPhase(StartupProfiler.SESSION) >= 10);
+		assertNull(profile.getPhase(StartupProfiler.SERVICE));
+		assertTrue(StartupProfiler.getReport().startsWith("session: 2x, avg "));
+		assertTrue(StartupProfiler.getReport().contains("service: 1x"));
+	}
+
+	/**
+	 * openBrowser records the phases of the start and the first navigation.
+	 */
+	@Test
+	public void testOpenBrowser() {
+		HtmlWebFixture fixture = new HtmlWebFixture() {
+
+			@Override
+			protected WebDriver createWebDriver(DriverConfiguration configuration) {
+				return new HtmlUnitDriver(true);
+			}
+		};
+		assertEquals("", fixture.readStartupProfile());
+
+		fixture.openBrowser("firefox");
+		try {
+			fixture.navigateToUrl(new File("src/test/resources/WebApplication/index.html").toURI().toString());
+			fixture.navigateToUrl(new File("src/test/resources/WebApplication/elements.html").toURI().toString());
+
+			String profile = fixture.readStartupProfile();
+			assertTrue(profile, profile.matches("resolve=\\d+ ms, lease=\\d+ ms, navigation=\\d+ ms"));
+			assertNotNull(fixture.readStartupReport());
+		} finally {
+			fixture.closeBrowser();
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.testeditor.fixture.core.exceptions.StopTestException;
+
+/**
+ * Tests for {@code TextMatcher} and {@code TextMatchMode}.
+ *
+ */
+public class TextMatcherTest {
+
+	/**
+	 * Each mode should match according to its description.
+	 */
+	@Test
+	public void testMatchModes() {
+		String text = "Eine Beispiel\n  Web-Applikation";
+
+		assertTrue(TextMatcher.matches(text, " Beispiel ", TextMatchMode.CONTAINS));
+		assertFalse(TextMatcher.matches(text, "Beispiel Web", TextMatchMode.CONTAINS));
+		assertTrue(TextMatcher.matches(text, "Beispiel Web", TextMatchMode.WHITESPACE));
+		assertTrue(TextMatcher.matches(text, "beispiel", TextMatchMode.IGNORECASE));
+		assertFalse(TextMatcher.matches(text, "beispiel web", TextMatchMode.IGNORECASE));
+		assertTrue(TextMatcher.matches(text, "beispiel web", TextMatchMode.NORMALIZED));
+		assertTrue(TextMatcher.matches(text, "Web-[A-Z]\\w+$", TextMatchMode.REGEX));
+		assertFalse(TextMatcher.matches(text, "Web-[a-z]\\w+$", TextMatchMode.REGEX));
+		assertFalse(TextMatcher.matches(null, "Eine", TextMatchMode.CONTAINS));
+	}
+
+	/**
+	 * Special characters of a plain text must not be interpreted as regular
+	 * expression.
+	 */
+	@Test
+	public void testSpecialCharactersAreQuoted() {
+		assertTrue(TextMatcher.matches("Summe (netto): 1.000 EUR", "summe (NETTO): 1.000", TextMatchMode.NORMALIZED));
+		assertFalse(TextMatcher.matches("Summe 1,000", "1.000", TextMatchMode.WHITESPACE));
+	}
+
+	/**
+	 * A pattern should only be compiled once.
+	 */
+	@Test
+	public void testPatternIsCached() {
+		assertSame(TextMatcher.getPattern("a+b", TextMatchMode.REGEX), TextMatcher.getPattern("a+b", TextMatchMode.REGEX));
+	}
+
+	/**
+	 * An invalid regular expression or mode stops the test.
+	 */
+	@Test(expected = StopTestException.class)
+	public void testInvalidRegexStopsTest() {
+		TextMatcher.matches("text", "(", TextMatchMode.REGEX);
+	}
+
+	/**
+	 * A blank expected text is found in any text, so it stops the test.
+	 */
+	@Test(expected = StopTestException.class)
+	public void testBlankExpectedTextStopsTest() {
+		TextMatcher.matches("text", " ", TextMatchMode.CONTAINS);
+	}
+
+	/**
+	 * The name of the mode is case insensitive, empty means contains.
+	 */
+	@Test
+	public void testModeFromString() {
+		assertEquals(TextMatchMode.REGEX, TextMatchMode.fromString(" Regex "));
+		assertEquals(TextMatchMode.CONTAINS, TextMatchMode.fromString(""));
+		assertEquals(TextMatchMode.CONTAINS, TextMatchMode.fromString(null));
+	}
+}
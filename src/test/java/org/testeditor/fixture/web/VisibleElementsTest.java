@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+/**
+ * Tests for {@code VisibleElements} and the visibility script.
+ *
+ */
+public class VisibleElementsTest {
+
+	private static final String WEB_LAYOUT_PAGE = new File("src/test/resources/WebApplication/layout.html").toURI()
+			.toString();
+
+	private HtmlUnitDriver driver;
+
+	/**
+	 * Opens the page with the layout.
+	 */
+	@Before
+	public void setUp() {
+		driver = new HtmlUnitDriver(true);
+		driver.get(WEB_LAYOUT_PAGE);
+	}
+
+	/**
+	 * Closes the browser.
+	 */
+	@After
+	public void tearDown() {
+		driver.quit();
+	}
+
+	/**
+	 * HtmlUnit has no layout, so the size of elements is not checked.
+	 */
+	@Test
+	public void testHtmlUnitHasNoLayout() {
+		assertFalse(VisibleElements.hasLayout(driver));
+		List<WebElement> elements = driver.findElements(By.className("layout"));
+		assertEquals(elements.size(), VisibleElements.getAll(driver, elements).size());
+	}
+
+	/**
+	 * With layout, elements without size, outside of an ancestor with
+	 * 'overflow: hidden' or above the document are not visible. Elements
+	 * without size, but with text, are visible like in {@code isDisplayed()}.
+	 */
+	@Test
+	public void testSizeAndOverflowWithLayout() {
+		List<WebElement> elements = driver.findElements(By.className("layout"));
+		@SuppressWarnings("unchecked")
+		List<WebElement> visible = (List<WebElement>) ((JavascriptExecutor) driver).executeScript(
+				BrowserScripts.VISIBLE_ELEMENTS, elements, false, true);
+
+		List<String> ids = new ArrayList<String>();
+		for (WebElement element : visible) {
+			ids.add(element.getAttribute("id"));
+		}
+		assertEquals("[inside, text]", ids.toString());
+	}
+}
@@ -20,12 +20,17 @@ import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.Keys;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.htmlunit.HtmlUnitDriver;
@@ -43,6 +48,7 @@ public class WebFixtureTest {
 	private static final String ELEMENT_LIST_TXT = "src/test/resources/elementListContent.txt";
 	private static final URI WEB_INDEX_PAGE = new File("src/test/resources/WebApplication/index.html").toURI();
 	private static final URI WEB_ELEMENTS_PAGE = new File("src/test/resources/WebApplication/elements.html").toURI();
+	private static final URI WEB_FRAMES_PAGE = new File("src/test/resources/WebApplication/frames.html").toURI();
 
 	private HtmlWebFixture fixture;
 
@@ -178,14 +184,14 @@ public class WebFixtureTest {
 	@Test
 	public void elementlistInitializeCorrect() throws ElementKeyNotFoundException {
 		// initialization test
-		assertNull(fixture.elementListService);
+		assertNull(fixture.getElementListService());
 		fixture.setElementlist(ELEMENT_LIST);
-		assertNotNull(fixture.elementListService);
+		assertNotNull(fixture.getElementListService());
 
-		assertEquals("Datei", fixture.elementListService.getValue("common.file"));
+		assertEquals("Datei", fixture.getElementListService().getValue("common.file"));
 
 		fixture.setElementlist(ELEMENT_LIST_TXT);
-		assertEquals("username", fixture.elementListService.getValue("x"));
+		assertEquals("username", fixture.getElementListService().getValue("x"));
 	}
 
 	/**
@@ -260,7 +266,7 @@ public class WebFixtureTest {
 	@Test
 	public void navigateToUrlWorksCorrect() {
 		assertTrue(fixture.navigateToUrl(WEB_INDEX_PAGE.toString()));
-		WebElement element = fixture.webDriver.findElement(By.name("user"));
+		WebElement element = fixture.getWebDriver().findElement(By.name("user"));
 		// check if navigation works
 		assertTrue(element.isDisplayed());
 
@@ -292,6 +298,21 @@ public class WebFixtureTest {
 		assertFalse(fixture.checkElementIsAvailable("invisible"));
 	}
 
+	/**
+	 * Test for findAvailableWebElement and findAllAvailableWebElements.
+	 */
+	@Test
+	public void findAvailableWebElementsWorksCorrect() {
+		startWebApplication(WEB_ELEMENTS_PAGE);
+
+		assertEquals("Visible", fixture.findAvailableWebElement("choice").getAttribute("value"));
+		List<WebElement> elements = fixture.findAllAvailableWebElements("choice");
+		assertEquals(2, elements.size());
+		assertEquals("Also visible", elements.get(1).getAttribute("value"));
+
+		assertEquals(3, fixture.findAllAvailableWebElements("radio").size());
+	}
+
 	/**
 	 * Test for checkElementIsNotAvailable.
 	 */
@@ -397,13 +418,13 @@ public class WebFixtureTest {
 	@Test
 	public void setTimeoutInitializeCorrect() {
 		fixture.setTimeout("2");
-		assertEquals(fixture.timeout, 2);
+		assertEquals(fixture.getTimeout(), 2);
 
 		fixture.setTimeout("0");
-		assertEquals(fixture.timeout, 1);
+		assertEquals(fixture.getTimeout(), 1);
 
 		fixture.setTimeout("-3");
-		assertEquals(fixture.timeout, 1);
+		assertEquals(fixture.getTimeout(), 1);
 
 		try {
 			fixture.setTimeout("A5");
@@ -435,6 +456,28 @@ public class WebFixtureTest {
 		}
 	}
 
+	/**
+	 * Test for insertIntoField with long values set by a script.
+	 */
+	@Test
+	public void insertIntoFieldByScriptWorksCorrect() {
+		startWebApplication(WEB_ELEMENTS_PAGE);
+		fixture.clearElement("textarea");
+		fixture.setInsertScriptLength("100");
+
+		StringBuilder text = new StringBuilder();
+		while (text.length() < 2048) {
+			text.append("Lorem ipsum dolor sit amet. ");
+		}
+		assertTrue(fixture.insertIntoField(text.toString(), "textarea"));
+		assertEquals(text.toString().trim(), fixture.readValueOfElement("textarea"));
+		assertEquals("changed", fixture.readAttributeFromElement("title", "textarea"));
+
+		// short values are typed
+		assertTrue(fixture.insertIntoField("MyInput", "input_field"));
+		assertEquals("MyInputMyInput", fixture.readValueOfElement("input_field"));
+	}
+
 	/**
 	 * Test for clickRadioButtonOrCheckBox.
 	 */
@@ -447,6 +490,11 @@ public class WebFixtureTest {
 		assertFalse(fixture.checkIsSelected("checkbox"));
 
 		assertFalse(fixture.clickRadioButtonOrCheckBox("NIX", "checkbox"));
+
+		assertTrue(fixture.clickRadioButtonOrCheckBox("third", "radio"));
+		assertTrue(fixture.findAllAvailableWebElements("radio").get(2).isSelected());
+		assertTrue(fixture.checkIsSelected("radio"));
+		assertFalse(fixture.clickRadioButtonOrCheckBox("Fourth", "radio"));
 	}
 
 	/**
@@ -467,6 +515,150 @@ public class WebFixtureTest {
 		}
 	}
 
+	/**
+	 * Test for checkTextMatchesOnPage.
+	 */
+	@Test
+	public void checkTextMatchesOnPageWorksCorrect() {
+		startWebApplication(WEB_INDEX_PAGE);
+		fixture.setTimeout("1");
+
+		assertTrue(fixture.checkTextMatchesOnPage("Beispiel Web-Applikation", ""));
+		assertTrue(fixture.checkTextMatchesOnPage("Eine   Beispiel\n Web-Applikation", "whitespace"));
+		assertTrue(fixture.checkTextMatchesOnPage("EINE BEISPIEL", "ignorecase"));
+		assertTrue(fixture.checkTextMatchesOnPage(" eine  BEISPIEL  web-applikation ", "normalized"));
+		assertTrue(fixture.checkTextMatchesOnPage("Beispiel\\s+Web-\\w+", "regex"));
+
+		assertFalse(fixture.checkTextMatchesOnPage("EINE BEISPIEL", "contains"));
+		assertFalse(fixture.checkTextMatchesOnPage("Beispiel\\s+Applikation", "regex"));
+
+		try {
+			fixture.checkTextMatchesOnPage("Beispiel", "unknown");
+			fail("StopTestException expected");
+		} catch (StopTestException e) {
+			assertTrue(true);
+		}
+
+		try {
+			fixture.checkTextMatchesOnPage("Beispiel(", "regex");
+			fail("StopTestException expected");
+		} catch (StopTestException e) {
+			assertTrue(true);
+		}
+	}
+
+	/**
+	 * Test for checkTextMatchesOnElement.
+	 */
+	@Test
+	public void checkTextMatchesOnElementWorksCorrect() {
+		startWebApplication(WEB_INDEX_PAGE);
+
+		assertTrue(fixture.checkTextMatchesOnElement("eine beispiel", "ignorecase", "headline"));
+		assertTrue(fixture.checkTextMatchesOnElement("^Eine\\b.*Applikation$", "regex", "headline"));
+		assertFalse(fixture.checkTextMatchesOnElement("Login", "normalized", "headline"));
+	}
+
+	/**
+	 * Test for checkTextIsPresentInFrames and readFramePathOfText.
+	 */
+	@Test
+	public void textInFramesWorksCorrect() {
+		startWebApplication(WEB_FRAMES_PAGE);
+		fixture.setTimeout("1");
+
+		assertEquals("/", fixture.readFramePathOfText("mit Rahmen", ""));
+		assertEquals("/navigation", fixture.readFramePathOfText("Startseite", ""));
+		assertEquals("/content", fixture.readFramePathOfText("inhalt der seite", "ignorecase"));
+		assertEquals("/content/1", fixture.readFramePathOfText("Bestellung wurde gespeichert", "whitespace"));
+
+		assertTrue(fixture.checkTextIsPresentInFrames("Bestellung\\s+wurde", "regex"));
+		assertFalse(fixture.checkTextIsPresentInFrames("Bestellung wurde storniert", "normalized"));
+		assertFalse(fixture.checkTextIsPresentOnPage("Bestellung"));
+
+		try {
+			fixture.readFramePathOfText("Bestellung wurde storniert", "");
+			fail("StopTestException expected");
+		} catch (StopTestException e) {
+			assertTrue(true);
+		}
+	}
+
+	/**
+	 * Test for saveSessionSnapshot and restoreSessionSnapshot.
+	 */
+	@Test
+	public void sessionSnapshotWorksCorrect() {
+		startWebApplication(WEB_INDEX_PAGE);
+
+		assertTrue(fixture.saveSessionSnapshot("junit-index"));
+		fixture.navigateToUrl(WEB_ELEMENTS_PAGE.toString());
+		assertTrue(fixture.restoreSessionSnapshot("junit-index"));
+		assertTrue(fixture.getWebDriver().getCurrentUrl().endsWith("index.html"));
+
+		try {
+			fixture.restoreSessionSnapshot("junit-unknown");
+			fail("StopTestException expected");
+		} catch (StopTestException e) {
+			assertTrue(true);
+		}
+	}
+
+	/**
+	 * Test for waitForValueChange and waitForTextChange.
+	 */
+	@Test
+	public void waitForChangeWorksCorrect() {
+		startWebApplication(WEB_ELEMENTS_PAGE);
+		fixture.setTimeout("2");
+
+		((JavascriptExecutor) fixture.getWebDriver()).executeScript("setTimeout(function() {"
+				+ "document.getElementById('input_field').value = 'Changed'; }, 300);");
+		assertEquals("Changed", fixture.waitForValueChange("input_field"));
+
+		((JavascriptExecutor) fixture.getWebDriver()).executeScript("setTimeout(function() {"
+				+ "document.getElementById('textarea').appendChild(document.createTextNode(' and more')); }, 300);");
+		assertTrue(fixture.waitForTextChange("textarea").endsWith("and more"));
+
+		try {
+			fixture.waitForValueChange("input_field");
+			fail("StopTestException expected");
+		} catch (StopTestException e) {
+			assertTrue(true);
+		}
+	}
+
+	/**
+	 * The Firefox profile 'testing' is only used for Firefox, so it is not
+	 * part of the pool key of other browsers.
+	 */
+	@Test
+	public void driverConfigurationOfOtherBrowsersHasNoFirefoxProfile() {
+		assertNull(fixture.getDriverConfiguration(DriverConfiguration.CHROME).getFirefoxProfile());
+		assertNull(fixture.getDriverConfiguration(DriverConfiguration.IE).getFirefoxProfile());
+	}
+
+	/**
+	 * The timeout of asynchronous scripts follows the timeout of the fixture.
+	 */
+	@Test
+	public void scriptTimeoutFollowsTimeout() {
+		startWebApplication(WEB_ELEMENTS_PAGE);
+		String script = "var callback = arguments[0]; setTimeout(function() { callback('done'); }, 1500);";
+		JavascriptExecutor executor = (JavascriptExecutor) fixture.getWebDriver();
+
+		fixture.setTimeout("3");
+		assertEquals("done", executor.executeAsyncScript(script));
+
+		fixture.setTimeout("1");
+		try {
+			executor.executeAsyncScript(script);
+			fail("TimeoutException expected");
+		} catch (TimeoutException e) {
+			assertTrue(true);
+		}
+	}
+
 	/**
 	 * Test for waitSeconds.
 	 */
@@ -537,6 +729,18 @@ public class WebFixtureTest {
 		assertEquals("22", fixture.readValueOfElement("progress"));
 		// Value of source
 		assertTrue(fixture.readValueOfElement("source").endsWith("horse.mp3"));
+		// Value of the first visible element
+		assertEquals("Visible", fixture.readValueOfElement("choice"));
+	}
+
+	/**
+	 * Test for readValueOfElement of a hidden element.
+	 */
+	@Test(expected = StopTestException.class)
+	public void readValueOfHiddenElementFails() {
+		startWebApplication(WEB_ELEMENTS_PAGE);
+		fixture.setTimeout("2");
+		fixture.readValueOfElement("hidden_input_field");
 	}
 
 	/**
@@ -742,12 +946,15 @@ public class WebFixtureTest {
 	@Test
 	public void closeBrowserWorksCorrect() {
 		startWebApplication(WEB_INDEX_PAGE);
+		WebDriver driver = fixture.getWebDriver();
 
-		// close browser
+		// close browser, the browser is closed in the background
 		assertTrue(fixture.closeBrowser());
+		assertNull(fixture.getWebDriver());
+		assertTrue(BrowserReaper.awaitPending(5, TimeUnit.SECONDS));
 
 		try {
-			fixture.navigateToUrl(WEB_INDEX_PAGE.toString());
+			driver.get(WEB_INDEX_PAGE.toString());
 			Assert.fail();
 		} catch (WebDriverException e) {
 			// expected, that session is closed
@@ -761,12 +968,15 @@ public class WebFixtureTest {
 	@Test
 	public void tearDownWorksCorrect() {
 		startWebApplication(WEB_INDEX_PAGE);
+		WebDriver driver = fixture.getWebDriver();
 
-		// close browser
+		// close browser, the browser is closed in the background
 		fixture.tearDown();
+		assertNull(fixture.getWebDriver());
+		assertTrue(BrowserReaper.awaitPending(5, TimeUnit.SECONDS));
 
 		try {
-			fixture.navigateToUrl(WEB_INDEX_PAGE.toString());
+			driver.get(WEB_INDEX_PAGE.toString());
 			Assert.fail();
 		} catch (WebDriverException e) {
 			// expected, that session is closed
@@ -813,7 +1023,7 @@ public class WebFixtureTest {
 		 */
 		@Override
 		public boolean openBrowser(String browserName) {
-			webDriver = new HtmlUnitDriver(true);
+			getSession().setWebDriver(new HtmlUnitDriver(true));
 			return true;
 		}
 	}
@@ -823,7 +1033,7 @@ public class WebFixtureTest {
 	 */
 	@Test
 	public void testJUnitWebFixture() {
-		assertTrue(fixture.webDriver instanceof HtmlUnitDriver);
+		assertTrue(fixture.getWebDriver() instanceof HtmlUnitDriver);
 	}
 
 	/**
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+/**
+ * Tests for {@code WebSession}.
+ *
+ */
+public class WebSessionTest {
+
+	/**
+	 * Each thread has its own session with its own browser and timeout.
+	 *
+	 * @throws Exception
+	 *             if a scenario fails
+	 */
+	@Test
+	public void testSessionsAreConfinedToThreads() throws Exception {
+		final HtmlWebFixture fixture = new HtmlWebFixture() {
+
+			@Override
+			protected WebDriver createWebDriver(DriverConfiguration configuration) {
+				return new HtmlUnitDriver(true);
+			}
+		};
+		fixture.setTimeout("3");
+		final String[] pages = { "index.html", "elements.html", "frames.html", "home.html" };
+
+		ExecutorService executor = Executors.newFixedThreadPool(pages.length);
+		try {
+			List<Future<String>> titles = new ArrayList<Future<String>>();
+			for (final String page : pages) {
+				titles.add(executor.submit(new Callable<String>() {
+
+					@Override
+					public String call() {
+						assertNull(fixture.getWebDriver());
+						assertEquals(WebSession.DEFAULT_TIMEOUT, fixture.getTimeout());
+						fixture.setTimeout(String.valueOf(page.length()));
+						fixture.openBrowser("firefox");
+						try {
+							fixture.navigateToUrl(toUrl(page));
+							assertEquals(page.length(), fixture.getTimeout());
+							return fixture.getWebDriver().getTitle();
+						} finally {
+							fixture.closeBrowser();
+						}
+					}
+				}));
+			}
+			for (int i = 0; i < pages.length; i++) {
+				WebDriver driver = new HtmlUnitDriver(true);
+				try {
+					driver.get(toUrl(pages[i]));
+					assertEquals(driver.getTitle(), titles.get(i).get());
+				} finally {
+					driver.quit();
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(3, fixture.getTimeout());
+	}
+
+	/**
+	 * The session of a thread is kept between the steps.
+	 */
+	@Test
+	public void testSessionOfThread() {
+		ThreadLocal<WebSession> sessions = WebSession.forThread();
+		WebSession session = sessions.get();
+		session.putCached("key", "value");
+		assertEquals(session, sessions.get());
+		assertEquals("value", sessions.get().getCached("key"));
+		assertNotSame(session, WebSession.forThread().get());
+
+		session.clearCache();
+		assertNull(session.getCached("key"));
+	}
+
+	/**
+	 * The session of the thread is removed on tear down, so the next test of
+	 * the thread starts with a new session.
+	 */
+	@Test
+	public void testTearDownRemovesSession() {
+		HtmlWebFixture fixture = new HtmlWebFixture();
+		fixture.setTimeout("3");
+		WebSession session = fixture.getSession();
+
+		fixture.tearDown();
+
+		assertNotSame(session, fixture.getSession());
+		assertEquals(WebSession.DEFAULT_TIMEOUT, fixture.getTimeout());
+	}
+
+	/**
+	 * @param page
+	 *            name of the page of the test web application
+	 * @return the URL of the page
+	 */
+	private static String toUrl(String page) {
+		return new File("src/test/resources/WebApplication/" + page).toURI().toString();
+	}
+}
@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web.runner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+import org.testeditor.fixture.web.DriverConfiguration;
+import org.testeditor.fixture.web.HtmlWebFixture;
+
+/**
+ * Tests for {@code ParallelSuiteRunner}, {@code ScenarioScript} and
+ * {@code ScriptStep}.
+ *
+ */
+public class ParallelSuiteRunnerTest {
+
+	private static final String INDEX = new File("src/test/resources/WebApplication/index.html").toURI().toString();
+
+	/**
+	 * The rows of script tables are parsed to steps with trimmed cells, other
+	 * tables and lines are ignored.
+	 */
+	@Test
+	public void testParseScript() {
+		ScenarioScript script = ScenarioScript.parse("Login", "!|import|\n|org.testeditor.fixture.web|\n\n"
+				+ "some text\n" + "!|script|HtmlWebFixture|\n" + "|open browser| firefox |\n"
+				+ "|check|read value of element| Name |Peter|\n" + "|note|comment|\n" + "|select option|A|from|Liste|\n"
+				+ "\n" + "|scenario|login|user|\n" + "|insert into field|@user|Name|\n\n" + "-|comment|\n"
+				+ "|close browser|\n");
+
+		assertEquals("Login", script.getName());
+		assertEquals(4, script.getSteps().size());
+		assertEquals("openBrowser", script.getSteps().get(0).getMethodName());
+		assertEquals(Arrays.asList("firefox"), Arrays.asList(script.getSteps().get(0).getArguments()));
+		assertEquals("readValueOfElement", script.getSteps().get(1).getMethodName());
+		assertEquals(Arrays.asList("Name"), Arrays.asList(script.getSteps().get(1).getArguments()));
+		assertEquals("selectOptionFrom", script.getSteps().get(3).getMethodName());
+		assertEquals(Arrays.asList("A", "Liste"), Arrays.asList(script.getSteps().get(3).getArguments()));
+		assertEquals("|open browser| firefox |", script.getSteps().get(0).toString());
+	}
+
+	/**
+	 * 'postInvoke' of the fixture is called, even if the step fails.
+	 *
+	 * @throws Exception
+	 *             if the step could not be invoked
+	 */
+	@Test
+	public void testPostInvokeAfterFailedStep() throws Exception {
+		final List<String> finished = new ArrayList<String>();
+		HtmlWebFixture fixture = new HtmlWebFixture() {
+
+			@Override
+			public void postInvoke(Method method, Object target, Object... args)
+					throws InvocationTargetException, IllegalAccessException {
+				finished.add(method.getName() + Arrays.asList(args));
+				super.postInvoke(method, target, args);
+			}
+		};
+		ScriptStep step = ScenarioScript.parse("Failing", "|script|\n|check|read value of element| Name |Peter|\n")
+				.getSteps().get(0);
+
+		try {
+			step.invoke(fixture);
+			fail("The step must fail without browser.");
+		} catch (InvocationTargetException e) {
+			assertEquals(Arrays.asList("readValueOfElement[Name]"), finished);
+		}
+	}
+
+	/**
+	 * Like FitNesse, the nearest 'SetUp' and 'TearDown' pages run around each
+	 * test, suite pages and pages without script table are no tests. Tests
+	 * are named by their page path.
+	 *
+	 * @throws IOException
+	 *             if the pages could not be written
+	 */
+	@Test
+	public void testCollectScripts() throws IOException {
+		File suite = Files.createTempDirectory("suite").toFile();
+		try {
+			writePage(new File(suite, "content.txt"), "!contents");
+			writePage(new File(suite, "SetUp/content.txt"), "|script|\n|open browser|firefox|\n");
+			writePage(new File(suite, "TearDown/content.txt"), "|script|\n|close browser|\n");
+			writePage(new File(suite, "SuiteSetUp/content.txt"), "|script|\n|set timeout|5|\n");
+			writePage(new File(suite, "Login/content.txt"), "|script|\n|click|Login|\n");
+			writePage(new File(suite, "Admin/SetUp.txt"), "|script|\n|navigate to url|admin|\n");
+			writePage(new File(suite, "Admin/Users.txt"), "|script|\n|click|Users|\n");
+
+			List<String> tests = new ArrayList<String>();
+			for (ScenarioScript script : ParallelSuiteRunner.collectScripts(Arrays.asList(suite))) {
+				tests.add(script.getName() + script.getSteps() + script.getTearDownSteps());
+			}
+
+			assertEquals(Arrays.asList(suite.getName()
+					+ ".Admin.Users[|navigate to url|admin|, |click|Users|][|close browser|]", suite.getName()
+					+ ".Login[|open browser|firefox|, |click|Login|][|close browser|]"), tests);
+		} finally {
+			delete(suite);
+		}
+	}
+
+	/**
+	 * @param file
+	 *            the page
+	 * @param content
+	 *            the content of the page
+	 * @throws IOException
+	 *             if the page could not be written
+	 */
+	private static void writePage(File file, String content) throws IOException {
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @param file
+	 *            the file or directory to delete
+	 */
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	/**
+	 * All tests are run on the workers and reported as they finish; failed
+	 * steps are reported with the test. The tear down steps run after aborted
+	 * tests.
+	 */
+	@Test
+	public void testRunSuite() {
+		List<ScenarioScript> scripts = new ArrayList<ScenarioScript>();
+		scripts.add(ScenarioScript.parse("Slow", "|script|\n|open browser|firefox|\n|navigate to url|" + INDEX + "|\n"
+				+ "|wait seconds|1|\n|close browser|\n"));
+		for (int i = 0; i < 6; i++) {
+			scripts.add(ScenarioScript.parse("Fast" + i, "|script|\n|open browser|firefox|\n|navigate to url|" + INDEX + "|\n"
+					+ "|ensure|check text is present on page|loginForm|\n|close browser|\n"));
+		}
+		scripts.add(ScenarioScript.parse("Failing", "|script|\n|open browser|firefox|\n|navigate to url|" + INDEX + "|\n"
+				+ "|check text is not present on page|loginForm|\n|unknown step|\n|close browser|\n"));
+		scripts.add(new ScenarioScript("Aborted", ScenarioScript.parse("Aborted",
+				"|script|\n|open browser|firefox|\n|unknown step|\n|navigate to url|" + INDEX + "|\n").getSteps(),
+				ScenarioScript.parse("TearDown", "|script|\n|check text is present on page|loginForm|\n")
+						.getSteps()));
+
+		ParallelSuiteRunner runner = new ParallelSuiteRunner(2, new ParallelSuiteRunner.FixtureFactory() {
+
+			@Override
+			public Object create() {
+				return new HtmlWebFixture() {
+
+					@Override
+					protected WebDriver createWebDriver(DriverConfiguration configuration) {
+						return new HtmlUnitDriver(true);
+					}
+				};
+			}
+		});
+		final List<String> started = new CopyOnWriteArrayList<String>();
+		final List<TestResult> finished = new CopyOnWriteArrayList<TestResult>();
+		runner.addListener(new SuiteListener() {
+
+			@Override
+			public void testStarted(String name, int worker) {
+				started.add(name);
+			}
+
+			@Override
+			public void testFinished(TestResult result) {
+				finished.add(result);
+			}
+		});
+
+		List<TestResult> results = runner.run(scripts);
+
+		assertEquals(scripts.size(), results.size());
+		assertEquals(new HashSet<TestResult>(results), new HashSet<TestResult>(finished));
+		assertEquals(scripts.size(), started.size());
+		Set<Integer> workers = new HashSet<Integer>();
+		for (TestResult result : results) {
+			workers.add(result.getWorker());
+			if (result.getName().equals("Failing")) {
+				assertFalse(result.isPassed());
+				assertEquals(2, result.getFailures().size());
+				assertTrue(result.getFailures().get(0).contains("returned false"));
+				assertTrue(result.getFailures().get(1).contains("unknownStep"));
+			} else if (result.getName().equals("Aborted")) {
+				// the tear down steps run after the aborted test, the page was not opened
+				assertEquals(2, result.getFailures().size());
+				assertTrue(result.getFailures().get(0).contains("unknownStep"));
+				assertTrue(result.getFailures().get(1).startsWith("|check text is present on page|"));
+			} else {
+				assertTrue(result.toString(), result.isPassed());
+			}
+		}
+		assertEquals(2, workers.size());
+	}
+}
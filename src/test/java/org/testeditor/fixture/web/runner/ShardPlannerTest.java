@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2012 - 2015 Signal Iduna Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * Signal Iduna Corporation - initial API and implementation
+ * akquinet AG
+ *******************************************************************************/
+package org.testeditor.fixture.web.runner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.testeditor.fixture.web.HtmlWebFixture;
+import org.testeditor.fixture.web.TestDurationHistory;
+
+/**
+ * Tests for {@code ShardPlanner} and {@code TestDurationHistory}.
+ *
+ */
+public class ShardPlannerTest {
+
+	/**
+	 * The tests are assigned longest first to the shard with the least load.
+	 */
+	@Test
+	public void testPlanLongestFirst() {
+		TestDurationHistory history = new TestDurationHistory(null);
+		history.record("A", 100);
+		history.record("B", 90);
+		history.record("C", 50);
+		history.record("D", 40);
+		history.record("E", 30);
+		history.record("F", 20);
+		ShardPlanner planner = new ShardPlanner(history);
+
+		List<List<String>> plan = planner.plan(Arrays.asList("F", "E", "D", "C", "B", "A"), 2);
+
+		assertEquals(Arrays.asList("A", "D", "E"), plan.get(0));
+		assertEquals(Arrays.asList("B", "C", "F"), plan.get(1));
+		assertEquals(170, planner.estimateShard(plan.get(0)));
+		assertEquals(160, planner.estimateShard(plan.get(1)));
+		assertEquals(55, planner.estimate("unknown"));
+	}
+
+	/**
+	 * The durations are written to the file and smoothed over the runs.
+	 *
+	 * @throws IOException
+	 *             if the temporary file could not be created
+	 */
+	@Test
+	public void testHistoryFile() throws IOException {
+		File file = File.createTempFile("durations", ".properties");
+		try {
+			assertTrue(file.delete());
+			TestDurationHistory first = new TestDurationHistory(file);
+			assertNull(first.getDuration("Login"));
+			first.record("Login", 1000);
+			first.save();
+
+			TestDurationHistory second = new TestDurationHistory(file);
+			assertEquals(Long.valueOf(1000), second.getDuration("Login"));
+			second.record("Login", 2000);
+			assertEquals(Long.valueOf(1500), second.getDuration("Login"));
+			second.save();
+
+			assertEquals(Long.valueOf(1500), new TestDurationHistory(file).getDuration("Login"));
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * The fixture records the wall time from the first to the last step of a
+	 * test.
+	 *
+	 * @throws Exception
+	 *             if a hook fails
+	 */
+	@Test
+	public void testFixtureRecordsDuration() throws Exception {
+		HtmlWebFixture fixture = new HtmlWebFixture();
+		String test = ShardPlannerTest.class.getName() + ".fixture";
+		fixture.setTestName(test);
+		assertEquals(test, fixture.getTestName());
+
+		fixture.preInvoke(null, fixture);
+		fixture.postInvoke(null, fixture);
+		fixture.preInvoke(null, fixture);
+		Thread.sleep(50);
+		fixture.postInvoke(null, fixture);
+
+		assertTrue(TestDurationHistory.getInstance().getDuration(test) >= 50);
+	}
+}